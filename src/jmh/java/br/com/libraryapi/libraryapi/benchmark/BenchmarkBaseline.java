@@ -0,0 +1,111 @@
+package br.com.libraryapi.libraryapi.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Compara um resultado JSON do JMH com o baseline versionado e termina com
+ * código 1 quando algum benchmark piora além da tolerância.
+ * 
+ * Uma piora só conta quando, além de passar da tolerância, o intervalo de
+ * confiança de 99,9% do resultado ({@code scoreConfidence}, calculado pelo
+ * JMH a partir das iterações) fica inteiro do lado pior do intervalo do
+ * baseline. Com intervalos que se sobrepõem a diferença pode ser só ruído
+ * da medição e o benchmark é marcado como {@code INCERTO}, sem reprovar;
+ * mais forks e iterações estreitam os intervalos.
+ * 
+ * Uso: {@code BenchmarkBaseline <baseline.json> <resultado.json> [tolerancia]}
+ */
+public class BenchmarkBaseline {
+	
+	public static void main(String[] args) throws IOException {
+		if(args.length < 2) {
+			System.err.println("Uso: BenchmarkBaseline <baseline.json> <resultado.json> [tolerancia]");
+			System.exit(2);
+		}
+		double tolerance = args.length > 2 ? Double.parseDouble(args[2]) : 0.20;
+		Map<String, JsonNode> baseline = read(new File(args[0]));
+		Map<String, JsonNode> current = read(new File(args[1]));
+		
+		int regressions = 0;
+		for(Map.Entry<String, JsonNode> entry : current.entrySet()) {
+			JsonNode before = baseline.get(entry.getKey());
+			JsonNode after = entry.getValue();
+			double score = after.get("primaryMetric").get("score").asDouble();
+			String unit = after.get("primaryMetric").get("scoreUnit").asText();
+			if(before == null) {
+				System.out.printf("NOVO       %-70s %12.3f %s%n", entry.getKey(), score, unit);
+				continue;
+			}
+			double reference = before.get("primaryMetric").get("score").asDouble();
+			double[] referenceInterval = confidence(before);
+			double[] interval = confidence(after);
+			//Em throughput maior é melhor; nos demais modos (tempo) menor é melhor
+			boolean higherIsBetter = "thrpt".equals(after.get("mode").asText());
+			double change = (score - reference) / reference;
+			boolean beyondTolerance = higherIsBetter ? change < -tolerance : change > tolerance;
+			boolean separated = higherIsBetter ? interval[1] < referenceInterval[0] : interval[0] > referenceInterval[1];
+			String status = "OK";
+			if(beyondTolerance && separated) {
+				status = "REGRESSAO";
+				regressions++;
+			} else if(beyondTolerance) {
+				status = "INCERTO";
+			}
+			System.out.printf("%-10s %-70s %12.3f +- %-10.3f -> %12.3f +- %-10.3f %s (%+.1f%%)%n",
+					status, entry.getKey(), reference, error(before), score, error(after), unit, change * 100);
+		}
+		
+		if(regressions > 0) {
+			System.err.printf("%d benchmark(s) acima da tolerância de %.0f%%%n", regressions, tolerance * 100);
+			System.exit(1);
+		}
+	}
+	
+	//Intervalo de confiança do JMH; sem erro calculado (uma iteração só), o próprio score
+	private static double[] confidence(JsonNode result) {
+		JsonNode metric = result.get("primaryMetric");
+		double score = metric.get("score").asDouble();
+		JsonNode interval = metric.get("scoreConfidence");
+		if(interval == null || !interval.get(0).isNumber() || !interval.get(1).isNumber()) {
+			return new double[] { score, score };
+		}
+		return new double[] { interval.get(0).asDouble(), interval.get(1).asDouble() };
+	}
+	
+	private static double error(JsonNode result) {
+		JsonNode error = result.get("primaryMetric").get("scoreError");
+		return error != null && error.isNumber() ? error.asDouble() : 0;
+	}
+	
+	private static Map<String, JsonNode> read(File file) throws IOException {
+		Map<String, JsonNode> results = new LinkedHashMap<>();
+		for(JsonNode node : new ObjectMapper().readTree(file)) {
+			results.put(key(node), node);
+		}
+		return results;
+	}
+	
+	private static String key(JsonNode node) {
+		StringBuilder key = new StringBuilder(node.get("benchmark").asText());
+		JsonNode params = node.get("params");
+		if(params != null) {
+			Map<String, String> sorted = new TreeMap<>();
+			Iterator<Map.Entry<String, JsonNode>> fields = params.fields();
+			while(fields.hasNext()) {
+				Map.Entry<String, JsonNode> field = fields.next();
+				sorted.put(field.getKey(), field.getValue().asText());
+			}
+			key.append(sorted);
+		}
+		return key.toString();
+	}
+
+}
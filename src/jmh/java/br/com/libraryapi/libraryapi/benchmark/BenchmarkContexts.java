@@ -0,0 +1,35 @@
+package br.com.libraryapi.libraryapi.benchmark;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import br.com.libraryapi.libraryapi.LibraryApiApplication;
+
+/**
+ * Sobe a aplicação (H2 embarcado) dentro do fork do JMH.
+ */
+final class BenchmarkContexts {
+	
+	private BenchmarkContexts() {
+		
+	}
+	
+	static ConfigurableApplicationContext start(WebApplicationType type, String... args) {
+		//O restart do devtools criaria outro classloader no meio do benchmark
+		System.setProperty("spring.devtools.restart.enabled", "false");
+		String[] defaults = {
+				"--spring.main.banner-mode=off",
+				"--logging.level.root=WARN",
+				"--server.port=0",
+				"--spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1"
+		};
+		String[] all = new String[defaults.length + args.length];
+		System.arraycopy(defaults, 0, all, 0, defaults.length);
+		System.arraycopy(args, 0, all, defaults.length, args.length);
+		return new SpringApplicationBuilder(LibraryApiApplication.class)
+				.web(type)
+				.run(all);
+	}
+
+}
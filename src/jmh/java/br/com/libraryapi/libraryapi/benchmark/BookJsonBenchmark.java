@@ -0,0 +1,69 @@
+package br.com.libraryapi.libraryapi.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+
+import br.com.libraryapi.libraryapi.dto.BookDTO;
+
+/**
+ * (De)serialização de {@link BookDTO} com o ObjectMapper configurado como o
+ * do Spring MVC, em JSON e em CBOR ({@code application/cbor}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BookJsonBenchmark {
+	
+	@Param({"json", "cbor"})
+	public String format;
+	
+	private ObjectWriter writer;
+	
+	private ObjectReader reader;
+	
+	private BookDTO dto;
+	
+	private byte[] json;
+	
+	@Setup
+	public void setUp() throws IOException {
+		Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+		ObjectMapper objectMapper = "cbor".equals(format) ? builder.factory(new CBORFactory()).build() : builder.build();
+		writer = objectMapper.writerFor(BookDTO.class);
+		reader = objectMapper.readerFor(BookDTO.class);
+		dto = new BookDTO(1l, "Meu livro", "Autor", "123456");
+		json = writer.writeValueAsBytes(dto);
+	}
+	
+	@Benchmark
+	public byte[] serialize() throws IOException {
+		return writer.writeValueAsBytes(dto);
+	}
+	
+	@Benchmark
+	public BookDTO deserialize() throws IOException {
+		return reader.readValue(json);
+	}
+
+}
@@ -0,0 +1,64 @@
+package br.com.libraryapi.libraryapi.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import br.com.libraryapi.libraryapi.domain.Book;
+import br.com.libraryapi.libraryapi.dto.BookDTO;
+import br.com.libraryapi.libraryapi.mappers.BookMapper;
+import br.com.libraryapi.libraryapi.mappers.DirectBookMapper;
+import br.com.libraryapi.libraryapi.mappers.ModelMapperBookMapper;
+
+/**
+ * Custo do mapeamento nos caminhos de criação (DTO -> entidade -> DTO) e de
+ * consulta (entidade -> DTO) do BookResource. Rode com {@code -prof gc} para
+ * ver a alocação por operação.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BookMapperBenchmark {
+	
+	@Param({"direct", "modelmapper"})
+	private String mapperType;
+	
+	private BookMapper mapper;
+	
+	private BookDTO dto;
+	
+	private Book book;
+	
+	@Setup
+	public void setUp() {
+		mapper = "direct".equals(mapperType) ? new DirectBookMapper() : new ModelMapperBookMapper();
+		dto = new BookDTO(null, "Meu livro", "Autor", "123456");
+		book = new Book(1l, "Meu livro", "Autor", "123456");
+	}
+	
+	@Benchmark
+	public BookDTO createPath() {
+		Book entity = mapper.toEntity(dto);
+		entity.setId(1l);
+		return mapper.toDTO(entity);
+	}
+	
+	@Benchmark
+	public BookDTO getPath() {
+		return mapper.toDTO(book);
+	}
+
+}
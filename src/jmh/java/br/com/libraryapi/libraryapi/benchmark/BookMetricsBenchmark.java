@@ -0,0 +1,86 @@
+package br.com.libraryapi.libraryapi.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.HandlerMapping;
+
+import br.com.libraryapi.libraryapi.domain.Book;
+import br.com.libraryapi.libraryapi.dto.BookDTO;
+import br.com.libraryapi.libraryapi.mappers.BookMapper;
+import br.com.libraryapi.libraryapi.mappers.DirectBookMapper;
+import br.com.libraryapi.libraryapi.metrics.BookMetrics;
+import br.com.libraryapi.libraryapi.metrics.TimedBookMapper;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+
+/**
+ * Custo da instrumentação de {@link BookMetrics} no caminho quente: o mesmo
+ * mapeamento de consulta do {@link BookMapperBenchmark}, direto e medido com
+ * histograma de percentis no registry do Prometheus, dentro de uma requisição.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BookMetricsBenchmark {
+	
+	private BookMapper direct;
+	
+	private BookMapper timed;
+	
+	private Book book;
+	
+	@Setup
+	public void setUp() {
+		PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+		//Mesmo efeito de management.metrics.distribution.percentiles-histogram.library.book.stage=true
+		registry.config().meterFilter(new MeterFilter() {
+			@Override
+			public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+				return DistributionStatisticConfig.builder().percentilesHistogram(true).build().merge(config);
+			}
+		});
+		direct = new DirectBookMapper();
+		timed = new TimedBookMapper(direct, new BookMetrics(registry));
+		book = new Book(1l, "Meu livro", "Autor", "123456");
+		
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/books/1");
+		request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/books/{id}");
+		RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+	}
+	
+	@TearDown
+	public void tearDown() {
+		RequestContextHolder.resetRequestAttributes();
+	}
+	
+	@Benchmark
+	public BookDTO mappingDirect() {
+		return direct.toDTO(book);
+	}
+	
+	@Benchmark
+	public BookDTO mappingTimed() {
+		return timed.toDTO(book);
+	}
+
+}
@@ -0,0 +1,92 @@
+package br.com.libraryapi.libraryapi.benchmark;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Ida e volta HTTP completa do BookResource (Tomcat, Jackson, service e H2)
+ * dentro do mesmo processo, via loopback.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookResourceBenchmark {
+	
+	private final AtomicLong isbn = new AtomicLong();
+	
+	private ConfigurableApplicationContext context;
+	
+	private HttpClient client;
+	
+	private String baseUrl;
+	
+	private HttpRequest getRequest;
+	
+	@Setup
+	public void setUp() throws IOException, InterruptedException {
+		context = BenchmarkContexts.start(WebApplicationType.SERVLET);
+		String port = context.getBean(Environment.class).getProperty("local.server.port");
+		baseUrl = "http://localhost:" + port + "/api/books";
+		client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+		
+		HttpResponse<String> created = client.send(post("benchmark-0"), HttpResponse.BodyHandlers.ofString());
+		if(created.statusCode() != 201) {
+			throw new IllegalStateException("Falha ao criar livro inicial: " + created.body());
+		}
+		String id = new ObjectMapper().readTree(created.body()).get("id").asText();
+		getRequest = HttpRequest.newBuilder(URI.create(baseUrl + "/" + id))
+				.header("Accept", "application/json")
+				.GET()
+				.build();
+	}
+	
+	@TearDown
+	public void tearDown() {
+		context.close();
+	}
+	
+	@Benchmark
+	public int create() throws IOException, InterruptedException {
+		return client.send(post("isbn-" + isbn.incrementAndGet()), HttpResponse.BodyHandlers.ofByteArray()).statusCode();
+	}
+	
+	@Benchmark
+	public int get() throws IOException, InterruptedException {
+		return client.send(getRequest, HttpResponse.BodyHandlers.ofByteArray()).statusCode();
+	}
+	
+	private HttpRequest post(String isbn) {
+		String json = "{\"title\":\"Meu livro\",\"author\":\"Autor\",\"isbn\":\"" + isbn + "\"}";
+		return HttpRequest.newBuilder(URI.create(baseUrl))
+				.header("Content-Type", "application/json")
+				.header("Accept", "application/json")
+				.POST(HttpRequest.BodyPublishers.ofString(json))
+				.build();
+	}
+
+}
@@ -0,0 +1,104 @@
+package br.com.libraryapi.libraryapi.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import br.com.libraryapi.libraryapi.domain.Book;
+import br.com.libraryapi.libraryapi.repositories.BookRepository;
+import br.com.libraryapi.libraryapi.services.BookService;
+
+/**
+ * {@code BookServiceImpl.save}/{@code getById} contra o H2 embarcado, com o
+ * contexto Spring completo (sem servidor web), nas configurações padrão e
+ * no profile {@code prod} (application-prod.properties).
+ * 
+ * Os caches do Spring e o de segundo nível do Hibernate ficam desligados:
+ * com eles, o {@code getById} do mesmo livro mediria só o acerto no cache e
+ * não a ida ao banco que o profile {@code prod} ajusta.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookServiceBenchmark {
+	
+	@Param({"default", "prod"})
+	public String profile;
+	
+	private final AtomicLong isbn = new AtomicLong();
+	
+	private ConfigurableApplicationContext context;
+	
+	private BookService service;
+	
+	private Long existingId;
+	
+	private BookRepository repo;
+	
+	private List<List<Long>> idLists;
+	
+	private int next;
+	
+	@Setup
+	public void setUp() {
+		context = BenchmarkContexts.start(WebApplicationType.NONE, "--spring.profiles.active=" + profile,
+				"--spring.cache.type=none",
+				"--spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+				"--spring.jpa.properties.hibernate.cache.use_query_cache=false");
+		service = context.getBean(BookService.class);
+		existingId = service.save(new Book(null, "Meu livro", "Autor", "benchmark-0")).getId();
+		repo = context.getBean(BookRepository.class);
+		//Listas de 1 a 64 IDs: cada tamanho é um SQL diferente para o banco
+		List<Long> ids = new ArrayList<>();
+		for(int i = 1; i <= 64; i++) {
+			ids.add(service.save(new Book(null, "Meu livro", "Autor", "benchmark-" + i)).getId());
+		}
+		idLists = new ArrayList<>();
+		for(int size = 1; size <= ids.size(); size++) {
+			idLists.add(ids.subList(0, size));
+		}
+	}
+	
+	@TearDown
+	public void tearDown() {
+		context.close();
+	}
+	
+	@Benchmark
+	public Book save() {
+		return service.save(new Book(null, "Meu livro", "Autor", "isbn-" + isbn.incrementAndGet()));
+	}
+	
+	@Benchmark
+	public Optional<Book> getById() {
+		return service.getById(existingId);
+	}
+	
+	//Caminho do getAllById para IDs fora do cache: a consulta IN direto no repository
+	@Benchmark
+	public List<Book> findAllById() {
+		next = (next + 1) % idLists.size();
+		return repo.findAllById(idLists.get(next));
+	}
+
+}
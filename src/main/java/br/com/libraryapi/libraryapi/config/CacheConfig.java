@@ -0,0 +1,20 @@
+package br.com.libraryapi.libraryapi.config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Cache das consultas de livro por ID e por ISBN. Tamanho máximo, TTL e
+ * coleta de estatísticas são definidos em {@code spring.cache.caffeine.spec}
+ * (application.properties); as estatísticas ficam em
+ * {@code /actuator/metrics/cache.gets}, {@code cache.evictions} e {@code cache.size}.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+	
+	public static final String BOOKS = "books";
+	
+	public static final String BOOKS_BY_ISBN = "booksByIsbn";
+
+}
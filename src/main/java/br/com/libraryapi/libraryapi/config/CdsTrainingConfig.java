@@ -0,0 +1,49 @@
+package br.com.libraryapi.libraryapi.config;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+
+/**
+ * Subida de treino do arquivo AppCDS (profile Maven {@code appcds}, com
+ * {@code library.startup.cds-training=true}): assim que a aplicação fica
+ * pronta, faz algumas requisições a ela mesma, para que as classes do
+ * primeiro atendimento (MVC, Jackson, consultas do Hibernate) também entrem
+ * no arquivo, e encerra o processo.
+ */
+@Configuration
+@ConditionalOnProperty(name="library.startup.cds-training", havingValue="true")
+public class CdsTrainingConfig {
+	
+	private static final Logger log = LoggerFactory.getLogger(CdsTrainingConfig.class);
+	
+	@EventListener(ApplicationReadyEvent.class)
+	public void trainAndExit(ApplicationReadyEvent event) {
+		String baseUrl = "http://localhost:" + event.getApplicationContext().getEnvironment().getProperty("local.server.port") + "/api/books";
+		HttpClient client = HttpClient.newHttpClient();
+		try {
+			client.send(HttpRequest.newBuilder(URI.create(baseUrl))
+					.header("Content-Type", "application/json")
+					.POST(HttpRequest.BodyPublishers.ofString("{\"title\":\"Treino\",\"author\":\"Autor\",\"isbn\":\"cds-training\"}"))
+					.build(), HttpResponse.BodyHandlers.discarding());
+			client.send(HttpRequest.newBuilder(URI.create(baseUrl + "?isbn=cds-training")).GET().build(), HttpResponse.BodyHandlers.discarding());
+			client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/1")).GET().build(), HttpResponse.BodyHandlers.discarding());
+		} catch (IOException e) {
+			log.warn("Falha nas requisições de treino; o arquivo terá só as classes da subida", e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		System.exit(SpringApplication.exit(event.getApplicationContext()));
+	}
+
+}
@@ -0,0 +1,77 @@
+package br.com.libraryapi.libraryapi.config;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import br.com.libraryapi.libraryapi.datasource.ShardLayout;
+import br.com.libraryapi.libraryapi.repositories.BookChangeRepository;
+import br.com.libraryapi.libraryapi.services.impl.BookChangeFeed;
+import br.com.libraryapi.libraryapi.services.impl.BookChangeOutbox;
+import br.com.libraryapi.libraryapi.services.impl.BookChangeRelay;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Feed de alterações de livros ({@code GET /api/books/changes}): o
+ * {@link BookChangeOutbox} grava cada alteração na transação do livro, o
+ * {@link BookChangeRelay} as publica em lotes e o {@link BookChangeFeed} as
+ * entrega aos consumidores.
+ */
+@Configuration
+public class ChangeFeedConfig {
+	
+	//Ninguém injeta o outbox: com inicialização preguiçosa, as alterações não seriam gravadas
+	@Bean
+	@Lazy(false)
+	public BookChangeOutbox bookChangeOutbox(EntityManagerFactory entityManagerFactory, ObjectProvider<BookChangeRelay> relay) {
+		BookChangeOutbox outbox = new BookChangeOutbox(() -> relay.ifAvailable(BookChangeRelay::wake));
+		EventListenerRegistry listeners = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+				.getServiceRegistry()
+				.getService(EventListenerRegistry.class);
+		listeners.appendListeners(EventType.POST_INSERT, outbox);
+		listeners.appendListeners(EventType.POST_UPDATE, outbox);
+		listeners.appendListeners(EventType.POST_DELETE, outbox);
+		return outbox;
+	}
+	
+	@Bean(destroyMethod="close")
+	public BookChangeFeed bookChangeFeed(BookChangeRepository repo,
+			@Value("${library.changes.feed.page-size:500}") int pageSize,
+			@Value("${library.changes.feed.threads:4}") int threads,
+			ObjectProvider<ShardLayout> shardLayout,
+			MeterRegistry registry) {
+		BookChangeFeed feed = new BookChangeFeed(repo, pageSize, threads, shardCount(shardLayout));
+		Gauge.builder("library.book.changes.subscriptions", feed, BookChangeFeed::getSubscriptionCount).register(registry);
+		return feed;
+	}
+	
+	//Com mais de uma instância, ligado em apenas uma (ver BookChangeRelay)
+	@Bean(initMethod="start", destroyMethod="stop")
+	@Lazy(false)
+	@ConditionalOnProperty(name="library.changes.relay.enabled", havingValue="true", matchIfMissing=true)
+	public BookChangeRelay bookChangeRelay(BookChangeRepository repo, PlatformTransactionManager transactionManager, BookChangeFeed feed,
+			@Value("${library.changes.relay.batch-size:500}") int batchSize,
+			@Value("${library.changes.relay.poll-interval-millis:1000}") long pollIntervalMillis,
+			ObjectProvider<ShardLayout> shardLayout) {
+		return new BookChangeRelay(repo, new TransactionTemplate(transactionManager), feed, batchSize, pollIntervalMillis,
+				shardCount(shardLayout));
+	}
+	
+	//Com shards, cada um tem a sua tabela book_change (ver ShardingConfig)
+	private static int shardCount(ObjectProvider<ShardLayout> shardLayout) {
+		ShardLayout layout = shardLayout.getIfAvailable();
+		return layout == null ? 1 : layout.getShardCount();
+	}
+
+}
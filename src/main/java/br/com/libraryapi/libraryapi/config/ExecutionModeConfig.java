@@ -0,0 +1,65 @@
+package br.com.libraryapi.libraryapi.config;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.DispatcherType;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.web.servlet.DispatcherServlet;
+
+import br.com.libraryapi.libraryapi.resources.filter.BlockingOffloadFilter;
+
+/**
+ * Modo de execução das requisições de /api/books, escolhido por
+ * {@code library.execution.mode}:
+ * <ul>
+ * <li>{@code servlet} (padrão): thread do Tomcat do início ao fim.</li>
+ * <li>{@code offload}: a thread do Tomcat é liberada e o processamento roda
+ * em um pool limitado ({@link BlockingOffloadFilter}). O número de conexões
+ * simultâneas passa a ser limitado por {@code server.tomcat.max-connections},
+ * e não pelo tamanho do pool de threads.</li>
+ * </ul>
+ */
+@Configuration
+@ConditionalOnProperty(name="library.execution.mode", havingValue="offload")
+public class ExecutionModeConfig {
+	
+	@Bean(destroyMethod="shutdown")
+	public ThreadPoolExecutor blockingOffloadExecutor(
+			@Value("${library.execution.offload.threads:32}") int threads,
+			@Value("${library.execution.offload.queue-capacity:10000}") int queueCapacity) {
+		AtomicInteger counter = new AtomicInteger();
+		return new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(queueCapacity),
+				runnable -> {
+					Thread thread = new Thread(runnable, "book-offload-" + counter.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+	}
+	
+	@Bean
+	public FilterRegistrationBean<BlockingOffloadFilter> blockingOffloadFilter(DispatcherServlet dispatcherServlet,
+			ThreadPoolExecutor blockingOffloadExecutor,
+			@Value("${library.execution.offload.timeout-millis:30000}") long timeoutMillis,
+			@Value("${library.execution.offload.excluded-paths:}") List<String> excludedPaths) {
+		FilterRegistrationBean<BlockingOffloadFilter> registration = new FilterRegistrationBean<>(
+				new BlockingOffloadFilter(dispatcherServlet, blockingOffloadExecutor, timeoutMillis, excludedPaths));
+		registration.addUrlPatterns("/api/books", "/api/books/*");
+		registration.setDispatcherTypes(DispatcherType.REQUEST, DispatcherType.ASYNC);
+		registration.setAsyncSupported(true);
+		//Último filtro: chama o DispatcherServlet diretamente
+		registration.setOrder(Ordered.LOWEST_PRECEDENCE);
+		return registration;
+	}
+
+}
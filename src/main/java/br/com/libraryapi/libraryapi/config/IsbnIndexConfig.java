@@ -0,0 +1,60 @@
+package br.com.libraryapi.libraryapi.config;
+
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import br.com.libraryapi.libraryapi.repositories.BookRepository;
+import br.com.libraryapi.libraryapi.services.impl.IsbnIndex;
+
+/**
+ * Cria o {@link IsbnIndex} e o carrega em segundo plano quando a aplicação
+ * sobe. Até o fim da carga o service consulta a base para todo ISBN.
+ */
+@Configuration
+public class IsbnIndexConfig {
+	
+	private static final Logger log = LoggerFactory.getLogger(IsbnIndexConfig.class);
+	
+	@Bean
+	public IsbnIndex isbnIndex(@Value("${library.isbn-index.expected-insertions:1000000}") long expectedInsertions,
+			@Value("${library.isbn-index.false-positive-rate:0.01}") double falsePositiveRate) {
+		return new IsbnIndex(expectedInsertions, falsePositiveRate);
+	}
+	
+	@EventListener(ApplicationReadyEvent.class)
+	public void warmUp(ApplicationReadyEvent event) {
+		IsbnIndex index = event.getApplicationContext().getBean(IsbnIndex.class);
+		BookRepository repo = event.getApplicationContext().getBean(BookRepository.class);
+		TransactionTemplate tx = new TransactionTemplate(event.getApplicationContext().getBean(PlatformTransactionManager.class));
+		tx.setReadOnly(true);
+		
+		Thread loader = new Thread(() -> {
+			try {
+				long count = tx.execute(status -> {
+					try(Stream<String> isbns = repo.streamAllIsbns()) {
+						return isbns.mapToLong(isbn -> {
+							index.add(isbn);
+							return 1;
+						}).sum();
+					}
+				});
+				index.markReady();
+				log.info("Índice de ISBN carregado com {} registros", count);
+			} catch (RuntimeException e) {
+				log.warn("Falha ao carregar o índice de ISBN; a base continuará sendo consultada", e);
+			}
+		}, "isbn-index-loader");
+		loader.setDaemon(true);
+		loader.start();
+	}
+
+}
@@ -0,0 +1,69 @@
+package br.com.libraryapi.libraryapi.config;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.springframework.aop.framework.Advised;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+
+import br.com.libraryapi.libraryapi.mappers.BookMapper;
+import br.com.libraryapi.libraryapi.metrics.BookMetrics;
+import br.com.libraryapi.libraryapi.metrics.HibernateCacheRegionMetrics;
+import br.com.libraryapi.libraryapi.metrics.RepositoryTimingInterceptor;
+import br.com.libraryapi.libraryapi.metrics.TimedCborHttpMessageConverter;
+import br.com.libraryapi.libraryapi.metrics.TimedBookMapper;
+import br.com.libraryapi.libraryapi.metrics.TimedJackson2HttpMessageConverter;
+import br.com.libraryapi.libraryapi.repositories.BookRepository;
+
+/**
+ * Instrumentação das etapas do fluxo BookResource -> BookServiceImpl ->
+ * BookRepository (ver {@link BookMetrics}). Mapeamento e repositório são
+ * decorados aqui, sem alterar as classes instrumentadas; os conversores JSON
+ * e CBOR substituem os padrão do Spring MVC.
+ */
+@Configuration
+public class MetricsConfig {
+	
+	@Bean
+	public TimedJackson2HttpMessageConverter timedJackson2HttpMessageConverter(ObjectMapper objectMapper, BookMetrics metrics) {
+		return new TimedJackson2HttpMessageConverter(objectMapper, metrics);
+	}
+	
+	//Representação binária (Accept/Content-Type application/cbor) para chamadas
+	//entre serviços, com a mesma configuração do ObjectMapper do JSON
+	@Bean
+	public TimedCborHttpMessageConverter timedCborHttpMessageConverter(Jackson2ObjectMapperBuilder builder, BookMetrics metrics) {
+		return new TimedCborHttpMessageConverter(builder.factory(new CBORFactory()).build(), metrics);
+	}
+	
+	@Bean
+	public HibernateCacheRegionMetrics hibernateCacheRegionMetrics(EntityManagerFactory entityManagerFactory) {
+		return new HibernateCacheRegionMetrics(entityManagerFactory);
+	}
+	
+	//Estático e com ObjectProvider: post-processors sobem antes dos demais beans
+	@Bean
+	public static BeanPostProcessor bookMetricsPostProcessor(ObjectProvider<BookMetrics> metrics) {
+		return new BeanPostProcessor() {
+			@Override
+			public Object postProcessAfterInitialization(Object bean, String beanName) {
+				if(bean instanceof BookMapper && !(bean instanceof TimedBookMapper)) {
+					return new TimedBookMapper((BookMapper) bean, metrics.getObject());
+				}
+				if(bean instanceof BookRepository && bean instanceof Advised) {
+					//No início da cadeia: os últimos interceptors do Spring Data executam a
+					//consulta sem chamar o próximo, e assim a medição inclui a transação
+					((Advised) bean).addAdvice(0, new RepositoryTimingInterceptor(metrics.getObject()));
+				}
+				return bean;
+			}
+		};
+	}
+
+}
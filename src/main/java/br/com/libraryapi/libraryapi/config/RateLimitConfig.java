@@ -0,0 +1,88 @@
+package br.com.libraryapi.libraryapi.config;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import br.com.libraryapi.libraryapi.resources.filter.AdaptiveConcurrencyLimit;
+import br.com.libraryapi.libraryapi.resources.filter.ClientRateLimits;
+import br.com.libraryapi.libraryapi.resources.filter.RateLimitFilter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Limites de taxa e de concorrência por cliente em /api/books (com
+ * {@code library.rate-limit.enabled=true}, ver {@link RateLimitFilter}). O
+ * limite de concorrência em uso e as requisições em andamento ficam em
+ * {@code library.book.limiter.limit} e {@code library.book.limiter.inflight}.
+ */
+@Configuration
+@ConditionalOnProperty(name="library.rate-limit.enabled", havingValue="true")
+public class RateLimitConfig {
+	
+	@Bean
+	public ClientRateLimits clientRateLimits(
+			@Value("${library.rate-limit.requests-per-second:50}") double rate,
+			@Value("${library.rate-limit.burst:100}") int burst,
+			@Value("${library.rate-limit.idle-client-minutes:10}") long idleMinutes,
+			@Value("${library.rate-limit.maximum-clients:100000}") long maximumClients,
+			MeterRegistry registry) {
+		ClientRateLimits limits = new ClientRateLimits(rate, burst, Duration.ofMinutes(idleMinutes), maximumClients);
+		Gauge.builder("library.book.limiter.clients", limits, ClientRateLimits::getClientCount).register(registry);
+		return limits;
+	}
+	
+	//Por endereço de origem, para as requisições com chave (ver RateLimitFilter)
+	@Bean
+	public ClientRateLimits addressRateLimits(
+			@Value("${library.rate-limit.address.requests-per-second:200}") double rate,
+			@Value("${library.rate-limit.address.burst:400}") int burst,
+			@Value("${library.rate-limit.idle-client-minutes:10}") long idleMinutes,
+			@Value("${library.rate-limit.maximum-clients:100000}") long maximumClients) {
+		return new ClientRateLimits(rate, burst, Duration.ofMinutes(idleMinutes), maximumClients);
+	}
+	
+	@Bean
+	public AdaptiveConcurrencyLimit adaptiveConcurrencyLimit(
+			@Value("${library.rate-limit.concurrency.initial:20}") int initial,
+			@Value("${library.rate-limit.concurrency.min:5}") int min,
+			@Value("${library.rate-limit.concurrency.max:200}") int max,
+			@Value("${library.rate-limit.concurrency.latency-tolerance:2.0}") double tolerance,
+			@Value("${library.rate-limit.concurrency.backoff:0.9}") double backoff,
+			@Value("${library.rate-limit.concurrency.window-millis:1000}") long windowMillis,
+			@Value("${library.rate-limit.concurrency.min-samples:20}") int minSamples,
+			MeterRegistry registry) {
+		AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(initial, min, max, tolerance, backoff,
+				TimeUnit.MILLISECONDS.toNanos(windowMillis), minSamples);
+		Gauge.builder("library.book.limiter.limit", limit, AdaptiveConcurrencyLimit::getLimit).register(registry);
+		Gauge.builder("library.book.limiter.inflight", limit, AdaptiveConcurrencyLimit::getInflight).register(registry);
+		return limit;
+	}
+	
+	@Bean
+	public FilterRegistrationBean<RateLimitFilter> rateLimitFilter(@Qualifier("clientRateLimits") ClientRateLimits clientRateLimits,
+			@Qualifier("addressRateLimits") ClientRateLimits addressRateLimits, AdaptiveConcurrencyLimit adaptiveConcurrencyLimit,
+			@Value("${library.rate-limit.concurrency.client-share:0.5}") double clientShare,
+			@Value("${library.rate-limit.client-header:X-Api-Key}") String clientHeader,
+			@Value("${library.rate-limit.concurrency.excluded-paths:}") List<String> excludedPaths,
+			ObjectMapper objectMapper, MeterRegistry registry) {
+		FilterRegistrationBean<RateLimitFilter> registration = new FilterRegistrationBean<>(new RateLimitFilter(
+				clientRateLimits, addressRateLimits, adaptiveConcurrencyLimit, clientShare, clientHeader, excludedPaths, objectMapper, registry));
+		registration.addUrlPatterns("/api/books", "/api/books/*");
+		registration.setAsyncSupported(true);
+		//Antes do BlockingOffloadFilter (último da cadeia), para recusar sem ocupar o executor
+		registration.setOrder(Ordered.LOWEST_PRECEDENCE - 10);
+		return registration;
+	}
+
+}
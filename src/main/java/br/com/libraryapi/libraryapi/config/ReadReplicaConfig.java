@@ -0,0 +1,115 @@
+package br.com.libraryapi.libraryapi.config;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+
+import br.com.libraryapi.libraryapi.datasource.LazyRoutingDataSource;
+import br.com.libraryapi.libraryapi.datasource.ReadYourWrites;
+import br.com.libraryapi.libraryapi.datasource.ReplicaRoutingDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Réplicas de leitura (com {@code library.datasource.replicas.enabled=true}):
+ * o pool do primário continua configurado por {@code spring.datasource.*} e
+ * cada URL de {@code library.datasource.replicas.urls} ganha um pool com as
+ * mesmas configurações, credenciais e driver. O {@link DataSource} usado pelo
+ * JPA é o {@link ReplicaRoutingDataSource}, que manda as transações somente
+ * leitura às réplicas, atrás de um {@link LazyRoutingDataSource}; os pools
+ * não são beans.
+ * 
+ * Leituras que podem ir a uma réplica não populam os caches {@code books} e
+ * {@code booksByIsbn} (ver BookServiceImpl): uma réplica atrasada recolocaria
+ * neles um livro já alterado ou removido. O cache de segundo nível já está
+ * protegido: depois de uma escrita, a estratégia READ_WRITE de Book recusa
+ * cargas do livro até a trava expirar, bem depois da janela do read-your-writes.
+ */
+@Configuration
+@ConditionalOnProperty(name="library.datasource.replicas.enabled", havingValue="true")
+public class ReadReplicaConfig {
+	
+	@Bean
+	public ReadYourWrites readYourWrites(
+			@Value("${library.datasource.read-your-writes.client-header:X-Client-Id}") String clientHeader,
+			@Value("${library.datasource.read-your-writes.window-millis:5000}") long windowMillis,
+			@Value("${library.datasource.read-your-writes.maximum-clients:100000}") long maximumClients) {
+		return new ReadYourWrites(clientHeader, Duration.ofMillis(windowMillis), maximumClients);
+	}
+	
+	//Único DataSource do contexto: os pools ficam dentro dele (ver LazyRoutingDataSource)
+	@Bean(destroyMethod="close")
+	@Primary
+	public LazyRoutingDataSource dataSource(DataSourceProperties properties, Environment environment, ReadYourWrites readYourWrites,
+			@Value("${library.datasource.replicas.urls}") List<String> urls,
+			@Value("${library.datasource.replicas.connection-timeout-millis:1000}") long connectionTimeoutMillis,
+			@Value("${library.datasource.replicas.health-check-interval-millis:5000}") long healthCheckIntervalMillis) {
+		//Mesmo binding do pool criado pelo DataSourceAutoConfiguration
+		HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+		Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+		String poolName = primary.getPoolName() != null ? primary.getPoolName() : "library";
+		List<DataSource> replicas = new ArrayList<>();
+		for(String url : urls) {
+			HikariConfig config = new HikariConfig();
+			primary.copyStateTo(config);
+			config.setJdbcUrl(url);
+			config.setPoolName(poolName + "-replica-" + replicas.size());
+			//Réplica fora do ar falha rápido e a leitura vai ao primário
+			config.setConnectionTimeout(connectionTimeoutMillis);
+			//Sem falhar a subida quando uma réplica está fora do ar
+			config.setInitializationFailTimeout(-1);
+			replicas.add(new HikariDataSource(config));
+		}
+		ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, replicas, readYourWrites, healthCheckIntervalMillis);
+		//Adia a escolha do pool até o primeiro comando, quando já se sabe se a transação é somente leitura
+		return new LazyRoutingDataSource(routing);
+	}
+	
+	//Fora do dataSource: o MeterRegistry aplica os binders do JPA, que dependem do dataSource
+	@Bean
+	public MeterBinder replicaMetrics(DataSource dataSource) {
+		return registry -> {
+			ReplicaRoutingDataSource routing = unwrap(dataSource);
+			bindPool(routing.getPrimary(), registry);
+			for(int i = 0; i < routing.getReplicaCount(); i++) {
+				int replica = i;
+				bindPool(routing.getReplica(replica), registry);
+				Gauge.builder("library.datasource.replica.healthy", routing, r -> r.isHealthy(replica) ? 1 : 0)
+						.tag("replica", String.valueOf(replica))
+						.register(registry);
+			}
+		};
+	}
+	
+	//Métricas hikaricp.* que o Spring Boot só registra para pools que são beans
+	private static void bindPool(DataSource pool, MeterRegistry registry) {
+		((HikariDataSource) pool).setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+	}
+	
+	private static ReplicaRoutingDataSource unwrap(DataSource dataSource) {
+		try {
+			return dataSource.unwrap(ReplicaRoutingDataSource.class);
+		} catch (SQLException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+}
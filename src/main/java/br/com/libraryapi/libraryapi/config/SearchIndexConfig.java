@@ -0,0 +1,43 @@
+package br.com.libraryapi.libraryapi.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+
+import br.com.libraryapi.libraryapi.services.BookService;
+import br.com.libraryapi.libraryapi.services.impl.BookSearchIndex;
+
+/**
+ * Cria o índice de busca textual e o constrói em segundo plano quando a
+ * aplicação sobe. Até lá a busca retorna apenas os livros gravados desde a
+ * subida.
+ */
+@Configuration
+public class SearchIndexConfig {
+	
+	private static final Logger log = LoggerFactory.getLogger(SearchIndexConfig.class);
+	
+	@Bean
+	public BookSearchIndex bookSearchIndex() {
+		return new BookSearchIndex();
+	}
+	
+	@EventListener(ApplicationReadyEvent.class)
+	public void build(ApplicationReadyEvent event) {
+		BookService service = event.getApplicationContext().getBean(BookService.class);
+		Thread builder = new Thread(() -> {
+			try {
+				long count = service.rebuildSearchIndex();
+				log.info("Índice de busca construído com {} livros", count);
+			} catch (RuntimeException e) {
+				log.warn("Falha ao construir o índice de busca", e);
+			}
+		}, "search-index-builder");
+		builder.setDaemon(true);
+		builder.start();
+	}
+
+}
@@ -0,0 +1,169 @@
+package br.com.libraryapi.libraryapi.config;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.jpa.boot.internal.EntityManagerFactoryBuilderImpl;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.springframework.aop.framework.Advised;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+
+import br.com.libraryapi.libraryapi.datasource.BookResharder;
+import br.com.libraryapi.libraryapi.datasource.LazyRoutingDataSource;
+import br.com.libraryapi.libraryapi.datasource.ReshardingEndpoint;
+import br.com.libraryapi.libraryapi.datasource.ShardLayout;
+import br.com.libraryapi.libraryapi.datasource.ShardRoutingDataSource;
+import br.com.libraryapi.libraryapi.datasource.ShardSchemaIntegrator;
+import br.com.libraryapi.libraryapi.datasource.ShardedBookRepositoryInterceptor;
+import br.com.libraryapi.libraryapi.repositories.BookRepository;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Shards de livros pelo hash do ISBN (com {@code library.sharding.enabled=true}):
+ * o shard 0 é a base de {@code spring.datasource.*}, que também guarda a
+ * sequência de IDs, e cada URL de {@code library.sharding.urls} é mais um
+ * shard com as mesmas configurações, credenciais e driver. O
+ * {@link ShardedBookRepositoryInterceptor} escolhe o shard de cada operação
+ * do {@code BookRepository} e o {@link ShardRoutingDataSource} entrega a
+ * conexão dele, atrás de um {@link LazyRoutingDataSource}; os pools dos shards
+ * não são beans.
+ * 
+ * Não combina com as réplicas de leitura (ver {@link ReadReplicaConfig}) e
+ * exige {@code spring.jpa.open-in-view=false}: com a sessão aberta durante a
+ * requisição inteira, livros de shards diferentes passariam pelo mesmo
+ * contexto de persistência.
+ */
+@Configuration
+@ConditionalOnProperty(name="library.sharding.enabled", havingValue="true")
+public class ShardingConfig {
+	
+	@Bean
+	public ShardLayout shardLayout(@Value("${library.sharding.urls}") List<String> urls,
+			@Value("${library.sharding.previous-count:0}") int previousCount,
+			@Value("${spring.jpa.open-in-view:true}") boolean openInView) {
+		if(openInView) {
+			throw new IllegalStateException("library.sharding.enabled=true exige spring.jpa.open-in-view=false");
+		}
+		int shardCount = urls.size() + 1;
+		return new ShardLayout(shardCount, previousCount > 0 ? previousCount : shardCount);
+	}
+	
+	//Único DataSource do contexto: os pools ficam dentro dele (ver LazyRoutingDataSource)
+	@Bean(destroyMethod="close")
+	@Primary
+	public LazyRoutingDataSource dataSource(DataSourceProperties properties, Environment environment,
+			@Value("${library.sharding.urls}") List<String> urls) {
+		//Mesmo binding do pool criado pelo DataSourceAutoConfiguration
+		HikariDataSource home = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+		Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(home));
+		String poolName = home.getPoolName() != null ? home.getPoolName() : "library";
+		List<DataSource> shards = new ArrayList<>();
+		shards.add(home);
+		for(String url : urls) {
+			HikariConfig config = new HikariConfig();
+			home.copyStateTo(config);
+			config.setJdbcUrl(url);
+			config.setPoolName(poolName + "-shard-" + shards.size());
+			shards.add(new HikariDataSource(config));
+		}
+		//Adia a escolha do shard até o primeiro comando (ver ShardRoutingDataSource)
+		return new LazyRoutingDataSource(new ShardRoutingDataSource(shards));
+	}
+	
+	//Fora do dataSource: o MeterRegistry aplica os binders do JPA, que dependem do dataSource
+	@Bean
+	public MeterBinder shardMetrics(DataSource dataSource) {
+		return registry -> {
+			ShardRoutingDataSource shards = unwrap(dataSource);
+			for(int i = 0; i < shards.getShardCount(); i++) {
+				//Métricas hikaricp.* que o Spring Boot só registra para pools que são beans
+				((HikariDataSource) shards.shard(i)).setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+			}
+		};
+	}
+	
+	@Bean
+	public HibernatePropertiesCustomizer shardSchemaCustomizer(ShardLayout shardLayout) {
+		return properties -> properties.put(EntityManagerFactoryBuilderImpl.INTEGRATOR_PROVIDER,
+				(IntegratorProvider) () -> Collections.singletonList(new ShardSchemaIntegrator(shardLayout.getShardCount())));
+	}
+	
+	@Bean(destroyMethod="shutdownNow")
+	public ExecutorService shardScatterExecutor(@Value("${library.sharding.scatter-threads:16}") int threads) {
+		AtomicInteger count = new AtomicInteger();
+		return Executors.newFixedThreadPool(threads, task -> {
+			Thread thread = new Thread(task, "shard-scatter-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+	
+	@Bean
+	public ShardedBookRepositoryInterceptor shardedBookRepositoryInterceptor(ShardLayout shardLayout, ExecutorService shardScatterExecutor) {
+		return new ShardedBookRepositoryInterceptor(shardLayout, shardScatterExecutor);
+	}
+	
+	@Bean
+	public static BeanPostProcessor shardedBookRepositoryPostProcessor(ObjectProvider<ShardedBookRepositoryInterceptor> interceptor) {
+		return new BeanPostProcessor() {
+			@Override
+			public Object postProcessAfterInitialization(Object bean, String beanName) {
+				if(bean instanceof BookRepository && bean instanceof Advised) {
+					//No início da cadeia, antes da transação do Spring Data: a
+					//conexão só é aberta depois de escolhido o shard
+					ShardedBookRepositoryInterceptor sharding = interceptor.getObject();
+					sharding.setRepository((BookRepository) bean);
+					((Advised) bean).addAdvice(0, sharding);
+				}
+				return bean;
+			}
+		};
+	}
+	
+	@Bean
+	public BookResharder bookResharder(DataSource dataSource, ShardLayout shardLayout,
+			ObjectProvider<EntityManagerFactory> entityManagerFactory,
+			@Value("${library.sharding.resharding.batch-size:500}") int batchSize) {
+		//Consultas em cache (existsByIsbn) podem ter visto o livro no shard antigo
+		return new BookResharder(unwrap(dataSource), shardLayout, batchSize,
+				() -> entityManagerFactory.getObject().unwrap(SessionFactory.class).getCache().evictQueryRegions());
+	}
+	
+	@Bean
+	public ReshardingEndpoint reshardingEndpoint(BookResharder bookResharder, ShardLayout shardLayout) {
+		return new ReshardingEndpoint(bookResharder, shardLayout);
+	}
+	
+	private static ShardRoutingDataSource unwrap(DataSource dataSource) {
+		try {
+			return dataSource.unwrap(ShardRoutingDataSource.class);
+		} catch (SQLException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+}
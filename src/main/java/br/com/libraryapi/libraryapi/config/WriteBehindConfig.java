@@ -0,0 +1,49 @@
+package br.com.libraryapi.libraryapi.config;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import br.com.libraryapi.libraryapi.services.BookService;
+import br.com.libraryapi.libraryapi.services.impl.BookWriteBehind;
+import br.com.libraryapi.libraryapi.services.impl.WriteBehindJournal;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Gravação assíncrona do {@code POST /api/books}, ligada com
+ * {@code library.write-behind.enabled=true}: a criação responde 202 com a URL
+ * de acompanhamento e o livro é gravado em lote por {@link BookWriteBehind}.
+ * Com a fila cheia a resposta é 429 com Retry-After.
+ */
+@Configuration
+@ConditionalOnProperty(name="library.write-behind.enabled", havingValue="true")
+public class WriteBehindConfig {
+	
+	@Bean(destroyMethod="close")
+	public WriteBehindJournal writeBehindJournal(@Value("${library.write-behind.journal:data/write-behind.journal}") String path,
+			@Value("${library.write-behind.fsync:true}") boolean fsync,
+			ObjectMapper objectMapper) throws IOException {
+		return new WriteBehindJournal(Paths.get(path), fsync, objectMapper);
+	}
+	
+	//Regrava o diário da subida anterior sem esperar o primeiro POST
+	@Bean(initMethod="start", destroyMethod="stop")
+	@Lazy(false)
+	public BookWriteBehind bookWriteBehind(BookService service, WriteBehindJournal writeBehindJournal,
+			@Value("${library.write-behind.queue-capacity:10000}") int capacity,
+			@Value("${library.write-behind.batch-size:500}") int batchSize,
+			MeterRegistry registry) {
+		BookWriteBehind writeBehind = new BookWriteBehind(service, writeBehindJournal, capacity, batchSize);
+		Gauge.builder("library.book.write_behind.queue", writeBehind, BookWriteBehind::getQueueSize).register(registry);
+		return writeBehind;
+	}
+
+}
@@ -0,0 +1,74 @@
+package br.com.libraryapi.libraryapi.datasource;
+
+import java.io.Serializable;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.hibernate.HibernateException;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGeneratorHelper;
+import org.hibernate.id.IntegralDataTypeHolder;
+import org.hibernate.id.enhanced.AccessCallback;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.jdbc.AbstractReturningWork;
+
+/**
+ * IDs de livro únicos entre todos os shards: os blocos do otimizador
+ * ({@code increment_size}) saem sempre da sequência do shard
+ * {@link ShardContext#HOME}. Em um insert no próprio shard principal (ou sem
+ * shards) é o {@link SequenceStyleGenerator} de sempre, na conexão da
+ * sessão; nos demais shards o próximo bloco é pedido ao shard principal em
+ * uma conexão à parte, como faz o {@code TableGenerator}, uma vez a cada
+ * {@code increment_size} inserts.
+ * 
+ * Os IDs continuam pequenos e crescentes (sem os 64 bits de um snowflake,
+ * que passariam do maior inteiro exato de um número JSON) e o batch de
+ * inserts, que o IDENTITY desabilitaria, continua funcionando.
+ */
+public class BookIdGenerator extends SequenceStyleGenerator {
+	
+	@Override
+	public Serializable generate(SharedSessionContractImplementor session, Object object) throws HibernateException {
+		if(ShardContext.current() == ShardContext.HOME) {
+			return super.generate(session, object);
+		}
+		return getOptimizer().generate(new HomeShardCallback(session));
+	}
+	
+	private class HomeShardCallback implements AccessCallback {
+		
+		private final SharedSessionContractImplementor session;
+		
+		private HomeShardCallback(SharedSessionContractImplementor session) {
+			this.session = session;
+		}
+		
+		@Override
+		public IntegralDataTypeHolder getNextValue() {
+			String sql = session.getFactory().getJdbcServices().getDialect().getSequenceNextValString(getDatabaseStructure().getName());
+			return ShardContext.call(ShardContext.HOME, () -> session.getTransactionCoordinator()
+					.createIsolationDelegate()
+					.delegateWork(new AbstractReturningWork<IntegralDataTypeHolder>() {
+						@Override
+						public IntegralDataTypeHolder execute(Connection connection) throws SQLException {
+							try(PreparedStatement statement = connection.prepareStatement(sql);
+									ResultSet rs = statement.executeQuery()) {
+								rs.next();
+								IntegralDataTypeHolder value = IdentifierGeneratorHelper.getIntegralDataTypeHolder(getIdentifierType().getReturnedClass());
+								value.initialize(rs, 1);
+								return value;
+							}
+						}
+					}, true));
+		}
+		
+		@Override
+		public String getTenantIdentifier() {
+			return session.getTenantIdentifier();
+		}
+	
+	}
+
+}
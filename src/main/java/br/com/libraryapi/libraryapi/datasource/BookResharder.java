@@ -0,0 +1,228 @@
+package br.com.libraryapi.libraryapi.datasource;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Move os livros para o shard calculado com a contagem atual de shards, com a
+ * aplicação no ar. Roda depois que todas as instâncias sobem com os shards
+ * novos e {@code library.sharding.previous-count} com a contagem antiga;
+ * até o fim, o {@link ShardedBookRepositoryInterceptor} procura os livros
+ * nos dois lugares ({@link ShardLayout}).
+ * 
+ * Cada shard antigo é percorrido em lotes por ID. O lote fica bloqueado
+ * ({@code select ... for update}) enquanto os livros fora do lugar são
+ * copiados, com o mesmo ID e versão, para o shard novo e apagados do antigo;
+ * um PUT ou PATCH concorrente no shard antigo espera o lote e depois falha
+ * pela versão (412), e a nova tentativa já encontra o livro no shard novo. Se
+ * o processo cair entre a cópia e a remoção, a próxima execução não copia de
+ * novo o que já está no destino. A cópia é feita em JDBC, fora do Hibernate:
+ * mudar o livro de shard não é uma alteração e não vai para o feed.
+ * 
+ * Com tudo movido, a contagem anterior passa a ser a atual nesta instância;
+ * as demais deixam de procurar no shard antigo quando subirem sem
+ * {@code previous-count}.
+ */
+public class BookResharder {
+	
+	private static final Logger log = LoggerFactory.getLogger(BookResharder.class);
+	
+	public enum State {
+		IDLE, RUNNING, DONE, FAILED
+	}
+	
+	private final ShardRoutingDataSource shards;
+	private final ShardLayout layout;
+	private final int batchSize;
+	//Depois de cada lote movido: o query cache não sabe das alterações feitas em JDBC
+	private final Runnable afterMove;
+	
+	private volatile State state = State.IDLE;
+	private volatile String failure;
+	private final AtomicLong scanned = new AtomicLong();
+	private final AtomicLong moved = new AtomicLong();
+	
+	public BookResharder(ShardRoutingDataSource shards, ShardLayout layout, int batchSize, Runnable afterMove) {
+		this.shards = shards;
+		this.layout = layout;
+		this.batchSize = batchSize;
+		this.afterMove = afterMove;
+	}
+	
+	/**
+	 * Inicia o resharding em segundo plano. Retorna {@code false} se já está
+	 * rodando ou não há resharding pendente.
+	 */
+	public synchronized boolean start() {
+		if(state == State.RUNNING || !layout.isResharding()) {
+			return false;
+		}
+		state = State.RUNNING;
+		Thread worker = new Thread(() -> {
+			try {
+				run();
+			} catch (SQLException | RuntimeException e) {
+				log.error("Falha no resharding; pode ser retomado com uma nova execução", e);
+			}
+		}, "book-resharder");
+		worker.setDaemon(true);
+		worker.start();
+		return true;
+	}
+	
+	/**
+	 * Executa o resharding na thread atual e retorna a quantidade de livros
+	 * movidos.
+	 */
+	public long run() throws SQLException {
+		state = State.RUNNING;
+		failure = null;
+		scanned.set(0);
+		moved.set(0);
+		try {
+			log.info("Resharding de {} para {} shards iniciado", layout.getPreviousCount(), layout.getShardCount());
+			for(int source = 0; source < layout.getPreviousCount(); source++) {
+				long afterId = 0;
+				List<Long> batch;
+				do {
+					batch = moveBatch(source, afterId);
+					if(!batch.isEmpty()) {
+						afterId = batch.get(batch.size() - 1);
+					}
+				} while(batch.size() == batchSize);
+			}
+			layout.finishResharding();
+			state = State.DONE;
+			log.info("Resharding concluído: {} livros lidos, {} movidos", scanned.get(), moved.get());
+			return moved.get();
+		} catch (SQLException | RuntimeException e) {
+			state = State.FAILED;
+			failure = e.toString();
+			throw e;
+		}
+	}
+	
+	public State getState() {
+		return state;
+	}
+	
+	public String getFailure() {
+		return failure;
+	}
+	
+	public long getScanned() {
+		return scanned.get();
+	}
+	
+	public long getMoved() {
+		return moved.get();
+	}
+	
+	//Move os livros fora do lugar de um lote e retorna os IDs lidos
+	private List<Long> moveBatch(int source, long afterId) throws SQLException {
+		try(Connection connection = shards.shard(source).getConnection()) {
+			connection.setAutoCommit(false);
+			try {
+				List<Object[]> rows = new ArrayList<>();
+				try(PreparedStatement select = connection.prepareStatement(
+						"select id, title, author, isbn, version from book where id > ? order by id limit ? for update")) {
+					select.setLong(1, afterId);
+					select.setInt(2, batchSize);
+					try(ResultSet rs = select.executeQuery()) {
+						while(rs.next()) {
+							rows.add(new Object[] { rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4), rs.getObject(5) });
+						}
+					}
+				}
+				Map<Integer, List<Object[]>> byTarget = rows.stream()
+						.filter(row -> layout.shardOf((String) row[3]) != source)
+						.collect(Collectors.groupingBy(row -> layout.shardOf((String) row[3]), LinkedHashMap::new, Collectors.toList()));
+				for(Map.Entry<Integer, List<Object[]>> target : byTarget.entrySet()) {
+					copy(target.getKey(), target.getValue());
+				}
+				try(PreparedStatement delete = connection.prepareStatement("delete from book where id = ?")) {
+					for(List<Object[]> misplaced : byTarget.values()) {
+						for(Object[] row : misplaced) {
+							delete.setLong(1, (Long) row[0]);
+							delete.addBatch();
+						}
+					}
+					delete.executeBatch();
+				}
+				connection.commit();
+				
+				int count = byTarget.values().stream().mapToInt(List::size).sum();
+				scanned.addAndGet(rows.size());
+				moved.addAndGet(count);
+				if(count > 0) {
+					afterMove.run();
+				}
+				return rows.stream().map(row -> (Long) row[0]).collect(Collectors.toList());
+			} catch (SQLException | RuntimeException e) {
+				connection.rollback();
+				throw e;
+			}
+		}
+	}
+	
+	private void copy(int target, List<Object[]> rows) throws SQLException {
+		try(Connection connection = shards.shard(target).getConnection()) {
+			connection.setAutoCommit(false);
+			try {
+				//Já copiados por uma execução interrompida: a cópia do destino pode até ser mais nova
+				Set<Long> present = existing(connection, rows.stream().map(row -> (Long) row[0]).collect(Collectors.toList()));
+				try(PreparedStatement insert = connection.prepareStatement(
+						"insert into book (id, title, author, isbn, version) values (?, ?, ?, ?, ?)")) {
+					for(Object[] row : rows) {
+						if(present.contains(row[0])) {
+							continue;
+						}
+						for(int i = 0; i < row.length; i++) {
+							insert.setObject(i + 1, row[i]);
+						}
+						insert.addBatch();
+					}
+					insert.executeBatch();
+				}
+				connection.commit();
+			} catch (SQLException | RuntimeException e) {
+				connection.rollback();
+				throw e;
+			}
+		}
+	}
+	
+	private static Set<Long> existing(Connection connection, List<Long> ids) throws SQLException {
+		if(ids.isEmpty()) {
+			return Collections.emptySet();
+		}
+		String placeholders = ids.stream().map(id -> "?").collect(Collectors.joining(","));
+		Set<Long> existing = new HashSet<>();
+		try(PreparedStatement select = connection.prepareStatement("select id from book where id in (" + placeholders + ")")) {
+			for(int i = 0; i < ids.size(); i++) {
+				select.setLong(i + 1, ids.get(i));
+			}
+			try(ResultSet rs = select.executeQuery()) {
+				while(rs.next()) {
+					existing.add(rs.getLong(1));
+				}
+			}
+		}
+		return existing;
+	}
+
+}
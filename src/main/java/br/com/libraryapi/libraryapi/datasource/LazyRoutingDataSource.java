@@ -0,0 +1,36 @@
+package br.com.libraryapi.libraryapi.datasource;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+/**
+ * {@link LazyConnectionDataSourceProxy} na frente de um roteador de pools
+ * ({@link ReplicaRoutingDataSource}, {@link ShardRoutingDataSource}): adia a
+ * escolha do pool até o primeiro comando e fecha os pools do roteador no
+ * desligamento.
+ * 
+ * É o único {@link DataSource} do contexto com réplicas ou shards. Os pools e
+ * o roteador são criados dentro dele e não viram beans: o Spring Boot
+ * inicializa o schema assim que vê um {@code DataSource} pronto e, se fosse
+ * um dos pools, pediria o {@code DataSource} principal enquanto ele ainda
+ * está sendo criado (referência circular). O roteador continua acessível por
+ * {@link #unwrap}.
+ */
+public class LazyRoutingDataSource extends LazyConnectionDataSourceProxy implements Closeable {
+	
+	public LazyRoutingDataSource(DataSource router) {
+		super(router);
+	}
+	
+	@Override
+	public void close() throws IOException {
+		if(getTargetDataSource() instanceof Closeable) {
+			((Closeable) getTargetDataSource()).close();
+		}
+	}
+
+}
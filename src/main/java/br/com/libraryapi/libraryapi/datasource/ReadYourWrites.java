@@ -0,0 +1,79 @@
+package br.com.libraryapi.libraryapi.datasource;
+
+import java.time.Duration;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * Leitura das próprias escritas com réplicas: depois que uma transação de
+ * escrita de um cliente é confirmada, as leituras desse cliente vão ao
+ * primário durante {@code window}, tempo em que a réplica já deve ter
+ * recebido a alteração.
+ * 
+ * O cliente é identificado pelo cabeçalho {@code clientHeader} ou, sem ele,
+ * pelo endereço de origem da requisição. Atrás de um proxy sem o cabeçalho,
+ * todos os clientes compartilham o mesmo endereço: qualquer escrita manda
+ * todas as leituras ao primário durante a janela, o que é seguro, mas tira a
+ * carga das réplicas. Fora de uma requisição (tarefas em segundo plano) não
+ * há cliente e a proteção não se aplica.
+ */
+public class ReadYourWrites {
+	
+	private final String clientHeader;
+	
+	//Clientes com escrita confirmada dentro da janela
+	private final Cache<String, Boolean> recentWrites;
+	
+	public ReadYourWrites(String clientHeader, Duration window, long maximumClients) {
+		this.clientHeader = clientHeader;
+		this.recentWrites = Caffeine.newBuilder()
+				.expireAfterWrite(window)
+				.maximumSize(maximumClients)
+				.build();
+	}
+	
+	/**
+	 * Se a requisição em andamento é de um cliente que escreveu há pouco.
+	 */
+	public boolean requiresPrimary() {
+		String client = currentClient();
+		return client != null && recentWrites.getIfPresent(client) != null;
+	}
+	
+	/**
+	 * Chamado ao abrir uma conexão de escrita: registra o cliente quando a
+	 * transação for confirmada.
+	 */
+	public void writing() {
+		String client = currentClient();
+		if(client == null || !TransactionSynchronizationManager.isSynchronizationActive()) {
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCommit() {
+				recentWrites.put(client, Boolean.TRUE);
+			}
+		});
+	}
+	
+	private String currentClient() {
+		RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+		if(!(attributes instanceof ServletRequestAttributes)) {
+			return null;
+		}
+		HttpServletRequest request = ((ServletRequestAttributes) attributes).getRequest();
+		String client = request.getHeader(clientHeader);
+		return client != null && !client.isEmpty() ? client : request.getRemoteAddr();
+	}
+
+}
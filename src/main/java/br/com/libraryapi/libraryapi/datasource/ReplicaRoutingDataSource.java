@@ -0,0 +1,172 @@
+package br.com.libraryapi.libraryapi.datasource;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Envia as conexões de transações somente leitura
+ * ({@code @Transactional(readOnly = true)}, como as consultas do Spring Data)
+ * às réplicas, em rodízio, e as demais ao primário.
+ * 
+ * Precisa ficar atrás de um {@code LazyConnectionDataSourceProxy}: o
+ * gerenciador de transações pede a conexão antes de marcar a transação como
+ * somente leitura, e o proxy adia a escolha até o primeiro comando SQL.
+ * 
+ * Também vão ao primário as leituras de um cliente logo depois de uma escrita
+ * dele ({@link ReadYourWrites}) e todas as leituras quando nenhuma réplica
+ * está saudável. Uma réplica que falha ao entregar uma conexão sai do rodízio
+ * na hora (a leitura segue no primário) e volta quando a verificação
+ * periódica consegue validar uma conexão dela.
+ * 
+ * Os pools do primário e das réplicas pertencem a ele e são fechados no
+ * {@link #close}.
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource implements Closeable {
+	
+	private static final Logger log = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+	
+	private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+	
+	private final DataSource primary;
+	private final List<Replica> replicas;
+	private final ReadYourWrites readYourWrites;
+	private final AtomicInteger next = new AtomicInteger();
+	private final ScheduledExecutorService healthCheck;
+	
+	public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, ReadYourWrites readYourWrites, long healthCheckIntervalMillis) {
+		this.primary = primary;
+		this.replicas = replicas.stream().map(Replica::new).collect(Collectors.toList());
+		this.readYourWrites = readYourWrites;
+		this.healthCheck = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "replica-health-check");
+			thread.setDaemon(true);
+			return thread;
+		});
+		healthCheck.scheduleWithFixedDelay(this::checkHealth, healthCheckIntervalMillis, healthCheckIntervalMillis, TimeUnit.MILLISECONDS);
+	}
+	
+	@Override
+	public Connection getConnection() throws SQLException {
+		if(!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+			readYourWrites.writing();
+			return primary.getConnection();
+		}
+		if(readYourWrites.requiresPrimary()) {
+			return primary.getConnection();
+		}
+		Replica replica = nextHealthy();
+		while(replica != null) {
+			try {
+				return replica.dataSource.getConnection();
+			} catch (SQLException e) {
+				replica.down(e);
+				replica = nextHealthy();
+			}
+		}
+		return primary.getConnection();
+	}
+	
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		throw new UnsupportedOperationException("Usuário e senha são os de cada pool");
+	}
+	
+	public DataSource getPrimary() {
+		return primary;
+	}
+	
+	public DataSource getReplica(int replica) {
+		return replicas.get(replica).dataSource;
+	}
+	
+	public int getReplicaCount() {
+		return replicas.size();
+	}
+	
+	public boolean isHealthy(int replica) {
+		return replicas.get(replica).healthy;
+	}
+	
+	/**
+	 * Valida uma conexão de cada réplica e atualiza quais estão no rodízio.
+	 */
+	public void checkHealth() {
+		for(Replica replica : replicas) {
+			try(Connection connection = replica.dataSource.getConnection()) {
+				if(connection.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+					replica.up();
+				} else {
+					replica.down(null);
+				}
+			} catch (SQLException | RuntimeException e) {
+				replica.down(e);
+			}
+		}
+	}
+	
+	@Override
+	public void close() throws IOException {
+		healthCheck.shutdownNow();
+		if(primary instanceof Closeable) {
+			((Closeable) primary).close();
+		}
+		for(Replica replica : replicas) {
+			if(replica.dataSource instanceof Closeable) {
+				((Closeable) replica.dataSource).close();
+			}
+		}
+	}
+	
+	private Replica nextHealthy() {
+		int size = replicas.size();
+		int start = Math.floorMod(next.getAndIncrement(), Math.max(1, size));
+		for(int i = 0; i < size; i++) {
+			Replica replica = replicas.get((start + i) % size);
+			if(replica.healthy) {
+				return replica;
+			}
+		}
+		return null;
+	}
+	
+	private static class Replica {
+		
+		private final DataSource dataSource;
+		private volatile boolean healthy = true;
+		
+		private Replica(DataSource dataSource) {
+			this.dataSource = dataSource;
+		}
+		
+		private void up() {
+			if(!healthy) {
+				log.info("Réplica {} de volta ao rodízio de leituras", dataSource);
+				healthy = true;
+			}
+		}
+		
+		private void down(Exception cause) {
+			if(healthy) {
+				log.warn("Réplica {} fora do rodízio de leituras; leituras seguem no primário", dataSource, cause);
+				healthy = false;
+			}
+		}
+	
+	}
+
+}
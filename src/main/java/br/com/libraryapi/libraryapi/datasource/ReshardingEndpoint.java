@@ -0,0 +1,47 @@
+package br.com.libraryapi.libraryapi.datasource;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+
+/**
+ * {@code /actuator/resharding}: GET mostra o andamento do
+ * {@link BookResharder} e POST o inicia em segundo plano.
+ */
+@Endpoint(id="resharding")
+public class ReshardingEndpoint {
+	
+	private final BookResharder resharder;
+	private final ShardLayout layout;
+	
+	public ReshardingEndpoint(BookResharder resharder, ShardLayout layout) {
+		this.resharder = resharder;
+		this.layout = layout;
+	}
+	
+	@ReadOperation
+	public Map<String, Object> status() {
+		Map<String, Object> status = new LinkedHashMap<>();
+		status.put("shards", layout.getShardCount());
+		status.put("previousShards", layout.getPreviousCount());
+		status.put("state", resharder.getState());
+		status.put("scanned", resharder.getScanned());
+		status.put("moved", resharder.getMoved());
+		if(resharder.getFailure() != null) {
+			status.put("failure", resharder.getFailure());
+		}
+		return status;
+	}
+	
+	@WriteOperation
+	public Map<String, Object> start() {
+		boolean started = resharder.start();
+		Map<String, Object> status = status();
+		status.put("started", started);
+		return status;
+	}
+
+}
@@ -0,0 +1,120 @@
+package br.com.libraryapi.libraryapi.datasource;
+
+import java.util.function.Supplier;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Shard usado pela thread atual, lido pelo {@link ShardRoutingDataSource} ao
+ * abrir uma conexão.
+ * 
+ * O shard fixado com {@link #call} vale até o fim da chamada. Uma operação
+ * roteada dentro de uma transação prende a transação ao seu shard
+ * ({@link #bindToTransaction}): o flush do commit, fora da chamada, ainda vai
+ * ao shard certo, e operações em outro shard na mesma transação falham em vez
+ * de ler ou gravar no shard errado. Sem shard fixado nem transação presa,
+ * vale o {@link #HOME}, que também guarda a sequência de IDs (ver
+ * {@link BookIdGenerator}).
+ */
+public final class ShardContext {
+	
+	public static final int HOME = 0;
+	
+	private static final ThreadLocal<Integer> pinned = new ThreadLocal<>();
+	
+	//Chave do shard da transação no TransactionSynchronizationManager
+	private static final Object TRANSACTION_KEY = ShardContext.class.getName() + ".transaction";
+	
+	private ShardContext() {
+	
+	}
+	
+	public static int current() {
+		Integer shard = pinned.get();
+		if(shard == null) {
+			shard = transactionShard();
+		}
+		return shard == null ? HOME : shard;
+	}
+	
+	public static boolean isPinned() {
+		return pinned.get() != null;
+	}
+	
+	/**
+	 * Executa {@code action} com a thread fixada em {@code shard}.
+	 */
+	public static <T> T call(int shard, Supplier<T> action) {
+		Integer previous = pinned.get();
+		pinned.set(shard);
+		try {
+			return action.get();
+		} finally {
+			restore(previous);
+		}
+	}
+	
+	/**
+	 * Fixa a thread em {@code shard} e retorna o shard anterior, a ser
+	 * devolvido com {@link #restore}.
+	 */
+	public static Integer pin(int shard) {
+		Integer previous = pinned.get();
+		pinned.set(shard);
+		return previous;
+	}
+	
+	public static void restore(Integer previous) {
+		if(previous == null) {
+			pinned.remove();
+		} else {
+			pinned.set(previous);
+		}
+	}
+	
+	/**
+	 * Shard da transação em andamento, ou {@code null} se nenhuma operação
+	 * roteada a prendeu (ou não há transação).
+	 */
+	public static Integer transactionShard() {
+		return (Integer) TransactionSynchronizationManager.getResource(TRANSACTION_KEY);
+	}
+	
+	/**
+	 * Prende a transação em andamento a {@code shard}. Sem transação, não faz
+	 * nada.
+	 *
+	 * @throws IllegalStateException se a transação já usa outro shard
+	 */
+	public static void bindToTransaction(int shard) {
+		if(!TransactionSynchronizationManager.isActualTransactionActive() || !TransactionSynchronizationManager.isSynchronizationActive()) {
+			return;
+		}
+		Integer bound = transactionShard();
+		if(bound != null) {
+			if(bound != shard) {
+				throw new IllegalStateException("A transação já usa o shard " + bound + " e não pode acessar o shard " + shard);
+			}
+			return;
+		}
+		TransactionSynchronizationManager.bindResource(TRANSACTION_KEY, shard);
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void suspend() {
+				TransactionSynchronizationManager.unbindResource(TRANSACTION_KEY);
+			}
+			
+			@Override
+			public void resume() {
+				TransactionSynchronizationManager.bindResource(TRANSACTION_KEY, shard);
+			}
+			
+			@Override
+			public void afterCompletion(int status) {
+				TransactionSynchronizationManager.unbindResourceIfPossible(TRANSACTION_KEY);
+			}
+		});
+	}
+
+}
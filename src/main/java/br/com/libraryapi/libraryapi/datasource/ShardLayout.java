@@ -0,0 +1,78 @@
+package br.com.libraryapi.libraryapi.datasource;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Distribuição dos livros entre os shards pelo hash do ISBN, com jump
+ * consistent hash (Lamping e Veach): ao passar de N para N+k shards, só os
+ * livros que vão para os shards novos mudam de lugar, e nenhum troca entre
+ * shards antigos.
+ * 
+ * Durante um resharding ({@code previousCount} menor que o total de shards)
+ * os livros ainda não movidos estão no shard calculado com a contagem
+ * anterior: leituras por ISBN e a verificação de duplicidade consultam os
+ * dois lugares até o {@link BookResharder} terminar.
+ */
+public class ShardLayout {
+	
+	private final int shardCount;
+	private volatile int previousCount;
+	
+	public ShardLayout(int shardCount, int previousCount) {
+		if(previousCount < 1 || previousCount > shardCount) {
+			throw new IllegalArgumentException("A contagem anterior de shards deve estar entre 1 e " + shardCount);
+		}
+		this.shardCount = shardCount;
+		this.previousCount = previousCount;
+	}
+	
+	public int getShardCount() {
+		return shardCount;
+	}
+	
+	public int getPreviousCount() {
+		return previousCount;
+	}
+	
+	public boolean isResharding() {
+		return previousCount != shardCount;
+	}
+	
+	public void finishResharding() {
+		previousCount = shardCount;
+	}
+	
+	public int shardOf(String isbn) {
+		return isbn == null ? ShardContext.HOME : jump(hash(isbn), shardCount);
+	}
+	
+	/**
+	 * Shard do ISBN antes do resharding em andamento; sem resharding, o
+	 * mesmo de {@link #shardOf}.
+	 */
+	public int previousShardOf(String isbn) {
+		return isbn == null ? ShardContext.HOME : jump(hash(isbn), previousCount);
+	}
+	
+	//FNV-1a de 64 bits: estável entre JVMs e versões, ao contrário de um hash de biblioteca
+	static long hash(String isbn) {
+		long hash = 0xcbf29ce484222325L;
+		for(byte b : isbn.getBytes(StandardCharsets.UTF_8)) {
+			hash ^= b & 0xff;
+			hash *= 0x100000001b3L;
+		}
+		return hash;
+	}
+	
+	static int jump(long key, int buckets) {
+		long bucket = -1;
+		long next = 0;
+		while(next < buckets) {
+			bucket = next;
+			key = key * 2862933555777941757L + 1;
+			next = (long) ((bucket + 1) * ((double) (1L << 31) / (double) ((key >>> 33) + 1)));
+		}
+		return (int) bucket;
+	}
+
+}
@@ -0,0 +1,55 @@
+package br.com.libraryapi.libraryapi.datasource;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+/**
+ * Entrega conexões do shard de {@link ShardContext#current()}. Como no
+ * {@link ReplicaRoutingDataSource}, fica atrás de um
+ * {@code LazyConnectionDataSourceProxy}: a transação pode começar antes de
+ * se saber o shard (um {@code @Transactional} que busca o livro pelo ID), e a
+ * conexão só é aberta no primeiro comando, já com o shard definido.
+ */
+public class ShardRoutingDataSource extends AbstractDataSource implements Closeable {
+	
+	private final List<DataSource> shards;
+	
+	public ShardRoutingDataSource(List<DataSource> shards) {
+		this.shards = shards;
+	}
+	
+	@Override
+	public Connection getConnection() throws SQLException {
+		return shard(ShardContext.current()).getConnection();
+	}
+	
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		throw new UnsupportedOperationException("Usuário e senha são os de cada pool");
+	}
+	
+	public DataSource shard(int shard) {
+		return shards.get(shard);
+	}
+	
+	public int getShardCount() {
+		return shards.size();
+	}
+	
+	@Override
+	public void close() throws IOException {
+		for(DataSource shard : shards) {
+			if(shard instanceof Closeable) {
+				((Closeable) shard).close();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,46 @@
+package br.com.libraryapi.libraryapi.datasource;
+
+import org.hibernate.boot.Metadata;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.hibernate.tool.schema.spi.SchemaManagementToolCoordinator;
+
+/**
+ * Aplica o {@code hibernate.hbm2ddl.auto} também nos shards além do
+ * principal, que o Hibernate trata sozinho. Sem {@code hbm2ddl.auto} (o
+ * padrão fora de bases embarcadas) não faz nada: o schema de cada shard é
+ * criado por fora, como o do principal.
+ * 
+ * O drop do {@code create-drop} fica só no shard principal.
+ */
+public class ShardSchemaIntegrator implements Integrator {
+	
+	private final int shards;
+	
+	public ShardSchemaIntegrator(int shards) {
+		this.shards = shards;
+	}
+	
+	@Override
+	public void integrate(Metadata metadata, SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+		for(int shard = 0; shard < shards; shard++) {
+			if(shard == ShardContext.HOME) {
+				continue;
+			}
+			ShardContext.call(shard, () -> {
+				SchemaManagementToolCoordinator.process(metadata, serviceRegistry,
+						serviceRegistry.getService(ConfigurationService.class).getSettings(),
+						action -> { });
+				return null;
+			});
+		}
+	}
+	
+	@Override
+	public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+	
+	}
+
+}
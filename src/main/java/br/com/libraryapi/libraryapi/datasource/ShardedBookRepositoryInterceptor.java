@@ -0,0 +1,410 @@
+package br.com.libraryapi.libraryapi.datasource;
+
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.ProxyMethodInvocation;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import br.com.libraryapi.libraryapi.domain.Book;
+import br.com.libraryapi.libraryapi.repositories.BookRepository;
+import br.com.libraryapi.libraryapi.repositories.BookSpecifications;
+
+/**
+ * Camada de shards do {@code BookRepository}, no início da cadeia de
+ * interceptors do proxy (ver {@code ShardingConfig}):
+ * <ul>
+ * <li>operações de um livro (save, delete, busca e verificação por ISBN) vão
+ * ao shard do ISBN ({@link ShardLayout}) e participam da transação de quem
+ * chamou;</li>
+ * <li>o ID não diz o shard: findById, existsById e findAllById consultam
+ * todos os shards em paralelo (scatter-gather). Dentro de uma transação, o
+ * findById primeiro localiza o shard e depois busca nele, para que a
+ * entidade fique gerenciada pela transação (como no PATCH);</li>
+ * <li>listagens e contagens juntam os resultados de todos os shards pelo ID;
+ * os streams percorrem os shards em lotes ordenados pelo ID, cada um em uma
+ * transação própria, em vez de manter um cursor aberto por shard.</li>
+ * </ul>
+ * As consultas espalhadas rodam em {@code executor}, cada uma com a sua
+ * transação, e não enxergam alterações ainda não confirmadas de quem chamou.
+ * Operações não listadas aqui falham com
+ * {@link UnsupportedOperationException}.
+ */
+public class ShardedBookRepositoryInterceptor implements MethodInterceptor {
+	
+	private static final int STREAM_BATCH_SIZE = 1000;
+	
+	private final ShardLayout layout;
+	private final ExecutorService executor;
+	//O próprio proxy, para as consultas feitas nas pernas
+	private BookRepository repo;
+	
+	public ShardedBookRepositoryInterceptor(ShardLayout layout, ExecutorService executor) {
+		this.layout = layout;
+		this.executor = executor;
+	}
+	
+	public void setRepository(BookRepository repo) {
+		this.repo = repo;
+	}
+	
+	@Override
+	@SuppressWarnings("unchecked")
+	public Object invoke(MethodInvocation invocation) throws Throwable {
+		if(ShardContext.isPinned() || invocation.getMethod().getDeclaringClass() == Object.class) {
+			//Perna de uma consulta espalhada ou chamada já roteada
+			return invocation.proceed();
+		}
+		Object[] args = invocation.getArguments();
+		switch(invocation.getMethod().getName()) {
+		case "save":
+		case "delete":
+			return onShard(shardOfStored((Book) args[0]), invocation);
+		case "saveAll":
+			return saveAll(invocation, (Iterable<Book>) args[0]);
+		case "existsByIsbn":
+			return existsByIsbn(invocation, (String) args[0]);
+		case "findByIsbn":
+			return findByIsbn(invocation, (String) args[0]);
+		case "findExistingIsbns":
+			return findExistingIsbns(invocation, (Collection<String>) args[0]);
+		case "findById":
+			return findById(invocation, (Long) args[0]);
+		case "existsById":
+			return scatter(invocation).contains(Boolean.TRUE);
+		case "findAllById":
+			return findAllById(invocation);
+		case "findOrderedById":
+			return findOrderedById(invocation, (Integer) args[1]);
+		case "count":
+			return scatter(invocation).stream().mapToLong(count -> (Long) count).sum();
+		case "flush":
+			Integer bound = ShardContext.transactionShard();
+			return bound == null ? invocation.proceed() : onShard(bound, invocation);
+		case "streamAll":
+		case "streamAllOrderedById":
+			return stream();
+		case "streamAllIsbns":
+			return stream().map(Book::getIsbn);
+		default:
+			throw new UnsupportedOperationException("BookRepository." + invocation.getMethod().getName() + " não é suportado com shards");
+		}
+	}
+	
+	private Object onShard(int shard, MethodInvocation invocation) throws Throwable {
+		ShardContext.bindToTransaction(shard);
+		Integer previous = ShardContext.pin(shard);
+		try {
+			return invocation.proceed();
+		} finally {
+			ShardContext.restore(previous);
+		}
+	}
+	
+	//Um livro já gravado pode estar no shard anterior enquanto o resharding não termina
+	private int shardOfStored(Book book) throws Exception {
+		int shard = layout.shardOf(book.getIsbn());
+		if(book.getId() == null || !layout.isResharding()) {
+			return shard;
+		}
+		int previous = layout.previousShardOf(book.getIsbn());
+		if(previous == shard || call(shard, () -> repo.existsById(book.getId()))) {
+			return shard;
+		}
+		return previous;
+	}
+	
+	private Object saveAll(MethodInvocation invocation, Iterable<Book> books) throws Throwable {
+		Map<Integer, List<Book>> byShard = new LinkedHashMap<>();
+		for(Book book : books) {
+			byShard.computeIfAbsent(shardOfStored(book), shard -> new ArrayList<>()).add(book);
+		}
+		if(byShard.size() <= 1) {
+			int shard = byShard.isEmpty() ? ShardContext.HOME : byShard.keySet().iterator().next();
+			return onShard(shard, invocation);
+		}
+		//Cada shard confirma o seu grupo separadamente
+		Map<Integer, Callable<Object>> legs = new LinkedHashMap<>();
+		byShard.forEach((shard, group) -> legs.put(shard, leg(invocation, group)));
+		List<Book> saved = new ArrayList<>();
+		for(Object group : scatter(legs)) {
+			((Iterable<?>) group).forEach(book -> saved.add((Book) book));
+		}
+		return saved;
+	}
+	
+	private boolean existsByIsbn(MethodInvocation invocation, String isbn) throws Throwable {
+		int shard = layout.shardOf(isbn);
+		if((Boolean) onShard(shard, invocation)) {
+			return true;
+		}
+		int previous = layout.previousShardOf(isbn);
+		//Sem o existsByIsbn: o query cache não distingue o shard da consulta
+		return previous != shard && !call(previous, () -> repo.findExistingIsbns(Collections.singleton(isbn))).isEmpty();
+	}
+	
+	private Optional<?> findByIsbn(MethodInvocation invocation, String isbn) throws Throwable {
+		int shard = layout.shardOf(isbn);
+		Optional<?> book = (Optional<?>) onShard(shard, invocation);
+		int previous = layout.previousShardOf(isbn);
+		if(book.isPresent() || previous == shard) {
+			return book;
+		}
+		return call(previous, () -> repo.findByIsbn(isbn));
+	}
+	
+	@SuppressWarnings("unchecked")
+	private Set<String> findExistingIsbns(MethodInvocation invocation, Collection<String> isbns) throws Throwable {
+		Set<String> existing = new HashSet<>();
+		for(Object found : scatter(invocation, isbns, layout::shardOf)) {
+			existing.addAll((Collection<String>) found);
+		}
+		if(layout.isResharding()) {
+			List<String> missing = isbns.stream()
+					.filter(isbn -> !existing.contains(isbn) && layout.previousShardOf(isbn) != layout.shardOf(isbn))
+					.collect(Collectors.toList());
+			for(Object found : scatter(invocation, missing, layout::previousShardOf)) {
+				existing.addAll((Collection<String>) found);
+			}
+		}
+		return existing;
+	}
+	
+	private Optional<?> findById(MethodInvocation invocation, Long id) throws Throwable {
+		if(TransactionSynchronizationManager.isActualTransactionActive()) {
+			Integer shard = locate(id);
+			return shard == null ? Optional.empty() : (Optional<?>) onShard(shard, invocation);
+		}
+		for(Object book : scatter(invocation)) {
+			if(((Optional<?>) book).isPresent()) {
+				return (Optional<?>) book;
+			}
+		}
+		return Optional.empty();
+	}
+	
+	//Durante o resharding o livro pode estar nos dois shards: o de índice maior é o novo
+	private Integer locate(Long id) throws Exception {
+		Map<Integer, Callable<Boolean>> legs = new LinkedHashMap<>();
+		for(int shard = 0; shard < layout.getShardCount(); shard++) {
+			legs.put(shard, () -> repo.existsById(id));
+		}
+		List<Boolean> found = scatter(legs);
+		for(int shard = found.size() - 1; shard >= 0; shard--) {
+			if(found.get(shard)) {
+				return shard;
+			}
+		}
+		return null;
+	}
+	
+	private List<Book> findAllById(MethodInvocation invocation) throws Throwable {
+		Map<Long, Book> byId = new LinkedHashMap<>();
+		for(Object books : scatter(invocation)) {
+			for(Object book : (Iterable<?>) books) {
+				byId.putIfAbsent(((Book) book).getId(), (Book) book);
+			}
+		}
+		return new ArrayList<>(byId.values());
+	}
+	
+	@SuppressWarnings("unchecked")
+	private List<Book> findOrderedById(MethodInvocation invocation, int limit) throws Throwable {
+		TreeMap<Long, Book> byId = new TreeMap<>();
+		for(Object books : scatter(invocation)) {
+			for(Book book : (List<Book>) books) {
+				byId.putIfAbsent(book.getId(), book);
+			}
+		}
+		return byId.values().stream().limit(limit).collect(Collectors.toList());
+	}
+	
+	private Stream<Book> stream() {
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(new MergedIterator(), Spliterator.ORDERED | Spliterator.NONNULL), false);
+	}
+	
+	//Mesma chamada em todos os shards
+	private List<Object> scatter(MethodInvocation invocation) throws Exception {
+		Map<Integer, Callable<Object>> legs = new LinkedHashMap<>();
+		for(int shard = 0; shard < layout.getShardCount(); shard++) {
+			legs.put(shard, leg(invocation, invocation.getArguments()));
+		}
+		return scatter(legs);
+	}
+	
+	//Mesma chamada com os ISBNs de cada shard
+	private List<Object> scatter(MethodInvocation invocation, Collection<String> isbns, ToIntFunction<String> placement) throws Exception {
+		Map<Integer, List<String>> byShard = isbns.stream().collect(Collectors.groupingBy(placement::applyAsInt));
+		Map<Integer, Callable<Object>> legs = new LinkedHashMap<>();
+		byShard.forEach((shard, group) -> legs.put(shard, leg(invocation, group)));
+		return scatter(legs);
+	}
+	
+	private static Callable<Object> leg(MethodInvocation invocation, Object... args) {
+		MethodInvocation clone = ((ProxyMethodInvocation) invocation).invocableClone(args);
+		return () -> {
+			try {
+				return clone.proceed();
+			} catch (Exception | Error e) {
+				throw e;
+			} catch (Throwable e) {
+				throw new UndeclaredThrowableException(e);
+			}
+		};
+	}
+	
+	private <T> T call(int shard, Callable<T> action) throws Exception {
+		return scatter(Collections.singletonMap(shard, action)).get(0);
+	}
+	
+	//Executa cada perna fixada no seu shard e devolve os resultados na ordem do mapa
+	private <T> List<T> scatter(Map<Integer, Callable<T>> legs) throws Exception {
+		List<Future<T>> futures = new ArrayList<>(legs.size());
+		legs.forEach((shard, action) -> futures.add(executor.submit(() -> {
+			Integer previous = ShardContext.pin(shard);
+			try {
+				return action.call();
+			} finally {
+				ShardContext.restore(previous);
+			}
+		})));
+		List<T> results = new ArrayList<>(futures.size());
+		for(Future<T> future : futures) {
+			try {
+				results.add(future.get());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw e;
+			} catch (ExecutionException e) {
+				if(e.getCause() instanceof Exception) {
+					throw (Exception) e.getCause();
+				}
+				if(e.getCause() instanceof Error) {
+					throw (Error) e.getCause();
+				}
+				throw e;
+			}
+		}
+		return results;
+	}
+	
+	/**
+	 * Junta os livros de todos os shards em ordem de ID, lendo de cada shard um
+	 * lote de cada vez. Um livro em dois shards (resharding em andamento) sai
+	 * uma vez só.
+	 */
+	private class MergedIterator implements Iterator<Book> {
+		
+		private final List<Deque<Book>> buffers = new ArrayList<>();
+		private final Long[] cursors;
+		private final boolean[] exhausted;
+		private Long last;
+		
+		private MergedIterator() {
+			int shards = layout.getShardCount();
+			cursors = new Long[shards];
+			exhausted = new boolean[shards];
+			Map<Integer, Callable<List<Book>>> legs = new LinkedHashMap<>();
+			for(int shard = 0; shard < shards; shard++) {
+				buffers.add(new ArrayDeque<>());
+				legs.put(shard, batch(shard));
+			}
+			List<List<Book>> batches = unchecked(() -> scatter(legs));
+			for(int shard = 0; shard < shards; shard++) {
+				add(shard, batches.get(shard));
+			}
+		}
+		
+		@Override
+		public boolean hasNext() {
+			skipRepeated();
+			return buffers.stream().anyMatch(buffer -> !buffer.isEmpty());
+		}
+		
+		@Override
+		public Book next() {
+			if(!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			int next = -1;
+			for(int shard = 0; shard < buffers.size(); shard++) {
+				Book head = buffers.get(shard).peekFirst();
+				if(head != null && (next < 0 || head.getId() < buffers.get(next).peekFirst().getId())) {
+					next = shard;
+				}
+			}
+			Book book = poll(next);
+			last = book.getId();
+			return book;
+		}
+		
+		private void skipRepeated() {
+			for(int shard = 0; shard < buffers.size(); shard++) {
+				Book head = buffers.get(shard).peekFirst();
+				while(head != null && last != null && head.getId() <= last) {
+					poll(shard);
+					head = buffers.get(shard).peekFirst();
+				}
+			}
+		}
+		
+		private Book poll(int shard) {
+			Book book = buffers.get(shard).pollFirst();
+			if(buffers.get(shard).isEmpty() && !exhausted[shard]) {
+				add(shard, unchecked(() -> call(shard, batch(shard))));
+			}
+			return book;
+		}
+		
+		private Callable<List<Book>> batch(int shard) {
+			Specification<Book> after = BookSpecifications.idGreaterThan(cursors[shard]);
+			return () -> repo.findOrderedById(after, STREAM_BATCH_SIZE);
+		}
+		
+		private void add(int shard, List<Book> batch) {
+			buffers.get(shard).addAll(batch);
+			exhausted[shard] = batch.size() < STREAM_BATCH_SIZE;
+			if(!batch.isEmpty()) {
+				cursors[shard] = batch.get(batch.size() - 1).getId();
+			}
+		}
+	
+	}
+	
+	private static <T> T unchecked(Callable<T> action) {
+		try {
+			return action.call();
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Exception e) {
+			throw new UndeclaredThrowableException(e);
+		}
+	}
+
+}
@@ -1,19 +1,74 @@
 package br.com.libraryapi.libraryapi.domain;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
-import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+import javax.persistence.Version;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+
+/**
+ * Livro do acervo.
+ * 
+ * Fica no cache de segundo nível do Hibernate (região {@value #CACHE_REGION},
+ * configurada em application.conf) com a estratégia READ_WRITE:
+ * <ul>
+ * <li>update/delete bloqueiam a entrada ("soft lock") até o commit; leituras
+ * concorrentes nesse intervalo não usam o cache e vão à base, então nunca
+ * veem um valor não confirmado nem um já sobrescrito.</li>
+ * <li>no commit o update grava o novo estado e o delete remove a entrada. Se
+ * duas transações alteram o mesmo livro ao mesmo tempo, a entrada fica
+ * bloqueada até o timeout do lock e as leituras seguem indo à base; a segunda
+ * gravação falha pelo {@code @Version} (412 na API).</li>
+ * <li>UPDATE/DELETE em JPQL invalidam a região inteira; SQL nativo invalida
+ * todas as regiões.</li>
+ * <li>o cache é local a cada instância: com mais de uma instância da
+ * aplicação, alterações feitas em uma não chegam às outras até a expiração
+ * da entrada. Nesse cenário use um provider JCache distribuído ou desligue o
+ * cache ({@code hibernate.cache.use_second_level_cache=false}).</li>
+ * </ul>
+ * 
+ * Com {@code @DynamicUpdate} o UPDATE inclui apenas as colunas alteradas
+ * (além da versão), o que mantém o PATCH restrito aos campos enviados.
+ */
 @Entity
+@DynamicUpdate
+@Cacheable
+@Cache(usage=CacheConcurrencyStrategy.READ_WRITE, region=Book.CACHE_REGION)
+//Com o ID na chave, o cursor da listagem (id > ?) segue o índice para um valor exato; com prefixo, ver BookSpecifications
+@Table(indexes = {
+		@Index(name="idx_book_title_id", columnList="title, id"),
+		@Index(name="idx_book_author_id", columnList="author, id")
+}, uniqueConstraints = @UniqueConstraint(name="uk_book_isbn", columnNames="isbn"))
 public class Book {
 	
+	public static final String CACHE_REGION = "book";
+	
+	//SEQUENCE com alocação em blocos: IDENTITY desabilita o batch de inserts do
+	//Hibernate. Com shards, os blocos saem todos da sequência do shard principal
+	//(ver BookIdGenerator)
 	@Id
-	@GeneratedValue(strategy=GenerationType.IDENTITY)
+	@GeneratedValue(generator="book_seq")
+	@GenericGenerator(name="book_seq", strategy="br.com.libraryapi.libraryapi.datasource.BookIdGenerator", parameters = {
+			@Parameter(name=SequenceStyleGenerator.SEQUENCE_PARAM, value="book_seq"),
+			@Parameter(name=SequenceStyleGenerator.INCREMENT_PARAM, value="50")
+	})
 	private Long id;
 	private String title;
 	private String author;
 	private String isbn;
+	//Controle de concorrência otimista; também é a base do ETag do recurso
+	@Version
+	private Long version;
 	
 	public Book() {
 		
@@ -26,7 +81,13 @@ public class Book {
 		this.author = author;
 		this.isbn = isbn;
 	}
-
+	
+	//Cópia desligada de qualquer cache ou sessão, inclusive a versão
+	public Book(Book book) {
+		this(book.getId(), book.getTitle(), book.getAuthor(), book.getIsbn());
+		this.version = book.getVersion();
+	}
+	
 	public Long getId() {
 		return id;
 	}
@@ -59,4 +120,12 @@ public class Book {
 		this.isbn = isbn;
 	}
 	
+	public Long getVersion() {
+		return version;
+	}
+	
+	public void setVersion(Long version) {
+		this.version = version;
+	}
+	
 }
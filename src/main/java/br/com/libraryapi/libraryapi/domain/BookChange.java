@@ -0,0 +1,138 @@
+package br.com.libraryapi.libraryapi.domain;
+
+import java.time.Instant;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+
+/**
+ * Alteração de um livro na tabela de saída (outbox) do feed de mudanças.
+ * 
+ * A linha é gravada na mesma transação da alteração do livro (ver
+ * {@code BookChangeOutbox}), sem posição. O relay publica as linhas em ordem
+ * de ID e atribui a cada uma a posição no feed, sequencial e sem buracos, que
+ * é o cursor usado pelos consumidores. O ID não serve como cursor: uma
+ * transação que pegou um ID menor pode terminar depois de outra.
+ */
+@Entity
+@Table(name=BookChange.TABLE, indexes = {
+		@Index(name="idx_book_change_unpublished", columnList="feed_position,id")
+}, uniqueConstraints = @UniqueConstraint(name="uk_book_change_position", columnNames="feed_position"))
+public class BookChange {
+	
+	public static final String TABLE = "book_change";
+	
+	public enum Type {
+		CREATED, UPDATED, DELETED
+	}
+	
+	@Id
+	@GeneratedValue(strategy=GenerationType.IDENTITY)
+	private Long id;
+	//Preenchida pelo relay na publicação
+	@Column(name="feed_position")
+	private Long position;
+	private Long bookId;
+	@Enumerated(EnumType.STRING)
+	private Type type;
+	private String title;
+	private String author;
+	private String isbn;
+	private Long bookVersion;
+	private Instant occurredAt;
+	
+	public BookChange() {
+		
+	}
+	
+	public BookChange(Type type, Book book, Instant occurredAt) {
+		this.type = type;
+		this.bookId = book.getId();
+		this.title = book.getTitle();
+		this.author = book.getAuthor();
+		this.isbn = book.getIsbn();
+		this.bookVersion = book.getVersion();
+		this.occurredAt = occurredAt;
+	}
+	
+	public Long getId() {
+		return id;
+	}
+	
+	public void setId(Long id) {
+		this.id = id;
+	}
+	
+	public Long getPosition() {
+		return position;
+	}
+	
+	public void setPosition(Long position) {
+		this.position = position;
+	}
+	
+	public Long getBookId() {
+		return bookId;
+	}
+	
+	public void setBookId(Long bookId) {
+		this.bookId = bookId;
+	}
+	
+	public Type getType() {
+		return type;
+	}
+	
+	public void setType(Type type) {
+		this.type = type;
+	}
+	
+	public String getTitle() {
+		return title;
+	}
+	
+	public void setTitle(String title) {
+		this.title = title;
+	}
+	
+	public String getAuthor() {
+		return author;
+	}
+	
+	public void setAuthor(String author) {
+		this.author = author;
+	}
+	
+	public String getIsbn() {
+		return isbn;
+	}
+	
+	public void setIsbn(String isbn) {
+		this.isbn = isbn;
+	}
+	
+	public Long getBookVersion() {
+		return bookVersion;
+	}
+	
+	public void setBookVersion(Long bookVersion) {
+		this.bookVersion = bookVersion;
+	}
+	
+	public Instant getOccurredAt() {
+		return occurredAt;
+	}
+	
+	public void setOccurredAt(Instant occurredAt) {
+		this.occurredAt = occurredAt;
+	}
+
+}
@@ -0,0 +1,23 @@
+package br.com.libraryapi.libraryapi.dto;
+
+import java.util.List;
+
+public class BookBatchDTO {
+	
+	private List<BookDTO> books;
+	private List<Long> missing;
+	
+	public BookBatchDTO(List<BookDTO> books, List<Long> missing) {
+		this.books = books;
+		this.missing = missing;
+	}
+
+	public List<BookDTO> getBooks() {
+		return books;
+	}
+
+	public List<Long> getMissing() {
+		return missing;
+	}
+	
+}
@@ -0,0 +1,69 @@
+package br.com.libraryapi.libraryapi.dto;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+public class BookBulkItemDTO {
+	
+	public static final String CREATED = "CREATED";
+	public static final String FAILED = "FAILED";
+	
+	private int index;
+	private String status;
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	private BookDTO book;
+	private List<String> errors;
+	
+	public BookBulkItemDTO() {
+		
+	}
+	
+	public BookBulkItemDTO(int index, String status, BookDTO book, List<String> errors) {
+		this.index = index;
+		this.status = status;
+		this.book = book;
+		this.errors = errors;
+	}
+	
+	public static BookBulkItemDTO created(int index, BookDTO book) {
+		return new BookBulkItemDTO(index, CREATED, book, null);
+	}
+	
+	public static BookBulkItemDTO failed(int index, BookDTO book, List<String> errors) {
+		return new BookBulkItemDTO(index, FAILED, book, errors);
+	}
+
+	public int getIndex() {
+		return index;
+	}
+
+	public void setIndex(int index) {
+		this.index = index;
+	}
+
+	public String getStatus() {
+		return status;
+	}
+
+	public void setStatus(String status) {
+		this.status = status;
+	}
+
+	public BookDTO getBook() {
+		return book;
+	}
+
+	public void setBook(BookDTO book) {
+		this.book = book;
+	}
+
+	public List<String> getErrors() {
+		return errors;
+	}
+
+	public void setErrors(List<String> errors) {
+		this.errors = errors;
+	}
+	
+}
@@ -0,0 +1,44 @@
+package br.com.libraryapi.libraryapi.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class BookBulkResultDTO {
+	
+	private int received;
+	private int created;
+	private int failed;
+	private List<BookBulkItemDTO> results = new ArrayList<>();
+	
+	public void add(BookBulkItemDTO item) {
+		count(item);
+		results.add(item);
+	}
+	
+	//Apenas contabiliza o item, sem guardá-lo nos resultados
+	public void count(BookBulkItemDTO item) {
+		received++;
+		if(BookBulkItemDTO.CREATED.equals(item.getStatus())) {
+			created++;
+		} else {
+			failed++;
+		}
+	}
+
+	public int getReceived() {
+		return received;
+	}
+
+	public int getCreated() {
+		return created;
+	}
+
+	public int getFailed() {
+		return failed;
+	}
+
+	public List<BookBulkItemDTO> getResults() {
+		return results;
+	}
+	
+}
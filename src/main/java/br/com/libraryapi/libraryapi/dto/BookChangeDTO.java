@@ -0,0 +1,68 @@
+package br.com.libraryapi.libraryapi.dto;
+
+import java.time.Instant;
+
+public class BookChangeDTO {
+	
+	//Posição no feed: cursor para a próxima leitura e ID do evento SSE
+	private Long position;
+	//CREATED, UPDATED ou DELETED
+	private String type;
+	private Long version;
+	private Instant occurredAt;
+	//Estado do livro depois da alteração (antes dela, na exclusão)
+	private BookDTO book;
+	
+	public BookChangeDTO() {
+		
+	}
+	
+	public BookChangeDTO(Long position, String type, Long version, Instant occurredAt, BookDTO book) {
+		this.position = position;
+		this.type = type;
+		this.version = version;
+		this.occurredAt = occurredAt;
+		this.book = book;
+	}
+	
+	public Long getPosition() {
+		return position;
+	}
+	
+	public void setPosition(Long position) {
+		this.position = position;
+	}
+	
+	public String getType() {
+		return type;
+	}
+	
+	public void setType(String type) {
+		this.type = type;
+	}
+	
+	public Long getVersion() {
+		return version;
+	}
+	
+	public void setVersion(Long version) {
+		this.version = version;
+	}
+	
+	public Instant getOccurredAt() {
+		return occurredAt;
+	}
+	
+	public void setOccurredAt(Instant occurredAt) {
+		this.occurredAt = occurredAt;
+	}
+	
+	public BookDTO getBook() {
+		return book;
+	}
+	
+	public void setBook(BookDTO book) {
+		this.book = book;
+	}
+
+}
@@ -0,0 +1,36 @@
+package br.com.libraryapi.libraryapi.dto;
+
+import java.util.List;
+
+public class BookChangePageDTO {
+	
+	private List<BookChangeDTO> changes;
+	//Valor a ser enviado no parâmetro "since" da próxima leitura
+	private long cursor;
+	
+	public BookChangePageDTO() {
+		
+	}
+	
+	public BookChangePageDTO(List<BookChangeDTO> changes, long cursor) {
+		this.changes = changes;
+		this.cursor = cursor;
+	}
+	
+	public List<BookChangeDTO> getChanges() {
+		return changes;
+	}
+	
+	public void setChanges(List<BookChangeDTO> changes) {
+		this.changes = changes;
+	}
+	
+	public long getCursor() {
+		return cursor;
+	}
+	
+	public void setCursor(long cursor) {
+		this.cursor = cursor;
+	}
+
+}
@@ -0,0 +1,70 @@
+package br.com.libraryapi.libraryapi.dto;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+public class BookPageDTO {
+	
+	private List<BookDTO> content;
+	private int size;
+	private boolean hasNext;
+	//ID a ser enviado no parâmetro "after" para buscar a próxima página
+	private Long nextCursor;
+	//Preenchido apenas quando a contagem é solicitada
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	private Long totalElements;
+	
+	public BookPageDTO() {
+		
+	}
+	
+	public BookPageDTO(List<BookDTO> content, int size, boolean hasNext, Long nextCursor, Long totalElements) {
+		this.content = content;
+		this.size = size;
+		this.hasNext = hasNext;
+		this.nextCursor = nextCursor;
+		this.totalElements = totalElements;
+	}
+
+	public List<BookDTO> getContent() {
+		return content;
+	}
+
+	public void setContent(List<BookDTO> content) {
+		this.content = content;
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	public void setSize(int size) {
+		this.size = size;
+	}
+
+	public boolean isHasNext() {
+		return hasNext;
+	}
+
+	public void setHasNext(boolean hasNext) {
+		this.hasNext = hasNext;
+	}
+
+	public Long getNextCursor() {
+		return nextCursor;
+	}
+
+	public void setNextCursor(Long nextCursor) {
+		this.nextCursor = nextCursor;
+	}
+
+	public Long getTotalElements() {
+		return totalElements;
+	}
+
+	public void setTotalElements(Long totalElements) {
+		this.totalElements = totalElements;
+	}
+	
+}
@@ -0,0 +1,55 @@
+package br.com.libraryapi.libraryapi.dto;
+
+import java.util.List;
+
+public class BookWriteStatusDTO {
+	
+	private String ticket;
+	private String status;
+	private BookDTO book;
+	private List<String> errors;
+	
+	public BookWriteStatusDTO() {
+		
+	}
+	
+	public BookWriteStatusDTO(String ticket, String status, BookDTO book, List<String> errors) {
+		this.ticket = ticket;
+		this.status = status;
+		this.book = book;
+		this.errors = errors;
+	}
+
+	public String getTicket() {
+		return ticket;
+	}
+
+	public void setTicket(String ticket) {
+		this.ticket = ticket;
+	}
+
+	public String getStatus() {
+		return status;
+	}
+
+	public void setStatus(String status) {
+		this.status = status;
+	}
+
+	public BookDTO getBook() {
+		return book;
+	}
+
+	public void setBook(BookDTO book) {
+		this.book = book;
+	}
+
+	public List<String> getErrors() {
+		return errors;
+	}
+
+	public void setErrors(List<String> errors) {
+		this.errors = errors;
+	}
+
+}
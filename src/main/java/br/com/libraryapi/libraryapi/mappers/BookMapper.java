@@ -0,0 +1,17 @@
+package br.com.libraryapi.libraryapi.mappers;
+
+import br.com.libraryapi.libraryapi.domain.Book;
+import br.com.libraryapi.libraryapi.dto.BookDTO;
+
+/**
+ * Conversão entre {@link Book} e {@link BookDTO}. A implementação padrão é
+ * {@link DirectBookMapper}; {@link ModelMapperBookMapper} pode ser ativado com
+ * {@code library.mapping.model-mapper=true}.
+ */
+public interface BookMapper {
+	
+	Book toEntity(BookDTO dto);
+	
+	BookDTO toDTO(Book book);
+
+}
@@ -0,0 +1,34 @@
+package br.com.libraryapi.libraryapi.mappers;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import br.com.libraryapi.libraryapi.domain.Book;
+import br.com.libraryapi.libraryapi.dto.BookDTO;
+
+/**
+ * Mapeamento escrito à mão: chamadas diretas de getters/construtores,
+ * resolvidas em tempo de compilação, sem reflexão e sem objetos intermediários.
+ * Ao incluir um campo em {@link Book} ou {@link BookDTO}, inclua-o aqui.
+ */
+@Component
+@ConditionalOnProperty(name="library.mapping.model-mapper", havingValue="false", matchIfMissing=true)
+public class DirectBookMapper implements BookMapper {
+
+	@Override
+	public Book toEntity(BookDTO dto) {
+		if(dto == null) {
+			return null;
+		}
+		return new Book(dto.getId(), dto.getTitle(), dto.getAuthor(), dto.getIsbn());
+	}
+
+	@Override
+	public BookDTO toDTO(Book book) {
+		if(book == null) {
+			return null;
+		}
+		return new BookDTO(book.getId(), book.getTitle(), book.getAuthor(), book.getIsbn());
+	}
+
+}
@@ -0,0 +1,41 @@
+package br.com.libraryapi.libraryapi.mappers;
+
+import org.modelmapper.ModelMapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import br.com.libraryapi.libraryapi.domain.Book;
+import br.com.libraryapi.libraryapi.dto.BookDTO;
+
+/**
+ * Mapeamento por reflexão via ModelMapper, mantido como alternativa
+ * ({@code library.mapping.model-mapper=true}). Os TypeMaps são criados na
+ * inicialização para não pagar o custo de descoberta na primeira requisição.
+ */
+@Component
+@ConditionalOnProperty(name="library.mapping.model-mapper", havingValue="true")
+public class ModelMapperBookMapper implements BookMapper {
+	
+	private final ModelMapper modelMapper;
+	
+	public ModelMapperBookMapper() {
+		this(new ModelMapper());
+	}
+	
+	public ModelMapperBookMapper(ModelMapper modelMapper) {
+		this.modelMapper = modelMapper;
+		this.modelMapper.createTypeMap(BookDTO.class, Book.class);
+		this.modelMapper.createTypeMap(Book.class, BookDTO.class);
+	}
+
+	@Override
+	public Book toEntity(BookDTO dto) {
+		return dto == null ? null : modelMapper.map(dto, Book.class);
+	}
+
+	@Override
+	public BookDTO toDTO(Book book) {
+		return book == null ? null : modelMapper.map(book, BookDTO.class);
+	}
+
+}
@@ -0,0 +1,101 @@
+package br.com.libraryapi.libraryapi.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.HandlerMapping;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Métricas das etapas de uma requisição de livros ({@code library.book.stage})
+ * e das respostas de erro ({@code library.book.errors}), com as tags
+ * {@code method} e {@code uri} do endpoint em andamento (as mesmas de
+ * {@code http.server.requests}) e {@code outcome}.
+ * 
+ * Os timers ficam em cache por endpoint, então registrar uma etapa no caminho
+ * quente custa duas leituras de mapa e o {@code record} do timer, sem alocar
+ * tags. Fora de uma requisição (tarefas em segundo plano) a uri é {@code NONE}.
+ */
+@Component
+public class BookMetrics {
+	
+	public static final String STAGE_TIMER = "library.book.stage";
+	public static final String ERROR_COUNTER = "library.book.errors";
+	
+	private static final String NONE = "NONE";
+	
+	public enum Stage {
+		MAPPING, ISBN_CHECK, JPA_SAVE, JPA_FIND, JSON_READ, JSON_WRITE, CBOR_READ, CBOR_WRITE;
+		
+		private final String tag = name().toLowerCase();
+	}
+	
+	private final MeterRegistry registry;
+	
+	//method -> uri -> timers por etapa e resultado
+	private final Map<String, Map<String, AtomicReferenceArray<Timer>>> timers = new ConcurrentHashMap<>();
+	
+	public BookMetrics(MeterRegistry registry) {
+		this.registry = registry;
+	}
+	
+	/**
+	 * Registra a duração de uma etapa iniciada em {@code startNanos}
+	 * ({@link System#nanoTime()}).
+	 */
+	public void record(Stage stage, long startNanos, boolean success) {
+		long elapsed = System.nanoTime() - startNanos;
+		HttpServletRequest request = currentRequest();
+		String method = request == null ? NONE : request.getMethod();
+		String uri = uri(request);
+		AtomicReferenceArray<Timer> byStage = timers
+				.computeIfAbsent(method, key -> new ConcurrentHashMap<>())
+				.computeIfAbsent(uri, key -> new AtomicReferenceArray<>(Stage.values().length * 2));
+		int slot = stage.ordinal() * 2 + (success ? 0 : 1);
+		Timer timer = byStage.get(slot);
+		if(timer == null) {
+			//Corrida inofensiva: o registry devolve o mesmo timer para o mesmo ID
+			timer = Timer.builder(STAGE_TIMER)
+					.tag("stage", stage.tag)
+					.tag("method", method)
+					.tag("uri", uri)
+					.tag("outcome", success ? "SUCCESS" : "ERROR")
+					.register(registry);
+			byStage.set(slot, timer);
+		}
+		timer.record(elapsed, TimeUnit.NANOSECONDS);
+	}
+	
+	/**
+	 * Conta uma resposta de erro devolvida como {@code ApiErrors}.
+	 */
+	public void error(String type) {
+		HttpServletRequest request = currentRequest();
+		registry.counter(ERROR_COUNTER,
+				"type", type,
+				"method", request == null ? NONE : request.getMethod(),
+				"uri", uri(request)).increment();
+	}
+	
+	private static HttpServletRequest currentRequest() {
+		RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+		return attributes instanceof ServletRequestAttributes ? ((ServletRequestAttributes) attributes).getRequest() : null;
+	}
+	
+	//Padrão do mapeamento (/api/books/{id}), nunca a URI crua, para não explodir a cardinalidade
+	private static String uri(HttpServletRequest request) {
+		Object pattern = request == null ? null : request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+		return pattern == null ? NONE : pattern.toString();
+	}
+
+}
@@ -0,0 +1,61 @@
+package br.com.libraryapi.libraryapi.metrics;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.function.ToLongFunction;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Estatísticas de cada região do cache de segundo nível do Hibernate
+ * (entidades, resultados de query e timestamps), tagueadas por {@code region}.
+ * As métricas {@code hibernate.second.level.cache.*} do Spring Boot trazem
+ * apenas o total de todas as regiões. Requer
+ * {@code hibernate.generate_statistics=true}.
+ */
+public class HibernateCacheRegionMetrics implements MeterBinder {
+	
+	private final EntityManagerFactory entityManagerFactory;
+	
+	public HibernateCacheRegionMetrics(EntityManagerFactory entityManagerFactory) {
+		this.entityManagerFactory = entityManagerFactory;
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		if(!statistics.isStatisticsEnabled()) {
+			return;
+		}
+		//A região de resultados de query só é criada na primeira consulta cacheada
+		Set<String> regions = new LinkedHashSet<>(Arrays.asList(statistics.getSecondLevelCacheRegionNames()));
+		regions.add(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME);
+		for(String region : regions) {
+			FunctionCounter.builder("hibernate.cache.region.requests", statistics, s -> count(s, region, CacheRegionStatistics::getHitCount))
+					.tags("region", region, "result", "hit")
+					.register(registry);
+			FunctionCounter.builder("hibernate.cache.region.requests", statistics, s -> count(s, region, CacheRegionStatistics::getMissCount))
+					.tags("region", region, "result", "miss")
+					.register(registry);
+			FunctionCounter.builder("hibernate.cache.region.puts", statistics, s -> count(s, region, CacheRegionStatistics::getPutCount))
+					.tags("region", region)
+					.register(registry);
+		}
+	}
+	
+	private static double count(Statistics statistics, String region, ToLongFunction<CacheRegionStatistics> counter) {
+		CacheRegionStatistics stats = statistics.getCacheRegionStatistics(region);
+		return stats == null ? 0 : counter.applyAsLong(stats);
+	}
+
+}
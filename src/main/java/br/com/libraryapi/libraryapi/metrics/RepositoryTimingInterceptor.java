@@ -0,0 +1,46 @@
+package br.com.libraryapi.libraryapi.metrics;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+import br.com.libraryapi.libraryapi.metrics.BookMetrics.Stage;
+
+/**
+ * Mede as chamadas ao {@code BookRepository}, classificadas em etapas:
+ * verificação de ISBN duplicado, escrita (save/delete) e leitura.
+ */
+public class RepositoryTimingInterceptor implements MethodInterceptor {
+	
+	private final BookMetrics metrics;
+	
+	public RepositoryTimingInterceptor(BookMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	@Override
+	public Object invoke(MethodInvocation invocation) throws Throwable {
+		Stage stage = stageOf(invocation.getMethod().getName());
+		long start = System.nanoTime();
+		boolean success = false;
+		try {
+			Object result = invocation.proceed();
+			success = true;
+			return result;
+		} finally {
+			metrics.record(stage, start, success);
+		}
+	}
+	
+	static Stage stageOf(String method) {
+		switch(method) {
+		case "existsByIsbn":
+		case "findExistingIsbns":
+			return Stage.ISBN_CHECK;
+		default:
+			return method.startsWith("save") || method.startsWith("delete") || method.startsWith("flush")
+					? Stage.JPA_SAVE
+					: Stage.JPA_FIND;
+		}
+	}
+
+}
@@ -0,0 +1,47 @@
+package br.com.libraryapi.libraryapi.metrics;
+
+import br.com.libraryapi.libraryapi.domain.Book;
+import br.com.libraryapi.libraryapi.dto.BookDTO;
+import br.com.libraryapi.libraryapi.mappers.BookMapper;
+import br.com.libraryapi.libraryapi.metrics.BookMetrics.Stage;
+
+/**
+ * Mede a etapa {@code mapping} em volta do {@link BookMapper} configurado.
+ */
+public class TimedBookMapper implements BookMapper {
+	
+	private final BookMapper delegate;
+	private final BookMetrics metrics;
+	
+	public TimedBookMapper(BookMapper delegate, BookMetrics metrics) {
+		this.delegate = delegate;
+		this.metrics = metrics;
+	}
+
+	@Override
+	public Book toEntity(BookDTO dto) {
+		long start = System.nanoTime();
+		boolean success = false;
+		try {
+			Book book = delegate.toEntity(dto);
+			success = true;
+			return book;
+		} finally {
+			metrics.record(Stage.MAPPING, start, success);
+		}
+	}
+
+	@Override
+	public BookDTO toDTO(Book book) {
+		long start = System.nanoTime();
+		boolean success = false;
+		try {
+			BookDTO dto = delegate.toDTO(book);
+			success = true;
+			return dto;
+		} finally {
+			metrics.record(Stage.MAPPING, start, success);
+		}
+	}
+
+}
@@ -0,0 +1,55 @@
+package br.com.libraryapi.libraryapi.metrics;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import br.com.libraryapi.libraryapi.metrics.BookMetrics.Stage;
+
+/**
+ * Conversor CBOR ({@code application/cbor}) medindo as etapas
+ * {@code cbor_read} e {@code cbor_write}, como o
+ * {@link TimedJackson2HttpMessageConverter} faz para JSON.
+ */
+public class TimedCborHttpMessageConverter extends MappingJackson2CborHttpMessageConverter {
+	
+	private final BookMetrics metrics;
+	
+	public TimedCborHttpMessageConverter(ObjectMapper objectMapper, BookMetrics metrics) {
+		super(objectMapper);
+		this.metrics = metrics;
+	}
+	
+	@Override
+	public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) throws IOException, HttpMessageNotReadableException {
+		long start = System.nanoTime();
+		boolean success = false;
+		try {
+			Object value = super.read(type, contextClass, inputMessage);
+			success = true;
+			return value;
+		} finally {
+			metrics.record(Stage.CBOR_READ, start, success);
+		}
+	}
+	
+	@Override
+	protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage) throws IOException, HttpMessageNotWritableException {
+		long start = System.nanoTime();
+		boolean success = false;
+		try {
+			super.writeInternal(object, type, outputMessage);
+			success = true;
+		} finally {
+			metrics.record(Stage.CBOR_WRITE, start, success);
+		}
+	}
+
+}
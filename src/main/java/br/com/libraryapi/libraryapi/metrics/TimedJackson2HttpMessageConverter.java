@@ -0,0 +1,55 @@
+package br.com.libraryapi.libraryapi.metrics;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import br.com.libraryapi.libraryapi.metrics.BookMetrics.Stage;
+
+/**
+ * Conversor JSON padrão do Spring MVC medindo as etapas {@code json_read}
+ * (corpo da requisição) e {@code json_write} (corpo da resposta, inclusive a
+ * escrita no socket, que faz parte do custo de serializar).
+ */
+public class TimedJackson2HttpMessageConverter extends MappingJackson2HttpMessageConverter {
+	
+	private final BookMetrics metrics;
+	
+	public TimedJackson2HttpMessageConverter(ObjectMapper objectMapper, BookMetrics metrics) {
+		super(objectMapper);
+		this.metrics = metrics;
+	}
+	
+	@Override
+	public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) throws IOException, HttpMessageNotReadableException {
+		long start = System.nanoTime();
+		boolean success = false;
+		try {
+			Object value = super.read(type, contextClass, inputMessage);
+			success = true;
+			return value;
+		} finally {
+			metrics.record(Stage.JSON_READ, start, success);
+		}
+	}
+	
+	@Override
+	protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage) throws IOException, HttpMessageNotWritableException {
+		long start = System.nanoTime();
+		boolean success = false;
+		try {
+			super.writeInternal(object, type, outputMessage);
+			success = true;
+		} finally {
+			metrics.record(Stage.JSON_WRITE, start, success);
+		}
+	}
+
+}
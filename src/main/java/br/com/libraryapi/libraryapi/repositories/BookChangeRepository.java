@@ -0,0 +1,26 @@
+package br.com.libraryapi.libraryapi.repositories;
+
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import br.com.libraryapi.libraryapi.domain.BookChange;
+
+@Repository
+public interface BookChangeRepository extends JpaRepository<BookChange, Long> {
+	
+	//Gravadas e ainda não publicadas pelo relay, na ordem em que foram inseridas
+	@Query("select c from BookChange c where c.position is null order by c.id")
+	List<BookChange> findUnpublished(Pageable pageable);
+	
+	@Query("select max(c.position) from BookChange c")
+	Long findLastPosition();
+	
+	@Query("select c from BookChange c where c.position > :since order by c.position")
+	List<BookChange> findPublishedAfter(@Param("since") long since, Pageable pageable);
+
+}
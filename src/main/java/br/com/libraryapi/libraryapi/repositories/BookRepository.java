@@ -1,13 +1,54 @@
 package br.com.libraryapi.libraryapi.repositories;
 
+import java.util.Collection;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import javax.persistence.QueryHint;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import br.com.libraryapi.libraryapi.domain.Book;
 
 @Repository
-public interface BookRepository extends JpaRepository<Book, Long> {
+public interface BookRepository extends JpaRepository<Book, Long>, JpaSpecificationExecutor<Book>, BookRepositoryCustom {
 	
+	//Query cache: o resultado é descartado sempre que algum livro é gravado
+	//As consultas declaradas aqui não herdam a transação somente leitura do
+	//SimpleJpaRepository; sem ela, a leitura iria para o primário e não para a réplica
+	@Transactional(readOnly = true)
+	@QueryHints(@QueryHint(name=org.hibernate.jpa.QueryHints.HINT_CACHEABLE, value="true"))
 	boolean existsByIsbn(String isbn);
+	
+	@Transactional(readOnly = true)
+	Optional<Book> findByIsbn(String isbn);
+	
+	@Transactional(readOnly = true)
+	@Query("select b.isbn from Book b where b.isbn in :isbns")
+	Set<String> findExistingIsbns(@Param("isbns") Collection<String> isbns);
+	
+	//Precisa ser consumido dentro de uma transação e fechado ao final
+	@QueryHints(@QueryHint(name=org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value="1000"))
+	@Query("select b.isbn from Book b")
+	Stream<String> streamAllIsbns();
+	
+	//Precisa ser consumido dentro de uma transação e fechado ao final. Os
+	//livros são montados pelo construtor e não entram no contexto de
+	//persistência, que assim não cresce com a tabela inteira
+	@QueryHints(@QueryHint(name=org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value="1000"))
+	@Query("select new br.com.libraryapi.libraryapi.domain.Book(b.id, b.title, b.author, b.isbn) from Book b")
+	Stream<Book> streamAll();
+	
+	//Mesmo cursor do streamAll, em ordem estável para a exportação
+	@QueryHints(@QueryHint(name=org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value="1000"))
+	@Query("select new br.com.libraryapi.libraryapi.domain.Book(b.id, b.title, b.author, b.isbn) from Book b order by b.id")
+	Stream<Book> streamAllOrderedById();
 
 }
@@ -0,0 +1,18 @@
+package br.com.libraryapi.libraryapi.repositories;
+
+import java.util.List;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import br.com.libraryapi.libraryapi.domain.Book;
+
+public interface BookRepositoryCustom {
+	
+	/**
+	 * Retorna no máximo {@code limit} livros que atendem ao filtro, ordenados
+	 * pelo ID. Diferente de {@code findAll(spec, pageable)}, nunca executa
+	 * {@code COUNT(*)}.
+	 */
+	List<Book> findOrderedById(Specification<Book> spec, int limit);
+
+}
@@ -0,0 +1,34 @@
+package br.com.libraryapi.libraryapi.repositories;
+
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import br.com.libraryapi.libraryapi.domain.Book;
+
+public class BookRepositoryImpl implements BookRepositoryCustom {
+	
+	@PersistenceContext
+	private EntityManager em;
+
+	@Override
+	public List<Book> findOrderedById(Specification<Book> spec, int limit) {
+		CriteriaBuilder cb = em.getCriteriaBuilder();
+		CriteriaQuery<Book> query = cb.createQuery(Book.class);
+		Root<Book> root = query.from(Book.class);
+		Predicate predicate = spec == null ? null : spec.toPredicate(root, query, cb);
+		if(predicate != null) {
+			query.where(predicate);
+		}
+		query.orderBy(cb.asc(root.get("id")));
+		return em.createQuery(query).setMaxResults(limit).getResultList();
+	}
+
+}
@@ -0,0 +1,54 @@
+package br.com.libraryapi.libraryapi.repositories;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import br.com.libraryapi.libraryapi.domain.Book;
+
+/**
+ * Filtros da listagem de livros. Título e autor usam busca por prefixo
+ * ({@code like 'x%'}) para que os índices de {@link Book} possam ser usados.
+ * 
+ * Os índices {@code (title, id)} e {@code (author, id)} só entregam os livros
+ * já na ordem do cursor quando o valor é exato. Com um prefixo, as entradas
+ * do intervalo não estão ordenadas por ID: cada página lê e ordena todos os
+ * livros do prefixo, e o custo cresce com quantos ele abrange, não com a
+ * profundidade da página. Sem filtro ou por ISBN, a página segue o índice.
+ */
+public final class BookSpecifications {
+	
+	private BookSpecifications() {
+		
+	}
+	
+	public static Specification<Book> matching(Book filter) {
+		return Specification
+				.where(titleStartsWith(filter.getTitle()))
+				.and(authorStartsWith(filter.getAuthor()))
+				.and(isbnEquals(filter.getIsbn()));
+	}
+	
+	public static Specification<Book> titleStartsWith(String title) {
+		return (root, query, cb) -> isBlank(title) ? null : cb.like(root.get("title"), escape(title) + "%", '\\');
+	}
+	
+	public static Specification<Book> authorStartsWith(String author) {
+		return (root, query, cb) -> isBlank(author) ? null : cb.like(root.get("author"), escape(author) + "%", '\\');
+	}
+	
+	public static Specification<Book> isbnEquals(String isbn) {
+		return (root, query, cb) -> isBlank(isbn) ? null : cb.equal(root.get("isbn"), isbn);
+	}
+	
+	public static Specification<Book> idGreaterThan(Long id) {
+		return (root, query, cb) -> id == null ? null : cb.greaterThan(root.get("id"), id);
+	}
+	
+	private static boolean isBlank(String value) {
+		return value == null || value.trim().isEmpty();
+	}
+	
+	private static String escape(String value) {
+		return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+	}
+
+}
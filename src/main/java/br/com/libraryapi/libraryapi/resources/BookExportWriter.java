@@ -0,0 +1,108 @@
+package br.com.libraryapi.libraryapi.resources;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import br.com.libraryapi.libraryapi.dto.BookDTO;
+
+/**
+ * Escreve livros um a um no corpo da resposta da exportação. Nada é
+ * acumulado além do buffer de saída, então a memória usada não depende da
+ * quantidade de livros.
+ */
+abstract class BookExportWriter implements Closeable {
+	
+	abstract void write(BookDTO dto) throws IOException;
+	
+	static BookExportWriter ndjson(OutputStream out, ObjectMapper objectMapper) throws IOException {
+		return new NdjsonWriter(out, objectMapper);
+	}
+	
+	static BookExportWriter csv(OutputStream out) throws IOException {
+		CsvWriter writer = new CsvWriter(out);
+		writer.writeHeader();
+		return writer;
+	}
+	
+	private static class NdjsonWriter extends BookExportWriter {
+		
+		private final JsonGenerator generator;
+		private final ObjectWriter writer;
+		
+		NdjsonWriter(OutputStream out, ObjectMapper objectMapper) throws IOException {
+			this.generator = objectMapper.getFactory().createGenerator(out);
+			//Separador entre valores é a quebra de linha escrita após cada livro
+			this.generator.setRootValueSeparator(null);
+			//Descarrega só quando o buffer enche, não a cada livro
+			this.writer = objectMapper.writerFor(BookDTO.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+		}
+		
+		@Override
+		void write(BookDTO dto) throws IOException {
+			writer.writeValue(generator, dto);
+			generator.writeRaw('\n');
+		}
+		
+		@Override
+		public void close() throws IOException {
+			generator.close();
+		}
+		
+	}
+	
+	private static class CsvWriter extends BookExportWriter {
+		
+		private final Writer writer;
+		
+		CsvWriter(OutputStream out) {
+			this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+		}
+		
+		@Override
+		void write(BookDTO dto) throws IOException {
+			writer.write(String.valueOf(dto.getId()));
+			writer.write(',');
+			writeField(dto.getTitle());
+			writer.write(',');
+			writeField(dto.getAuthor());
+			writer.write(',');
+			writeField(dto.getIsbn());
+			writer.write("\r\n");
+		}
+		
+		void writeHeader() throws IOException {
+			writer.write("id,title,author,isbn\r\n");
+		}
+		
+		//RFC 4180: campos com vírgula, aspas ou quebra de linha vão entre aspas
+		private void writeField(String value) throws IOException {
+			if(value == null) {
+				return;
+			}
+			if(value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+				writer.write(value);
+				return;
+			}
+			writer.write('"');
+			writer.write(value.replace("\"", "\"\""));
+			writer.write('"');
+		}
+		
+		@Override
+		public void close() throws IOException {
+			writer.close();
+		}
+		
+	}
+
+}
@@ -1,85 +1,519 @@
 package br.com.libraryapi.libraryapi.resources;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import javax.validation.Validator;
 
-import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import br.com.libraryapi.libraryapi.domain.Book;
+import br.com.libraryapi.libraryapi.domain.BookChange;
+import br.com.libraryapi.libraryapi.dto.BookBatchDTO;
+import br.com.libraryapi.libraryapi.dto.BookBulkItemDTO;
+import br.com.libraryapi.libraryapi.dto.BookBulkResultDTO;
+import br.com.libraryapi.libraryapi.dto.BookChangeDTO;
+import br.com.libraryapi.libraryapi.dto.BookChangePageDTO;
 import br.com.libraryapi.libraryapi.dto.BookDTO;
+import br.com.libraryapi.libraryapi.dto.BookPageDTO;
+import br.com.libraryapi.libraryapi.dto.BookWriteStatusDTO;
+import br.com.libraryapi.libraryapi.mappers.BookMapper;
+import br.com.libraryapi.libraryapi.metrics.BookMetrics;
 import br.com.libraryapi.libraryapi.resources.exception.ApiErrors;
 import br.com.libraryapi.libraryapi.resources.exception.BusinessException;
+import br.com.libraryapi.libraryapi.services.BookSaveResult;
+import br.com.libraryapi.libraryapi.services.BookWriteStatus;
+import br.com.libraryapi.libraryapi.services.impl.BookChangeFeed;
+import br.com.libraryapi.libraryapi.services.impl.BookSearchIndex;
 import br.com.libraryapi.libraryapi.services.impl.BookServiceImpl;
+import br.com.libraryapi.libraryapi.services.impl.BookWriteBehind;
 
 @RestController
 @RequestMapping("/api/books")
 public class BookResource {
 	
+	public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+	
+	public static final String TEXT_CSV_VALUE = "text/csv";
+	
+	public static final String APPLICATION_MERGE_PATCH_JSON_VALUE = "application/merge-patch+json";
+	
+	//Quantidade de registros enviada ao service por vez na importação em lote
+	private static final int BULK_CHUNK_SIZE = 500;
+	
+	private static final int MAX_PAGE_SIZE = 100;
+	
+	private static final int MAX_BATCH_IDS = 1000;
+	
+	private static final int MAX_CHANGES_PAGE_SIZE = 1000;
+	
+	private static final int MAX_CHANGES_WAIT_SECONDS = 60;
+	
+	//O cliente reconecta com Last-Event-ID e continua de onde parou
+	private static final long CHANGES_STREAM_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(30);
+	
 	private BookServiceImpl service;
 	
-	private ModelMapper modelMapper;
+	private BookMapper mapper;
+	
+	private Validator validator;
+	
+	private ObjectMapper objectMapper;
+	
+	private BookMetrics metrics;
 	
-	public BookResource(BookServiceImpl service, ModelMapper modelMapper) {
+	private IdempotencyStore idempotency;
+	
+	private BookChangeFeed changeFeed;
+	
+	//Presente apenas com library.write-behind.enabled=true
+	private BookWriteBehind writeBehind;
+	
+	public BookResource(BookServiceImpl service, BookMapper mapper, Validator validator, ObjectMapper objectMapper, BookMetrics metrics,
+			IdempotencyStore idempotency, BookChangeFeed changeFeed, ObjectProvider<BookWriteBehind> writeBehind) {
 		this.service = service;
-		this.modelMapper = modelMapper;
+		this.mapper = mapper;
+		this.validator = validator;
+		this.objectMapper = objectMapper;
+		this.metrics = metrics;
+		this.idempotency = idempotency;
+		this.changeFeed = changeFeed;
+		this.writeBehind = writeBehind.getIfAvailable();
 	}
 	
+	//Com Idempotency-Key, repetições da mesma criação recebem a resposta original
 	@PostMapping
-	@ResponseStatus(HttpStatus.CREATED)
-	public BookDTO create(@Valid @RequestBody BookDTO bookDto) {
+	public ResponseEntity<?> create(@Valid @RequestBody BookDTO bookDto,
+			@RequestHeader(value=IdempotencyStore.IDEMPOTENCY_KEY_HEADER, required=false) String idempotencyKey) {
+		if(idempotencyKey == null) {
+			return createBook(bookDto);
+		}
+		String fingerprint = String.join("\u0000", "create", bookDto.getTitle(), bookDto.getAuthor(), bookDto.getIsbn());
+		return idempotency.execute(idempotencyKey, fingerprint, () -> createBook(bookDto));
+	}
+	
+	private ResponseEntity<?> createBook(BookDTO bookDto) {
 		//"fromDTO"
-		Book book = modelMapper.map(bookDto, Book.class);
+		Book book = mapper.toEntity(bookDto);
+		if(writeBehind != null) {
+			//Gravação assíncrona: 202 com a URL para acompanhar o livro
+			String ticket = writeBehind.submit(book);
+			URI location = ServletUriComponentsBuilder.fromCurrentRequest().path("/pending/{ticket}").buildAndExpand(ticket).toUri();
+			return ResponseEntity.accepted().location(location).body(toDTO(writeBehind.status(ticket)));
+		}
 		Book savedBook = service.save(book);
-		return modelMapper.map(savedBook,BookDTO.class);
+		return ResponseEntity.status(HttpStatus.CREATED).body(mapper.toDTO(savedBook));
+	}
+	
+	@GetMapping("/pending/{ticket}")
+	public BookWriteStatusDTO pending(@PathVariable String ticket) {
+		BookWriteStatus status = writeBehind == null ? null : writeBehind.status(ticket);
+		if(status == null) {
+			throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+		}
+		return toDTO(status);
+	}
+	
+	@PostMapping(value="/bulk", consumes=MediaType.APPLICATION_JSON_VALUE)
+	public BookBulkResultDTO createAll(@RequestBody List<BookDTO> dtos) {
+		BookBulkResultDTO result = new BookBulkResultDTO();
+		for(int offset = 0; offset < dtos.size(); offset += BULK_CHUNK_SIZE) {
+			importChunk(dtos.subList(offset, Math.min(offset + BULK_CHUNK_SIZE, dtos.size())), offset, result::add);
+		}
+		return result;
+	}
+	
+	//O arquivo pode ter milhões de linhas: a resposta traz as contagens e apenas
+	//as falhas (índice e erros, sem o livro), e não um resultado por linha
+	@PostMapping(value="/bulk", consumes=APPLICATION_NDJSON_VALUE)
+	public BookBulkResultDTO createAllFromStream(HttpServletRequest request) throws IOException {
+		BookBulkResultDTO result = new BookBulkResultDTO();
+		Consumer<BookBulkItemDTO> sink = item -> {
+			if(BookBulkItemDTO.CREATED.equals(item.getStatus())) {
+				result.count(item);
+			} else {
+				item.setBook(null);
+				result.add(item);
+			}
+		};
+		List<BookDTO> chunk = new ArrayList<>(BULK_CHUNK_SIZE);
+		int offset = 0;
+		//Lê o corpo linha a linha para não carregar o arquivo inteiro em memória
+		try(BufferedReader reader = new BufferedReader(request.getReader())) {
+			String line;
+			while((line = reader.readLine()) != null) {
+				if(line.trim().isEmpty()) {
+					continue;
+				}
+				chunk.add(readLine(line));
+				if(chunk.size() == BULK_CHUNK_SIZE) {
+					importChunk(chunk, offset, sink);
+					offset += chunk.size();
+					chunk.clear();
+				}
+			}
+		}
+		importChunk(chunk, offset, sink);
+		return result;
+	}
+	
+	@GetMapping
+	public BookPageDTO find(@RequestParam(required=false) String title,
+			@RequestParam(required=false) String author,
+			@RequestParam(required=false) String isbn,
+			@RequestParam(required=false) Long after,
+			@RequestParam(defaultValue="20") int size,
+			@RequestParam(defaultValue="false") boolean count) {
+		Book filter = new Book(null, title, author, isbn);
+		int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+		Slice<Book> slice = service.find(filter, after, pageSize);
+		List<BookDTO> content = slice.getContent()
+				.stream()
+				.map(mapper::toDTO)
+				.collect(Collectors.toList());
+		Long nextCursor = slice.hasNext() ? content.get(content.size() - 1).getId() : null;
+		//O COUNT(*) percorre todos os livros do filtro: só com count=true; sem ele, apenas se existe próxima página
+		Long total = count ? service.count(filter) : null;
+		return new BookPageDTO(content, pageSize, slice.hasNext(), nextCursor, total);
+	}
+	
+	//Exportação completa do catálogo: os livros são escritos na resposta à
+	//medida que o cursor avança, sem montar a lista em memória
+	@GetMapping("/export")
+	public void export(@RequestParam(defaultValue="ndjson") String format, HttpServletResponse response) throws IOException {
+		boolean csv = "csv".equalsIgnoreCase(format);
+		if(!csv && !"ndjson".equalsIgnoreCase(format)) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Formato inválido: " + format);
+		}
+		response.setContentType((csv ? TEXT_CSV_VALUE : APPLICATION_NDJSON_VALUE) + ";charset=UTF-8");
+		response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"books." + (csv ? "csv" : "ndjson") + "\"");
+		
+		try(BookExportWriter writer = csv
+				? BookExportWriter.csv(response.getOutputStream())
+				: BookExportWriter.ndjson(response.getOutputStream(), objectMapper)) {
+			service.export(book -> {
+				try {
+					writer.write(mapper.toDTO(book));
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		} catch (UncheckedIOException e) {
+			//Normalmente o cliente desconectou no meio da exportação
+			throw e.getCause();
+		}
+	}
+	
+	@GetMapping("/search")
+	public Page<BookDTO> search(@RequestParam("q") String query,
+			@RequestParam(defaultValue="0") int page,
+			@RequestParam(defaultValue="20") int size) {
+		int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+		return service.search(query, Math.max(0, page), pageSize).map(mapper::toDTO);
+	}
+	
+	//Reconstrução completa do índice de busca a partir da base; 409 se já
+	//houver uma em andamento
+	@PostMapping("/search/index")
+	public long rebuildSearchIndex() {
+		return service.rebuildSearchIndex();
+	}
+	
+	//Alterações depois da posição "since" (o "cursor" da resposta anterior).
+	//Sem alterações, espera até "wait" segundos por novas (long-poll)
+	@GetMapping("/changes")
+	public DeferredResult<BookChangePageDTO> changes(@RequestParam(defaultValue="0") long since,
+			@RequestParam(defaultValue="100") int limit,
+			@RequestParam(defaultValue="0") int wait) {
+		int pageSize = Math.max(1, Math.min(limit, MAX_CHANGES_PAGE_SIZE));
+		long timeout = TimeUnit.SECONDS.toMillis(Math.max(0, Math.min(wait, MAX_CHANGES_WAIT_SECONDS)));
+		DeferredResult<BookChangePageDTO> result = new DeferredResult<>(timeout, toDTO(Collections.emptyList(), since));
+		List<BookChange> changes = changeFeed.read(since, pageSize);
+		if(!changes.isEmpty() || timeout == 0) {
+			result.setResult(toDTO(changes, since));
+			return result;
+		}
+		BookChangeFeed.Subscription subscription = changeFeed.subscribe(since, published -> {
+			result.setResult(toDTO(published.subList(0, Math.min(published.size(), pageSize)), since));
+			return false;
+		});
+		result.onCompletion(subscription::cancel);
+		return result;
+	}
+	
+	//Mesmo feed em Server-Sent Events: as alterações já publicadas depois de
+	//"since" (ou do Last-Event-ID da reconexão) e, em seguida, as novas
+	@GetMapping(value="/changes", produces=MediaType.TEXT_EVENT_STREAM_VALUE)
+	public SseEmitter changesStream(@RequestParam(defaultValue="0") long since,
+			@RequestHeader(value="Last-Event-ID", required=false) Long lastEventId) {
+		SseEmitter emitter = new SseEmitter(CHANGES_STREAM_TIMEOUT_MILLIS);
+		BookChangeFeed.Subscription subscription = changeFeed.subscribe(lastEventId != null ? lastEventId : since, published -> {
+			try {
+				for(BookChange change : published) {
+					emitter.send(SseEmitter.event()
+							.id(String.valueOf(change.getPosition()))
+							.name(change.getType().name())
+							.data(toDTO(change), MediaType.APPLICATION_JSON));
+				}
+				return true;
+			} catch (IOException e) {
+				//Cliente desconectou
+				emitter.completeWithError(e);
+				return false;
+			}
+		});
+		emitter.onCompletion(subscription::cancel);
+		emitter.onTimeout(subscription::cancel);
+		return emitter;
 	}
 	
 	@RequestMapping(method=RequestMethod.GET, value="/{id}")
-	public BookDTO get(@PathVariable Long id) {
+	public ResponseEntity<BookDTO> get(@PathVariable Long id,
+			@RequestHeader(value=HttpHeaders.IF_NONE_MATCH, required=false) String ifNoneMatch) {
+		Book book = service.getById(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+		String etag = ETags.of(book);
+		//Cliente já tem a versão atual: responde 304 sem montar o corpo
+		if(etag != null && ETags.matches(ifNoneMatch, etag)) {
+			return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+		}
+		return withETag(ResponseEntity.ok(), book).body(mapper.toDTO(book));
+	}
+	
+	//Vários livros em uma requisição: GET /batch?ids=1,2,3 ou POST /batch com [1,2,3]
+	@GetMapping("/batch")
+	public BookBatchDTO getAll(@RequestParam List<Long> ids) {
+		return batch(ids);
+	}
+	
+	@PostMapping("/batch")
+	public BookBatchDTO getAllByBody(@RequestBody List<Long> ids) {
+		return batch(ids);
+	}
+	
+	@GetMapping("/isbn/{isbn}")
+	public BookDTO getByIsbn(@PathVariable String isbn) {
 		return service
-				.getById(id)
-				.map(book -> modelMapper.map(book, BookDTO.class))
+				.getByIsbn(isbn)
+				.map(mapper::toDTO)
 				.orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
 	}
 	
 	@RequestMapping(method=RequestMethod.DELETE,value="/{id}")
 	@ResponseStatus(HttpStatus.NO_CONTENT)
-	public void delete(@PathVariable Long id) {
+	public void delete(@PathVariable Long id,
+			@RequestHeader(value=HttpHeaders.IF_MATCH, required=false) String ifMatch) {
 		Book book = service.getById(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+		checkIfMatch(ifMatch, book);
 		service.delete(book);
 	}
 	
 	@RequestMapping(method=RequestMethod.PUT,value="/{id}")
-	public BookDTO update(@PathVariable Long id, BookDTO dto) {
-		return service.getById(id).map(book -> {
+	public ResponseEntity<BookDTO> update(@PathVariable Long id, @RequestBody BookDTO dto,
+			@RequestHeader(value=HttpHeaders.IF_MATCH, required=false) String ifMatch) {
+		return service.getById(id).map(cached -> {
+			checkIfMatch(ifMatch, cached);
+			//O livro do getById é a instância do cache: as alterações vão numa cópia
+			Book book = new Book(cached);
 			book.setAuthor(dto.getAuthor());
 			book.setTitle(dto.getTitle());
 			book = service.update(book);
-			return modelMapper.map(book, BookDTO.class);
+			return withETag(ResponseEntity.ok(), book).body(mapper.toDTO(book));
 		}).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
 	}
 	
+	//Altera só os campos enviados (título e/ou autor). Com If-Match de uma única
+	//ETag a versão vai para o service, que a compara com a do livro lido na
+	//própria transação do UPDATE (do cache de segundo nível quando possível),
+	//sem a leitura separada do getById
+	@PatchMapping(value="/{id}", consumes={MediaType.APPLICATION_JSON_VALUE, APPLICATION_MERGE_PATCH_JSON_VALUE})
+	public ResponseEntity<BookDTO> patch(@PathVariable Long id, @RequestBody BookDTO dto,
+			@RequestHeader(value=HttpHeaders.IF_MATCH, required=false) String ifMatch) {
+		if(dto.getIsbn() != null) {
+			throw new BusinessException("ISBN não pode ser alterado");
+		}
+		if("".equals(dto.getTitle()) || "".equals(dto.getAuthor())) {
+			throw new BusinessException("Título e autor não podem ser vazios");
+		}
+		Long version = null;
+		if(ifMatch != null && !"*".equals(ifMatch.trim())) {
+			version = ETags.version(ifMatch);
+			if(version == null) {
+				//Lista de ETags ou ETag fraca: compara com a versão atual como no PUT
+				Book current = service.getById(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+				checkIfMatch(ifMatch, current);
+				version = current.getVersion();
+			}
+		}
+		Book book = service.patch(id, version, mapper.toEntity(dto))
+				.orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+		return withETag(ResponseEntity.ok(), book).body(mapper.toDTO(book));
+	}
+	
+	
+	private BookBatchDTO batch(List<Long> ids) {
+		if(ids.size() > MAX_BATCH_IDS) {
+			throw new BusinessException("Máximo de " + MAX_BATCH_IDS + " IDs por requisição");
+		}
+		if(ids.contains(null)) {
+			throw new BusinessException("ID inválido");
+		}
+		Map<Long, Book> found = service.getAllById(ids);
+		List<BookDTO> books = found.values().stream().map(mapper::toDTO).collect(Collectors.toList());
+		List<Long> missing = ids.stream().distinct().filter(id -> !found.containsKey(id)).collect(Collectors.toList());
+		return new BookBatchDTO(books, missing);
+	}
+	
+	private static ResponseEntity.BodyBuilder withETag(ResponseEntity.BodyBuilder builder, Book book) {
+		String etag = ETags.of(book);
+		return etag == null ? builder : builder.eTag(etag);
+	}
+	
+	private static void checkIfMatch(String ifMatch, Book book) {
+		if(ifMatch != null && !ETags.matchesStrong(ifMatch, ETags.of(book))) {
+			throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED);
+		}
+	}
+	
+	private BookWriteStatusDTO toDTO(BookWriteStatus status) {
+		List<String> errors = status.getError() == null ? null : Collections.singletonList(status.getError());
+		return new BookWriteStatusDTO(status.getTicket(), status.getState().name(), mapper.toDTO(status.getBook()), errors);
+	}
+	
+	private static BookChangePageDTO toDTO(List<BookChange> changes, long since) {
+		long cursor = changes.isEmpty() ? since : changes.get(changes.size() - 1).getPosition();
+		return new BookChangePageDTO(changes.stream().map(BookResource::toDTO).collect(Collectors.toList()), cursor);
+	}
+	
+	private static BookChangeDTO toDTO(BookChange change) {
+		BookDTO book = new BookDTO(change.getBookId(), change.getTitle(), change.getAuthor(), change.getIsbn());
+		return new BookChangeDTO(change.getPosition(), change.getType().name(), change.getBookVersion(), change.getOccurredAt(), book);
+	}
+	
+	private BookDTO readLine(String line) {
+		try {
+			return objectMapper.readValue(line, BookDTO.class);
+		} catch (IOException e) {
+			return null;
+		}
+	}
+	
+	private void importChunk(List<BookDTO> chunk, int offset, Consumer<BookBulkItemDTO> sink) {
+		BookBulkItemDTO[] items = new BookBulkItemDTO[chunk.size()];
+		List<Book> books = new ArrayList<>(chunk.size());
+		List<Integer> positions = new ArrayList<>(chunk.size());
+		for(int i = 0; i < chunk.size(); i++) {
+			BookDTO dto = chunk.get(i);
+			List<String> errors = validate(dto);
+			if(errors.isEmpty()) {
+				books.add(mapper.toEntity(dto));
+				positions.add(i);
+			} else {
+				items[i] = BookBulkItemDTO.failed(offset + i, dto, errors);
+			}
+		}
+		
+		if(!books.isEmpty()) {
+			List<BookSaveResult> saved = service.saveAll(books);
+			for(int j = 0; j < saved.size(); j++) {
+				int i = positions.get(j);
+				BookSaveResult res = saved.get(j);
+				items[i] = res.isSuccess()
+						? BookBulkItemDTO.created(offset + i, mapper.toDTO(res.getBook()))
+						: BookBulkItemDTO.failed(offset + i, chunk.get(i), Collections.singletonList(res.getError()));
+			}
+		}
+		
+		for(BookBulkItemDTO item : items) {
+			sink.accept(item);
+		}
+	}
+	
+	private List<String> validate(BookDTO dto) {
+		if(dto == null) {
+			return Collections.singletonList("JSON inválido");
+		}
+		return validator.validate(dto)
+				.stream()
+				.map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+				.collect(Collectors.toList());
+	}
 	
 	@ExceptionHandler(MethodArgumentNotValidException.class)
 	@ResponseStatus(HttpStatus.BAD_REQUEST)
 	public ApiErrors handlerValidationException(MethodArgumentNotValidException e) {
+		metrics.error("validation");
 		BindingResult res = e.getBindingResult();
 		return new ApiErrors(res);
 	}
 	
+	//Outra requisição alterou o livro entre a leitura e a gravação
+	@ExceptionHandler(ObjectOptimisticLockingFailureException.class)
+	@ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+	public ApiErrors handlerOptimisticLockingException(ObjectOptimisticLockingFailureException e) {
+		metrics.error("conflict");
+		return new ApiErrors("O livro foi alterado por outra requisição");
+	}
+	
+	@ExceptionHandler(BookSearchIndex.RebuildInProgressException.class)
+	@ResponseStatus(HttpStatus.CONFLICT)
+	public ApiErrors handlerRebuildInProgressException(BookSearchIndex.RebuildInProgressException e) {
+		metrics.error("conflict");
+		return new ApiErrors(e.getMessage());
+	}
+	
+	//Fila da gravação assíncrona cheia
+	@ExceptionHandler(RejectedExecutionException.class)
+	public ResponseEntity<ApiErrors> handlerRejectedExecutionException(RejectedExecutionException e) {
+		metrics.error("backpressure");
+		return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+				.header(HttpHeaders.RETRY_AFTER, "1")
+				.body(new ApiErrors("Muitas requisições, tente novamente em instantes"));
+	}
+	
 	@ExceptionHandler(BusinessException.class)
 	@ResponseStatus(HttpStatus.BAD_REQUEST)
 	public ApiErrors handlerBusinessException(BusinessException e) {
+		metrics.error("business");
 		return new ApiErrors(e);
 	}
 	
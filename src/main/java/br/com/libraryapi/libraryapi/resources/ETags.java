@@ -0,0 +1,80 @@
+package br.com.libraryapi.libraryapi.resources;
+
+import br.com.libraryapi.libraryapi.domain.Book;
+
+/**
+ * ETags dos recursos de livro, derivados da coluna {@code @Version}.
+ */
+public final class ETags {
+	
+	private ETags() {
+		
+	}
+	
+	/**
+	 * ETag forte no formato {@code "<versão>"}, ou {@code null} se o livro
+	 * ainda não tem versão.
+	 */
+	public static String of(Book book) {
+		return book.getVersion() == null ? null : "\"" + book.getVersion() + "\"";
+	}
+	
+	/**
+	 * Comparação fraca, para {@code If-None-Match}: verifica se o cabeçalho
+	 * (lista separada por vírgulas ou {@code *}) contém a ETag informada,
+	 * ignorando o prefixo de ETag fraca ({@code W/}).
+	 */
+	public static boolean matches(String header, String etag) {
+		return matches(header, etag, false);
+	}
+	
+	/**
+	 * Comparação forte, para {@code If-Match}: como {@link #matches}, mas uma
+	 * ETag fraca ({@code W/}) do cabeçalho nunca casa (RFC 7232, seção 2.3.2).
+	 */
+	public static boolean matchesStrong(String header, String etag) {
+		return matches(header, etag, true);
+	}
+	
+	private static boolean matches(String header, String etag, boolean strong) {
+		if(header == null) {
+			return false;
+		}
+		for(String candidate : header.split(",")) {
+			String value = candidate.trim();
+			if("*".equals(value)) {
+				return true;
+			}
+			if(value.startsWith("W/")) {
+				if(strong) {
+					continue;
+				}
+				value = value.substring(2);
+			}
+			if(etag != null && value.equals(etag)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Extrai a versão de um cabeçalho {@code If-Match} com uma única ETag
+	 * forte, ou {@code null} se o cabeçalho não tiver esse formato.
+	 */
+	public static Long version(String header) {
+		if(header == null) {
+			return null;
+		}
+		String value = header.trim();
+		if(value.length() < 3 || value.charAt(0) != '"' || value.charAt(value.length() - 1) != '"') {
+			return null;
+		}
+		try {
+			return Long.valueOf(value.substring(1, value.length() - 1));
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+}
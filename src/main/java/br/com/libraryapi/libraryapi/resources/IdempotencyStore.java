@@ -0,0 +1,124 @@
+package br.com.libraryapi.libraryapi.resources;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * Respostas já produzidas para cada {@code Idempotency-Key}, em memória local
+ * com tamanho máximo e expiração.
+ * 
+ * A primeira requisição com uma chave executa a ação; as repetidas recebem a
+ * mesma resposta (com {@value #REPLAYED_HEADER}) sem executá-la de novo, e as
+ * que chegam enquanto a primeira ainda está em andamento esperam por ela.
+ * Falhas não são guardadas: a exceção é repassada às requisições que estavam
+ * esperando e uma nova tentativa executa a ação outra vez. Reusar a chave com
+ * outro corpo é erro 422.
+ * 
+ * Como o armazenamento é local, com mais de uma instância da aplicação as
+ * repetições só são reconhecidas quando caem na mesma instância.
+ */
+@Component
+public class IdempotencyStore {
+	
+	public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+	
+	public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+	
+	private static final int MAX_KEY_LENGTH = 255;
+	
+	private final Cache<String, Entry> entries;
+	
+	private final long waitTimeoutMillis;
+	
+	public IdempotencyStore(@Value("${library.idempotency.maximum-size:100000}") long maximumSize,
+			@Value("${library.idempotency.expire-after-minutes:1440}") long expireAfterMinutes,
+			@Value("${library.idempotency.wait-timeout-millis:30000}") long waitTimeoutMillis) {
+		this.entries = Caffeine.newBuilder()
+				.maximumSize(maximumSize)
+				.expireAfterWrite(expireAfterMinutes, TimeUnit.MINUTES)
+				.build();
+		this.waitTimeoutMillis = waitTimeoutMillis;
+	}
+	
+	/**
+	 * Executa {@code action} apenas na primeira requisição com {@code key}.
+	 * {@code fingerprint} identifica o conteúdo da requisição e precisa ser o
+	 * mesmo nas repetições.
+	 */
+	public ResponseEntity<?> execute(String key, String fingerprint, Supplier<ResponseEntity<?>> action) {
+		if(key.isEmpty() || key.length() > MAX_KEY_LENGTH) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, IDEMPOTENCY_KEY_HEADER + " deve ter de 1 a " + MAX_KEY_LENGTH + " caracteres");
+		}
+		Entry created = new Entry(fingerprint);
+		Entry entry = entries.asMap().putIfAbsent(key, created);
+		if(entry == null) {
+			return run(key, created, action);
+		}
+		if(!entry.fingerprint.equals(fingerprint)) {
+			throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY, IDEMPOTENCY_KEY_HEADER + " já usada com outra requisição");
+		}
+		return replay(await(entry));
+	}
+	
+	private ResponseEntity<?> run(String key, Entry entry, Supplier<ResponseEntity<?>> action) {
+		try {
+			ResponseEntity<?> response = action.get();
+			entry.response.complete(response);
+			return response;
+		} catch (RuntimeException | Error e) {
+			//Remove antes de liberar quem espera, para que a nova tentativa execute
+			entries.asMap().remove(key, entry);
+			entry.response.completeExceptionally(e);
+			throw e;
+		}
+	}
+	
+	private ResponseEntity<?> await(Entry entry) {
+		try {
+			return entry.response.get(waitTimeoutMillis, TimeUnit.MILLISECONDS);
+		} catch (ExecutionException e) {
+			//Mesma resposta de erro da requisição original
+			if(e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw (Error) e.getCause();
+		} catch (TimeoutException e) {
+			throw new ResponseStatusException(HttpStatus.CONFLICT, "Requisição com a mesma " + IDEMPOTENCY_KEY_HEADER + " ainda em andamento");
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE);
+		}
+	}
+	
+	private static ResponseEntity<?> replay(ResponseEntity<?> response) {
+		return ResponseEntity.status(response.getStatusCode())
+				.headers(response.getHeaders())
+				.header(REPLAYED_HEADER, "true")
+				.body(response.getBody());
+	}
+	
+	private static class Entry {
+		
+		private final String fingerprint;
+		
+		private final CompletableFuture<ResponseEntity<?>> response = new CompletableFuture<>();
+		
+		private Entry(String fingerprint) {
+			this.fingerprint = fingerprint;
+		}
+		
+	}
+	
+}
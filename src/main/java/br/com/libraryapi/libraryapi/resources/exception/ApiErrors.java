@@ -16,7 +16,11 @@ public class ApiErrors {
 	}
 	
 	public ApiErrors(BusinessException e) {
-		this.errors = Arrays.asList(e.getMessage());
+		this(e.getMessage());
+	}
+	
+	public ApiErrors(String message) {
+		this.errors = Arrays.asList(message);
 	}
 
 	public List<String> getErrors(){
@@ -0,0 +1,117 @@
+package br.com.libraryapi.libraryapi.resources.filter;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limite de requisições simultâneas ajustado pela latência observada (AIMD):
+ * a cada janela, se a latência média passou de {@code tolerance} vezes a
+ * menor média já vista, o limite é multiplicado por {@code backoff}; senão, e
+ * se a janela chegou perto do limite, aumenta em 1. Assim o limite acompanha
+ * o ponto em que o banco e o pool de conexões começam a enfileirar, sem um
+ * valor fixo a ajustar por ambiente.
+ * 
+ * Sem locks no caminho da requisição: a vaga é reservada por CAS em
+ * {@code inflight} e as latências somadas em {@link LongAdder}. Quem
+ * encerra a janela (um CAS em {@code windowStart}) recalcula o limite; as
+ * amostras que chegam durante o recálculo entram na janela seguinte.
+ */
+public class AdaptiveConcurrencyLimit {
+	
+	private final int minLimit;
+	private final int maxLimit;
+	private final double tolerance;
+	private final double backoff;
+	private final long windowNanos;
+	private final int minSamples;
+	
+	private final AtomicInteger inflight = new AtomicInteger();
+	private volatile double limit;
+	
+	private final AtomicLong windowStart = new AtomicLong(System.nanoTime());
+	private final LongAdder latencySum = new LongAdder();
+	private final LongAdder samples = new LongAdder();
+	//Alguma requisição da janela encontrou mais da metade do limite em uso
+	private volatile boolean saturated;
+	//Menor latência média por janela: referência de "sem fila"
+	private volatile long baselineNanos = Long.MAX_VALUE;
+	
+	public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double tolerance, double backoff,
+			long windowNanos, int minSamples) {
+		this.limit = initialLimit;
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.tolerance = tolerance;
+		this.backoff = backoff;
+		this.windowNanos = windowNanos;
+		this.minSamples = minSamples;
+	}
+	
+	/**
+	 * Reserva uma vaga; se retornar {@code true}, {@link #release} deve ser
+	 * chamado ao final da requisição.
+	 */
+	public boolean tryAcquire() {
+		int limit = getLimit();
+		int current;
+		do {
+			current = inflight.get();
+			if(current >= limit) {
+				return false;
+			}
+		} while(!inflight.compareAndSet(current, current + 1));
+		if(current * 2 >= limit) {
+			saturated = true;
+		}
+		return true;
+	}
+	
+	/**
+	 * Devolve a vaga com a duração da requisição.
+	 */
+	public void release(long elapsedNanos) {
+		inflight.decrementAndGet();
+		latencySum.add(elapsedNanos);
+		samples.increment();
+		long start = windowStart.get();
+		long now = System.nanoTime();
+		if(now - start >= windowNanos && samples.sum() >= minSamples && windowStart.compareAndSet(start, now)) {
+			adjust();
+		}
+	}
+	
+	/**
+	 * Devolve a vaga sem registrar a latência (requisição que não chegou a
+	 * ser processada).
+	 */
+	public void cancel() {
+		inflight.decrementAndGet();
+	}
+	
+	public int getLimit() {
+		return (int) limit;
+	}
+	
+	public int getInflight() {
+		return inflight.get();
+	}
+	
+	private void adjust() {
+		long count = samples.sumThenReset();
+		long average = latencySum.sumThenReset() / Math.max(count, 1);
+		boolean wasSaturated = saturated;
+		saturated = false;
+		
+		long baseline = Math.min(baselineNanos, average);
+		if(average > baseline * tolerance) {
+			limit = Math.max(minLimit, limit * backoff);
+			//A referência sobe devagar: uma janela atípica não a prende para sempre
+			baseline += (long) ((average - baseline) * 0.05);
+		} else if(wasSaturated) {
+			limit = Math.min(maxLimit, limit + 1);
+		}
+		baselineNanos = baseline;
+	}
+
+}
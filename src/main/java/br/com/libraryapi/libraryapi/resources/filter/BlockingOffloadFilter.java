@@ -0,0 +1,200 @@
+package br.com.libraryapi.libraryapi.resources.filter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.DispatcherType;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.Servlet;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Modo de execução "offload": libera a thread do Tomcat assim que a
+ * requisição chega e executa o DispatcherServlet (controller, service e JDBC)
+ * em um executor limitado. Requisições aguardando na fila não ocupam thread;
+ * se a fila estiver cheia a resposta é 503 com Retry-After.
+ * 
+ * Deve ser o último filtro da cadeia: a cadeia do Tomcat não pode ser
+ * continuada em outra thread, então o servlet é chamado diretamente. Ao final
+ * a requisição é despachada de volta ao container (ASYNC), passando pelos
+ * filtros anteriores (métricas, páginas de erro) sem executar o servlet de novo.
+ * 
+ * Se o prazo ({@code timeoutMillis}) vence com a requisição ainda na fila, ela
+ * recebe 503 com Retry-After e é descartada quando chegar a vez dela no
+ * executor. Se vence durante o processamento, o container espera o executor
+ * terminar a resposta já iniciada.
+ * 
+ * Endpoints que iniciam processamento assíncrono próprio (streaming, SSE,
+ * long-poll) devem ficar em {@code excludedPaths}, pois a requisição só pode
+ * entrar em modo assíncrono uma vez por despacho.
+ */
+public class BlockingOffloadFilter implements Filter {
+	
+	private static final Logger log = LoggerFactory.getLogger(BlockingOffloadFilter.class);
+	
+	private static final String OFFLOADED = BlockingOffloadFilter.class.getName() + ".OFFLOADED";
+	
+	private final Servlet servlet;
+	private final Executor executor;
+	private final long timeoutMillis;
+	private final List<String> excludedPaths;
+	
+	public BlockingOffloadFilter(Servlet servlet, Executor executor, long timeoutMillis, List<String> excludedPaths) {
+		this.servlet = servlet;
+		this.executor = executor;
+		this.timeoutMillis = timeoutMillis;
+		this.excludedPaths = excludedPaths;
+	}
+
+	@Override
+	public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+		if(request.getDispatcherType() == DispatcherType.ASYNC && request.getAttribute(OFFLOADED) != null) {
+			//Resposta já produzida pelo executor
+			return;
+		}
+		if(request.getDispatcherType() != DispatcherType.REQUEST || !request.isAsyncSupported() || isExcluded((HttpServletRequest) request)) {
+			chain.doFilter(request, response);
+			return;
+		}
+		
+		AsyncContext async = request.startAsync(request, response);
+		async.setTimeout(timeoutMillis);
+		Exchange exchange = new Exchange(async);
+		async.addListener(exchange);
+		try {
+			executor.execute(() -> process(exchange));
+		} catch (RejectedExecutionException e) {
+			if(exchange.start()) {
+				unavailable((HttpServletResponse) async.getResponse());
+				finish(exchange);
+			}
+		}
+	}
+	
+	private void process(Exchange exchange) {
+		//Expirou na fila: o listener já respondeu e a requisição pode ter sido reciclada
+		if(!exchange.start()) {
+			return;
+		}
+		AsyncContext async = exchange.async;
+		try {
+			servlet.service(async.getRequest(), async.getResponse());
+		} catch (Exception e) {
+			log.error("Erro ao processar requisição", e);
+			HttpServletResponse response = (HttpServletResponse) async.getResponse();
+			if(!response.isCommitted()) {
+				response.setStatus(HttpStatus.INTERNAL_SERVER_ERROR.value());
+			}
+		} finally {
+			finish(exchange);
+		}
+	}
+	
+	private void finish(Exchange exchange) {
+		//Só despacha um contexto ainda ativo, iniciado por este executor
+		if(exchange.finish()) {
+			exchange.async.getRequest().setAttribute(OFFLOADED, Boolean.TRUE);
+			exchange.async.dispatch();
+			exchange.finished.countDown();
+		}
+	}
+	
+	private static void unavailable(HttpServletResponse response) {
+		response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+		response.setHeader("Retry-After", "1");
+	}
+	
+	private boolean isExcluded(HttpServletRequest request) {
+		String path = request.getRequestURI().substring(request.getContextPath().length());
+		for(String excluded : excludedPaths) {
+			if(!excluded.isEmpty() && path.startsWith(excluded)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Uma requisição desviada para o executor. Sai de {@code PENDING} uma única
+	 * vez: para {@code RUNNING}, quando o executor a inicia, ou para
+	 * {@code CANCELLED}, quando o prazo vence ou a conexão falha antes disso.
+	 */
+	private static final class Exchange implements AsyncListener {
+		
+		private static final int PENDING = 0;
+		private static final int RUNNING = 1;
+		private static final int CANCELLED = 2;
+		private static final int FINISHED = 3;
+		
+		private final AsyncContext async;
+		private final AtomicInteger state = new AtomicInteger(PENDING);
+		private final CountDownLatch finished = new CountDownLatch(1);
+		
+		Exchange(AsyncContext async) {
+			this.async = async;
+		}
+		
+		boolean start() {
+			return state.compareAndSet(PENDING, RUNNING);
+		}
+		
+		boolean finish() {
+			return state.compareAndSet(RUNNING, FINISHED);
+		}
+		
+		@Override
+		public void onTimeout(AsyncEvent event) throws IOException {
+			cancel();
+		}
+		
+		@Override
+		public void onError(AsyncEvent event) throws IOException {
+			cancel();
+		}
+		
+		@Override
+		public void onComplete(AsyncEvent event) {
+			
+		}
+		
+		@Override
+		public void onStartAsync(AsyncEvent event) {
+			
+		}
+		
+		private void cancel() {
+			if(state.compareAndSet(PENDING, CANCELLED)) {
+				unavailable((HttpServletResponse) async.getResponse());
+				async.complete();
+				return;
+			}
+			if(state.get() == RUNNING) {
+				//Já em processamento: o dispatch do executor encerra a requisição; encerrá-la
+				//aqui deixaria o executor escrevendo em uma resposta reciclada
+				try {
+					finished.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+		
+	}
+
+}
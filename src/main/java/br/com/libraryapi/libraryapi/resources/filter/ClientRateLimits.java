@@ -0,0 +1,89 @@
+package br.com.libraryapi.libraryapi.resources.filter;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * Token bucket por cliente: {@code rate} requisições por segundo, com rajadas
+ * de até {@code burst}. Cada balde é um único {@link AtomicLong} com o
+ * instante em que ele volta a ficar cheio (GCRA, equivalente ao token
+ * bucket), atualizado por CAS; clientes diferentes não disputam nada além do
+ * mapa do Caffeine, que já é particionado. Também conta as requisições em
+ * andamento de cada cliente, para que nenhum ocupe todo o limite de
+ * concorrência.
+ * 
+ * Clientes sem requisições por {@code idle} saem do mapa; ao voltar, começam
+ * com o balde cheio, o mesmo estado que teriam depois de tanto tempo parados.
+ */
+public class ClientRateLimits {
+	
+	private final long intervalNanos;
+	private final long burstNanos;
+	private final Cache<String, Client> clients;
+	
+	public ClientRateLimits(double rate, int burst, Duration idle, long maximumClients) {
+		this.intervalNanos = (long) (1_000_000_000L / rate);
+		this.burstNanos = intervalNanos * burst;
+		this.clients = Caffeine.newBuilder()
+				.expireAfterAccess(idle)
+				.maximumSize(maximumClients)
+				.build();
+	}
+	
+	public Client client(String id) {
+		return clients.get(id, key -> new Client());
+	}
+	
+	public long getClientCount() {
+		return clients.estimatedSize();
+	}
+	
+	public class Client {
+		
+		//Instante (nanoTime) em que o balde estará cheio de novo; no passado, já está
+		private final AtomicLong fullAt = new AtomicLong(System.nanoTime());
+		private final AtomicInteger inflight = new AtomicInteger();
+		
+		/**
+		 * Consome um token. Retorna 0 se havia token ou, se não havia, quantos
+		 * nanossegundos faltam para o próximo.
+		 */
+		public long tryConsume() {
+			long now = System.nanoTime();
+			long current;
+			long next;
+			do {
+				current = fullAt.get();
+				next = Math.max(current, now) + intervalNanos;
+				if(next - now > burstNanos) {
+					return next - now - burstNanos;
+				}
+			} while(!fullAt.compareAndSet(current, next));
+			return 0;
+		}
+		
+		/**
+		 * Reserva uma das {@code max} vagas simultâneas do cliente.
+		 */
+		public boolean tryAcquire(int max) {
+			int current;
+			do {
+				current = inflight.get();
+				if(current >= max) {
+					return false;
+				}
+			} while(!inflight.compareAndSet(current, current + 1));
+			return true;
+		}
+		
+		public void release() {
+			inflight.decrementAndGet();
+		}
+		
+	}
+
+}
@@ -0,0 +1,178 @@
+package br.com.libraryapi.libraryapi.resources.filter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import br.com.libraryapi.libraryapi.resources.exception.ApiErrors;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Limites por cliente em /api/books, antes de a requisição chegar ao
+ * controller e ao pool de conexões:
+ * <ul>
+ * <li>taxa: token bucket por cliente ({@link ClientRateLimits});</li>
+ * <li>concorrência: vaga no limite adaptativo global
+ * ({@link AdaptiveConcurrencyLimit}), e cada cliente ocupa no máximo
+ * {@code clientShare} dele.</li>
+ * </ul>
+ * O cliente é o cabeçalho {@code clientHeader} (a chave da integração) ou,
+ * sem ele, o endereço de origem. A chave não é validada aqui: para que
+ * trocar de chave a cada requisição não fure o limite, requisições com
+ * chave também passam pelo balde do endereço de origem ({@code addresses},
+ * com taxa própria, maior, por causa dos clientes atrás do mesmo proxy).
+ * Requisições recusadas recebem 429 com
+ * Retry-After e são contadas em {@code library.book.limiter.rejected}, com a
+ * tag {@code reason} ({@code rate} ou {@code concurrency}).
+ * 
+ * Endpoints de longa duração ({@code excludedPaths}: exportação, long-poll e
+ * SSE do feed) passam só pelo limite de taxa: ocupariam vagas por minutos e
+ * distorceriam a latência usada para ajustar o limite.
+ */
+public class RateLimitFilter implements Filter {
+	
+	public static final String REJECTED_COUNTER = "library.book.limiter.rejected";
+	
+	private final ClientRateLimits clients;
+	private final ClientRateLimits addresses;
+	private final AdaptiveConcurrencyLimit concurrency;
+	private final double clientShare;
+	private final String clientHeader;
+	private final List<String> excludedPaths;
+	private final ObjectMapper objectMapper;
+	private final Counter rateRejected;
+	private final Counter concurrencyRejected;
+	
+	public RateLimitFilter(ClientRateLimits clients, ClientRateLimits addresses, AdaptiveConcurrencyLimit concurrency, double clientShare,
+			String clientHeader, List<String> excludedPaths, ObjectMapper objectMapper, MeterRegistry registry) {
+		this.clients = clients;
+		this.addresses = addresses;
+		this.concurrency = concurrency;
+		this.clientShare = clientShare;
+		this.clientHeader = clientHeader;
+		this.excludedPaths = excludedPaths;
+		this.objectMapper = objectMapper;
+		this.rateRejected = registry.counter(REJECTED_COUNTER, "reason", "rate");
+		this.concurrencyRejected = registry.counter(REJECTED_COUNTER, "reason", "concurrency");
+	}
+	
+	@Override
+	public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+		HttpServletRequest httpRequest = (HttpServletRequest) request;
+		HttpServletResponse httpResponse = (HttpServletResponse) response;
+		String key = httpRequest.getHeader(clientHeader);
+		boolean keyed = key != null && !key.isEmpty();
+		ClientRateLimits.Client client = clients.client(keyed ? key : httpRequest.getRemoteAddr());
+		
+		long waitNanos = client.tryConsume();
+		if(waitNanos <= 0 && keyed) {
+			waitNanos = addresses.client(httpRequest.getRemoteAddr()).tryConsume();
+		}
+		if(waitNanos > 0) {
+			rateRejected.increment();
+			reject(httpResponse, Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999)));
+			return;
+		}
+		if(isExcluded(httpRequest)) {
+			chain.doFilter(request, response);
+			return;
+		}
+		
+		if(!concurrency.tryAcquire()) {
+			concurrencyRejected.increment();
+			reject(httpResponse, 1);
+			return;
+		}
+		if(!client.tryAcquire(Math.max(1, (int) Math.ceil(concurrency.getLimit() * clientShare)))) {
+			concurrency.cancel();
+			concurrencyRejected.increment();
+			reject(httpResponse, 1);
+			return;
+		}
+		
+		long start = System.nanoTime();
+		AtomicBoolean released = new AtomicBoolean();
+		Runnable release = () -> {
+			if(released.compareAndSet(false, true)) {
+				client.release();
+				concurrency.release(System.nanoTime() - start);
+			}
+		};
+		try {
+			chain.doFilter(request, response);
+		} finally {
+			if(request.isAsyncStarted()) {
+				//Modo offload: a vaga fica ocupada até a resposta sair do executor
+				request.getAsyncContext().addListener(new ReleasingListener(release));
+			} else {
+				release.run();
+			}
+		}
+	}
+	
+	private void reject(HttpServletResponse response, long retryAfterSeconds) throws IOException {
+		response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+		response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+		response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+		objectMapper.writeValue(response.getOutputStream(), new ApiErrors("Muitas requisições, tente novamente em instantes"));
+	}
+	
+	private boolean isExcluded(HttpServletRequest request) {
+		String path = request.getRequestURI().substring(request.getContextPath().length());
+		for(String excluded : excludedPaths) {
+			if(!excluded.isEmpty() && path.startsWith(excluded)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	private static class ReleasingListener implements AsyncListener {
+		
+		private final Runnable release;
+		
+		ReleasingListener(Runnable release) {
+			this.release = release;
+		}
+		
+		@Override
+		public void onComplete(AsyncEvent event) {
+			release.run();
+		}
+		
+		@Override
+		public void onTimeout(AsyncEvent event) {
+			release.run();
+		}
+		
+		@Override
+		public void onError(AsyncEvent event) {
+			release.run();
+		}
+		
+		@Override
+		public void onStartAsync(AsyncEvent event) {
+			
+		}
+		
+	}
+
+}
@@ -0,0 +1,35 @@
+package br.com.libraryapi.libraryapi.services;
+
+import br.com.libraryapi.libraryapi.domain.Book;
+
+public class BookSaveResult {
+	
+	private final Book book;
+	private final String error;
+	
+	private BookSaveResult(Book book, String error) {
+		this.book = book;
+		this.error = error;
+	}
+	
+	public static BookSaveResult success(Book book) {
+		return new BookSaveResult(book, null);
+	}
+	
+	public static BookSaveResult failure(Book book, String error) {
+		return new BookSaveResult(book, error);
+	}
+	
+	public boolean isSuccess() {
+		return error == null;
+	}
+
+	public Book getBook() {
+		return book;
+	}
+
+	public String getError() {
+		return error;
+	}
+
+}
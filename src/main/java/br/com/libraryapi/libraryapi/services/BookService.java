@@ -1,6 +1,13 @@
 package br.com.libraryapi.libraryapi.services;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 
 import br.com.libraryapi.libraryapi.domain.Book;
 
@@ -8,10 +15,74 @@ public interface BookService {
 	
 	public Book save(Book book);
 	
+	/**
+	 * Salva um lote de livros com uma única verificação de ISBN duplicado e
+	 * inserts em batch. O resultado tem a mesma ordem da lista recebida e
+	 * indica, por registro, o livro salvo ou o motivo da falha.
+	 */
+	public List<BookSaveResult> saveAll(List<Book> books);
+	
+	/**
+	 * Verifica se já existe livro com o ISBN, consultando a base apenas quando
+	 * o índice de ISBNs não garante que ele é novo.
+	 */
+	public boolean isbnExists(String isbn);
+	
+	/**
+	 * Busca o livro pelo ID. O livro devolvido é a instância guardada no
+	 * cache e não deve ser alterado; para atualizar, altere uma cópia
+	 * ({@link Book#Book(Book)}) e passe-a ao {@link #update}.
+	 */
 	public Optional<Book> getById(Long id);
 	
+	/**
+	 * Busca vários livros por ID. Os que estão no cache não vão à base; os
+	 * demais são lidos com consultas IN em blocos. Retorna apenas os
+	 * encontrados, na ordem dos IDs informados.
+	 */
+	public Map<Long, Book> getAllById(Collection<Long> ids);
+	
+	public Optional<Book> getByIsbn(String isbn);
+	
+	/**
+	 * Lista os livros que atendem ao filtro usando paginação por chave
+	 * (keyset): retorna até {@code size} livros com ID maior que
+	 * {@code afterId}, ordenados pelo ID, sem executar {@code COUNT(*)}. Com
+	 * filtro de título ou autor o custo de cada página depende de quantos
+	 * livros casam com o prefixo (ver {@code BookSpecifications}).
+	 */
+	public Slice<Book> find(Book filter, Long afterId, int size);
+	
+	public long count(Book filter);
+	
+	/**
+	 * Busca textual por título e autor, ordenada por relevância.
+	 */
+	public Page<Book> search(String query, int page, int size);
+	
+	/**
+	 * Reconstrói o índice de busca a partir da base e retorna a quantidade de
+	 * livros indexados.
+	 */
+	public long rebuildSearchIndex();
+	
+	/**
+	 * Percorre todos os livros em ordem de ID com um cursor da base, sem
+	 * carregá-los de uma vez, e retorna a quantidade exportada.
+	 */
+	public long export(Consumer<Book> consumer);
+	
 	public void delete(Book book);
 
 	Book update(Book book);
 	
+	/**
+	 * Altera apenas os campos não nulos de {@code changes} (título e autor) com
+	 * um único UPDATE, sem o SELECT do merge quando o livro está no cache de
+	 * segundo nível. Com {@code expectedVersion} informada, falha com
+	 * {@link org.springframework.orm.ObjectOptimisticLockingFailureException}
+	 * se a versão atual for outra. Vazio se o livro não existir.
+	 */
+	Optional<Book> patch(Long id, Long expectedVersion, Book changes);
+	
 }
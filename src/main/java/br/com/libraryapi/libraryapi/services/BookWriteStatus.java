@@ -0,0 +1,54 @@
+package br.com.libraryapi.libraryapi.services;
+
+import br.com.libraryapi.libraryapi.domain.Book;
+
+/**
+ * Situação de um livro aceito pela gravação assíncrona (write-behind).
+ */
+public class BookWriteStatus {
+	
+	public enum State {
+		PENDING, CREATED, FAILED
+	}
+	
+	private final String ticket;
+	private final State state;
+	private final Book book;
+	private final String error;
+	
+	private BookWriteStatus(String ticket, State state, Book book, String error) {
+		this.ticket = ticket;
+		this.state = state;
+		this.book = book;
+		this.error = error;
+	}
+	
+	public static BookWriteStatus pending(String ticket, Book book) {
+		return new BookWriteStatus(ticket, State.PENDING, book, null);
+	}
+	
+	public static BookWriteStatus created(String ticket, Book book) {
+		return new BookWriteStatus(ticket, State.CREATED, book, null);
+	}
+	
+	public static BookWriteStatus failed(String ticket, Book book, String error) {
+		return new BookWriteStatus(ticket, State.FAILED, book, error);
+	}
+
+	public String getTicket() {
+		return ticket;
+	}
+
+	public State getState() {
+		return state;
+	}
+
+	public Book getBook() {
+		return book;
+	}
+
+	public String getError() {
+		return error;
+	}
+
+}
@@ -0,0 +1,169 @@
+package br.com.libraryapi.libraryapi.services.impl;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+
+import br.com.libraryapi.libraryapi.datasource.ShardContext;
+import br.com.libraryapi.libraryapi.domain.BookChange;
+import br.com.libraryapi.libraryapi.repositories.BookChangeRepository;
+
+/**
+ * Feed das alterações já publicadas pelo {@link BookChangeRelay}, lido por
+ * posição. Consumidores podem ler a partir de um cursor ({@link #read}) ou
+ * assinar o feed ({@link #subscribe}) para receber as próximas alterações
+ * assim que forem publicadas (long-poll e SSE).
+ * 
+ * A entrega a cada assinatura roda em um pool próprio, para que um cliente
+ * lento não atrase o relay. Cada assinatura guarda a última posição
+ * entregue: um lote que chega fora de ordem ou depois de um intervalo é
+ * completado com uma leitura da base, então nada é pulado nem repetido.
+ * 
+ * Com shards, a leitura junta pela posição as primeiras alterações de cada
+ * shard (ver {@link BookChangeRelay}).
+ */
+public class BookChangeFeed implements AutoCloseable {
+	
+	private static final Logger log = LoggerFactory.getLogger(BookChangeFeed.class);
+	
+	private final BookChangeRepository repo;
+	private final int pageSize;
+	private final int shards;
+	private final ExecutorService executor;
+	private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+	
+	public BookChangeFeed(BookChangeRepository repo, int pageSize, int threads) {
+		this(repo, pageSize, threads, 1);
+	}
+	
+	public BookChangeFeed(BookChangeRepository repo, int pageSize, int threads, int shards) {
+		this.repo = repo;
+		this.pageSize = pageSize;
+		this.shards = shards;
+		AtomicInteger counter = new AtomicInteger();
+		this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "book-change-feed-" + counter.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+	
+	/**
+	 * Até {@code limit} alterações publicadas depois da posição {@code since}.
+	 */
+	public List<BookChange> read(long since, int limit) {
+		if(shards == 1) {
+			return repo.findPublishedAfter(since, PageRequest.of(0, limit));
+		}
+		List<BookChange> changes = new ArrayList<>();
+		for(int shard = 0; shard < shards; shard++) {
+			changes.addAll(ShardContext.call(shard, () -> repo.findPublishedAfter(since, PageRequest.of(0, limit))));
+		}
+		changes.sort(Comparator.comparing(BookChange::getPosition));
+		return changes.size() > limit ? changes.subList(0, limit) : changes;
+	}
+	
+	/**
+	 * Entrega a {@code consumer}, em ordem, as alterações depois de
+	 * {@code since}: primeiro as que já estão na base e depois as que forem
+	 * publicadas. A assinatura termina quando {@code consumer} retorna
+	 * {@code false} ou lança exceção, ou com {@link Subscription#cancel()}.
+	 */
+	public Subscription subscribe(long since, Predicate<List<BookChange>> consumer) {
+		Subscription subscription = new Subscription(since, consumer);
+		subscriptions.add(subscription);
+		executor.execute(subscription::catchUp);
+		return subscription;
+	}
+	
+	public int getSubscriptionCount() {
+		return subscriptions.size();
+	}
+	
+	void published(List<BookChange> batch) {
+		for(Subscription subscription : subscriptions) {
+			executor.execute(() -> subscription.deliver(batch));
+		}
+	}
+	
+	@Override
+	public void close() {
+		subscriptions.forEach(Subscription::cancel);
+		executor.shutdownNow();
+	}
+	
+	public class Subscription {
+		
+		private final Predicate<List<BookChange>> consumer;
+		private long cursor;
+		private volatile boolean active = true;
+		
+		private Subscription(long since, Predicate<List<BookChange>> consumer) {
+			this.cursor = since;
+			this.consumer = consumer;
+		}
+		
+		public void cancel() {
+			active = false;
+			subscriptions.remove(this);
+		}
+		
+		private synchronized void deliver(List<BookChange> batch) {
+			if(!active) {
+				return;
+			}
+			if(batch.get(0).getPosition() > cursor + 1) {
+				//Lote anterior ainda não entregue a esta assinatura
+				catchUp();
+				return;
+			}
+			send(batch.stream().filter(change -> change.getPosition() > cursor).collect(Collectors.toList()));
+		}
+		
+		private synchronized void catchUp() {
+			List<BookChange> changes;
+			do {
+				if(!active) {
+					return;
+				}
+				try {
+					changes = read(cursor, pageSize);
+				} catch (RuntimeException e) {
+					log.warn("Falha ao ler alterações de livros; assinatura encerrada", e);
+					cancel();
+					return;
+				}
+				send(changes);
+			} while(changes.size() == pageSize);
+		}
+		
+		private void send(List<BookChange> changes) {
+			if(changes.isEmpty()) {
+				return;
+			}
+			cursor = changes.get(changes.size() - 1).getPosition();
+			boolean keep;
+			try {
+				keep = consumer.test(changes);
+			} catch (RuntimeException e) {
+				keep = false;
+			}
+			if(!keep) {
+				cancel();
+			}
+		}
+	
+	}
+
+}
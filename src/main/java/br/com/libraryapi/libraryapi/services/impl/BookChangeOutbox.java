@@ -0,0 +1,120 @@
+package br.com.libraryapi.libraryapi.services.impl;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+
+import br.com.libraryapi.libraryapi.domain.Book;
+import br.com.libraryapi.libraryapi.domain.BookChange;
+
+/**
+ * Grava em {@link BookChange#TABLE} cada insert, update e delete de
+ * {@link Book} feito pelo Hibernate, na mesma transação e conexão da
+ * alteração (o mesmo mecanismo do Envers): os eventos do flush são
+ * acumulados por sessão e inseridos em um único batch JDBC logo antes do
+ * commit. Se a transação for desfeita, nada é gravado.
+ * 
+ * Vale para todos os caminhos que passam pela sessão (save, saveAll, update,
+ * patch, delete e a gravação assíncrona), mas não para UPDATE/DELETE em
+ * JPQL ou SQL nativo, que a aplicação não usa em livros.
+ */
+public class BookChangeOutbox implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+	
+	private static final long serialVersionUID = 1L;
+	
+	private static final String INSERT = "insert into " + BookChange.TABLE
+			+ " (book_id, type, title, author, isbn, book_version, occurred_at) values (?, ?, ?, ?, ?, ?, ?)";
+	
+	//Alterações da transação em andamento de cada sessão
+	private final transient Map<EventSource, List<BookChange>> pending = new ConcurrentHashMap<>();
+	
+	//Avisa o relay depois do commit, para publicar sem esperar o próximo ciclo
+	private final transient Runnable onCommit;
+	
+	public BookChangeOutbox(Runnable onCommit) {
+		this.onCommit = onCommit;
+	}
+	
+	@Override
+	public void onPostInsert(PostInsertEvent event) {
+		record(event.getSession(), event.getEntity(), BookChange.Type.CREATED);
+	}
+	
+	@Override
+	public void onPostUpdate(PostUpdateEvent event) {
+		record(event.getSession(), event.getEntity(), BookChange.Type.UPDATED);
+	}
+	
+	@Override
+	public void onPostDelete(PostDeleteEvent event) {
+		record(event.getSession(), event.getEntity(), BookChange.Type.DELETED);
+	}
+	
+	//O registro é gravado antes do commit, na mesma transação
+	@Override
+	public boolean requiresPostCommitHandling(EntityPersister persister) {
+		return false;
+	}
+	
+	//Abstrato (e com o nome errado) no Hibernate 5.4; o correto acima é o que ele chama
+	@Override
+	@SuppressWarnings("deprecation")
+	public boolean requiresPostCommitHanding(EntityPersister persister) {
+		return requiresPostCommitHandling(persister);
+	}
+	
+	private void record(EventSource session, Object entity, BookChange.Type type) {
+		if(!(entity instanceof Book)) {
+			return;
+		}
+		BookChange change = new BookChange(type, (Book) entity, Instant.now());
+		List<BookChange> changes = pending.get(session);
+		if(changes == null) {
+			changes = new ArrayList<>();
+			pending.put(session, changes);
+			List<BookChange> registered = changes;
+			session.getActionQueue().registerProcess(before -> write(before, registered));
+			session.getActionQueue().registerProcess((success, after) -> {
+				pending.remove(session);
+				if(success) {
+					onCommit.run();
+				}
+			});
+		}
+		changes.add(change);
+	}
+	
+	private void write(SessionImplementor session, List<BookChange> changes) {
+		session.doWork(connection -> {
+			try(PreparedStatement insert = connection.prepareStatement(INSERT)) {
+				for(BookChange change : changes) {
+					insert.setObject(1, change.getBookId(), Types.BIGINT);
+					insert.setString(2, change.getType().name());
+					insert.setString(3, change.getTitle());
+					insert.setString(4, change.getAuthor());
+					insert.setString(5, change.getIsbn());
+					insert.setObject(6, change.getBookVersion(), Types.BIGINT);
+					insert.setTimestamp(7, Timestamp.from(change.getOccurredAt()));
+					insert.addBatch();
+				}
+				insert.executeBatch();
+			}
+		});
+	}
+
+}
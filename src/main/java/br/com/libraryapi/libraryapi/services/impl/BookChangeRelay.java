@@ -0,0 +1,151 @@
+package br.com.libraryapi.libraryapi.services.impl;
+
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import br.com.libraryapi.libraryapi.datasource.ShardContext;
+import br.com.libraryapi.libraryapi.domain.BookChange;
+import br.com.libraryapi.libraryapi.repositories.BookChangeRepository;
+
+/**
+ * Publica as alterações gravadas pelo {@link BookChangeOutbox}: em lotes de
+ * até {@code batchSize}, na ordem de gravação, atribui a posição no feed e a
+ * grava na mesma transação; depois do commit entrega o lote ao
+ * {@link BookChangeFeed}.
+ * 
+ * A thread roda quando o outbox avisa de um commit ({@link #wake()}) e, de
+ * qualquer forma, a cada {@code pollIntervalMillis}, o que cobre avisos
+ * perdidos e linhas gravadas por outras instâncias. A unique constraint da
+ * posição impede que dois relays publiquem a mesma posição, mas com mais de
+ * uma instância o relay deve ficar ligado em apenas uma
+ * ({@code library.changes.relay.enabled}).
+ * 
+ * Com shards, cada shard tem a tabela de saída dos seus livros: o relay
+ * publica um lote de cada shard por vez, com as posições seguindo uma única
+ * sequência entre todos.
+ */
+public class BookChangeRelay {
+	
+	private static final Logger log = LoggerFactory.getLogger(BookChangeRelay.class);
+	
+	private static final long MAX_RETRY_DELAY_MILLIS = 5000;
+	
+	private final BookChangeRepository repo;
+	private final TransactionTemplate tx;
+	private final BookChangeFeed feed;
+	private final int batchSize;
+	private final long pollIntervalMillis;
+	private final int shards;
+	
+	private final Semaphore signal = new Semaphore(0);
+	//Última posição publicada; relida da base depois de uma falha
+	private Long lastPosition;
+	
+	private volatile boolean running;
+	private Thread relay;
+	
+	public BookChangeRelay(BookChangeRepository repo, TransactionTemplate tx, BookChangeFeed feed, int batchSize, long pollIntervalMillis) {
+		this(repo, tx, feed, batchSize, pollIntervalMillis, 1);
+	}
+	
+	public BookChangeRelay(BookChangeRepository repo, TransactionTemplate tx, BookChangeFeed feed, int batchSize, long pollIntervalMillis, int shards) {
+		this.repo = repo;
+		this.tx = tx;
+		this.feed = feed;
+		this.batchSize = batchSize;
+		this.pollIntervalMillis = pollIntervalMillis;
+		this.shards = shards;
+	}
+	
+	public void wake() {
+		if(signal.availablePermits() == 0) {
+			signal.release();
+		}
+	}
+	
+	public void start() {
+		running = true;
+		relay = new Thread(this::run, "book-change-relay");
+		relay.setDaemon(true);
+		relay.start();
+	}
+	
+	public void stop() throws InterruptedException {
+		running = false;
+		if(relay != null) {
+			relay.interrupt();
+			relay.join(TimeUnit.SECONDS.toMillis(30));
+		}
+	}
+	
+	/**
+	 * Publica um lote (de cada shard) e retorna a quantidade de alterações
+	 * publicadas.
+	 */
+	public synchronized int publish() {
+		if(lastPosition == null) {
+			lastPosition = 0l;
+			for(int shard = 0; shard < shards; shard++) {
+				Long last = ShardContext.call(shard, repo::findLastPosition);
+				if(last != null && last > lastPosition) {
+					lastPosition = last;
+				}
+			}
+		}
+		int published = 0;
+		for(int shard = 0; shard < shards; shard++) {
+			published += ShardContext.call(shard, this::publishBatch);
+		}
+		return published;
+	}
+	
+	private int publishBatch() {
+		List<BookChange> batch = tx.execute(status -> {
+			List<BookChange> changes = repo.findUnpublished(PageRequest.of(0, batchSize));
+			long position = lastPosition;
+			for(BookChange change : changes) {
+				//Entidades gerenciadas: o commit grava as posições em batch
+				change.setPosition(++position);
+			}
+			return changes;
+		});
+		if(!batch.isEmpty()) {
+			lastPosition = batch.get(batch.size() - 1).getPosition();
+			feed.published(batch);
+		}
+		return batch.size();
+	}
+	
+	private void run() {
+		long delay = 100;
+		while(running) {
+			try {
+				signal.tryAcquire(pollIntervalMillis, TimeUnit.MILLISECONDS);
+				signal.drainPermits();
+				while(publish() >= batchSize) {
+					//Lote cheio: provavelmente há mais a publicar
+				}
+				delay = 100;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} catch (RuntimeException e) {
+				lastPosition = null;
+				log.warn("Falha ao publicar alterações de livros; nova tentativa em {} ms", delay, e);
+				try {
+					Thread.sleep(delay);
+				} catch (InterruptedException interrupted) {
+					return;
+				}
+				delay = Math.min(delay * 2, MAX_RETRY_DELAY_MILLIS);
+			}
+		}
+	}
+
+}
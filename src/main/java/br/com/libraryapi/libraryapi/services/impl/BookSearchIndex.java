@@ -0,0 +1,304 @@
+package br.com.libraryapi.libraryapi.services.impl;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+import br.com.libraryapi.libraryapi.domain.Book;
+
+/**
+ * Índice invertido em memória sobre título e autor dos livros.
+ * 
+ * Os termos são normalizados (minúsculas, sem acentos). Cada termo da
+ * consulta casa com termos do índice que começam com ele, e o livro precisa
+ * casar com todos os termos. A pontuação soma, para cada termo, a frequência
+ * ponderada pelo campo (título vale mais que autor) multiplicada pelo IDF;
+ * termos casados por prefixo valem metade do termo exato.
+ * 
+ * Atualizações incrementais podem ocorrer durante um {@link #rebuild}: elas
+ * são registradas e reaplicadas no índice novo antes da troca. Só uma
+ * reconstrução roda por vez; outra pedida nesse intervalo falha com
+ * {@link RebuildInProgressException}.
+ */
+public class BookSearchIndex {
+	
+	private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+	private static final Pattern SEPARATORS = Pattern.compile("[^\\p{Alnum}]+");
+	
+	private static final int TITLE_WEIGHT = 2;
+	private static final int AUTHOR_WEIGHT = 1;
+	private static final double PREFIX_FACTOR = 0.5;
+	//Prefixos menores que isso casam apenas com o termo exato
+	private static final int MIN_PREFIX_LENGTH = 2;
+	
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private Segment current = new Segment();
+	private List<Book> pendingDuringRebuild;
+	//Protege o pendingDuringRebuild, que pertence à reconstrução em andamento
+	private final AtomicBoolean rebuilding = new AtomicBoolean();
+	
+	public void index(Book book) {
+		if(book == null || book.getId() == null) {
+			return;
+		}
+		Book snapshot = new Book(book.getId(), book.getTitle(), book.getAuthor(), book.getIsbn());
+		lock.writeLock().lock();
+		try {
+			current.put(snapshot);
+			if(pendingDuringRebuild != null) {
+				pendingDuringRebuild.add(snapshot);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	public void remove(Long id) {
+		if(id == null) {
+			return;
+		}
+		lock.writeLock().lock();
+		try {
+			current.remove(id);
+			if(pendingDuringRebuild != null) {
+				//Livro sem título/autor: removido ao reaplicar
+				pendingDuringRebuild.add(new Book(id, null, null, null));
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * Reconstrói o índice a partir de todos os livros. As buscas continuam
+	 * usando o índice atual até o novo estar completo.
+	 */
+	public long rebuild(Iterable<Book> books) {
+		if(!rebuilding.compareAndSet(false, true)) {
+			throw new RebuildInProgressException();
+		}
+		try {
+			return rebuildSegment(books);
+		} finally {
+			rebuilding.set(false);
+		}
+	}
+	
+	private long rebuildSegment(Iterable<Book> books) {
+		lock.writeLock().lock();
+		try {
+			pendingDuringRebuild = new ArrayList<>();
+		} finally {
+			lock.writeLock().unlock();
+		}
+		
+		Segment fresh = new Segment();
+		long count = 0;
+		try {
+			for(Book book : books) {
+				fresh.put(new Book(book.getId(), book.getTitle(), book.getAuthor(), book.getIsbn()));
+				count++;
+			}
+		} catch (RuntimeException e) {
+			lock.writeLock().lock();
+			try {
+				pendingDuringRebuild = null;
+			} finally {
+				lock.writeLock().unlock();
+			}
+			throw e;
+		}
+		
+		lock.writeLock().lock();
+		try {
+			for(Book book : pendingDuringRebuild) {
+				if(book.getTitle() == null && book.getAuthor() == null) {
+					fresh.remove(book.getId());
+				} else {
+					fresh.put(book);
+				}
+			}
+			pendingDuringRebuild = null;
+			current = fresh;
+		} finally {
+			lock.writeLock().unlock();
+		}
+		return count;
+	}
+	
+	/**
+	 * Busca os livros que casam com todos os termos da consulta, do mais
+	 * relevante para o menos relevante (empate: menor ID primeiro).
+	 */
+	public SearchResult search(String query, int page, int size) {
+		List<String> terms = new ArrayList<>(new LinkedHashSet<>(tokenize(query)));
+		if(terms.isEmpty()) {
+			return new SearchResult(Collections.emptyList(), 0);
+		}
+		
+		Map<Long, Double> scores;
+		lock.readLock().lock();
+		try {
+			scores = current.score(terms);
+		} finally {
+			lock.readLock().unlock();
+		}
+		
+		List<Map.Entry<Long, Double>> ranked = new ArrayList<>(scores.entrySet());
+		ranked.sort(Map.Entry.<Long, Double>comparingByValue(Comparator.reverseOrder()).thenComparing(Map.Entry.comparingByKey()));
+		int from = (int) Math.min((long) page * size, ranked.size());
+		int to = Math.min(from + size, ranked.size());
+		List<Long> ids = new ArrayList<>(to - from);
+		for(Map.Entry<Long, Double> entry : ranked.subList(from, to)) {
+			ids.add(entry.getKey());
+		}
+		return new SearchResult(ids, ranked.size());
+	}
+	
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return current.documents.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+	
+	static List<String> tokenize(String text) {
+		if(text == null || text.isEmpty()) {
+			return Collections.emptyList();
+		}
+		String normalized = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+		List<String> tokens = new ArrayList<>();
+		for(String token : SEPARATORS.split(normalized.toLowerCase(Locale.ROOT))) {
+			if(!token.isEmpty()) {
+				tokens.add(token);
+			}
+		}
+		return tokens;
+	}
+	
+	/**
+	 * Estrutura do índice; protegida pelo lock de {@link BookSearchIndex}.
+	 */
+	private static class Segment {
+		
+		//termo -> (ID do livro -> frequência ponderada)
+		private final NavigableMap<String, Map<Long, Integer>> postings = new TreeMap<>();
+		//ID do livro -> termos indexados, para remoção
+		private final Map<Long, Set<String>> documents = new HashMap<>();
+		
+		void put(Book book) {
+			remove(book.getId());
+			Map<String, Integer> frequencies = new HashMap<>();
+			for(String term : tokenize(book.getTitle())) {
+				frequencies.merge(term, TITLE_WEIGHT, Integer::sum);
+			}
+			for(String term : tokenize(book.getAuthor())) {
+				frequencies.merge(term, AUTHOR_WEIGHT, Integer::sum);
+			}
+			for(Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+				postings.computeIfAbsent(entry.getKey(), t -> new HashMap<>()).put(book.getId(), entry.getValue());
+			}
+			documents.put(book.getId(), frequencies.keySet());
+		}
+		
+		void remove(Long id) {
+			Set<String> terms = documents.remove(id);
+			if(terms == null) {
+				return;
+			}
+			for(String term : terms) {
+				Map<Long, Integer> docs = postings.get(term);
+				docs.remove(id);
+				if(docs.isEmpty()) {
+					postings.remove(term);
+				}
+			}
+		}
+		
+		Map<Long, Double> score(List<String> terms) {
+			Map<Long, Double> scores = null;
+			int total = Math.max(1, documents.size());
+			for(String term : terms) {
+				Map<Long, Double> termScores = new HashMap<>();
+				Map<String, Map<Long, Integer>> matches = term.length() >= MIN_PREFIX_LENGTH
+						? postings.subMap(term, true, term + Character.MAX_VALUE, true)
+						: exact(term);
+				for(Map.Entry<String, Map<Long, Integer>> match : matches.entrySet()) {
+					double idf = Math.log(1 + (double) total / match.getValue().size());
+					double factor = match.getKey().equals(term) ? 1 : PREFIX_FACTOR;
+					for(Map.Entry<Long, Integer> doc : match.getValue().entrySet()) {
+						termScores.merge(doc.getKey(), doc.getValue() * idf * factor, Double::sum);
+					}
+				}
+				if(scores == null) {
+					scores = termScores;
+				} else {
+					//Mantém apenas os livros que casaram com todos os termos
+					scores.keySet().retainAll(termScores.keySet());
+					for(Map.Entry<Long, Double> entry : scores.entrySet()) {
+						entry.setValue(entry.getValue() + termScores.get(entry.getKey()));
+					}
+				}
+				if(scores.isEmpty()) {
+					break;
+				}
+			}
+			return scores;
+		}
+		
+		private Map<String, Map<Long, Integer>> exact(String term) {
+			Map<Long, Integer> docs = postings.get(term);
+			return docs == null ? Collections.emptyMap() : Collections.singletonMap(term, docs);
+		}
+		
+	}
+	
+	/**
+	 * Pedido de {@link #rebuild} enquanto outra reconstrução está em andamento.
+	 */
+	public static class RebuildInProgressException extends IllegalStateException {
+		
+		private static final long serialVersionUID = 1L;
+		
+		public RebuildInProgressException() {
+			super("Reconstrução do índice de busca já em andamento");
+		}
+	
+	}
+	
+	public static class SearchResult {
+		
+		private final List<Long> ids;
+		private final long total;
+		
+		public SearchResult(List<Long> ids, long total) {
+			this.ids = ids;
+			this.total = total;
+		}
+
+		public List<Long> getIds() {
+			return ids;
+		}
+
+		public long getTotal() {
+			return total;
+		}
+		
+	}
+
+}
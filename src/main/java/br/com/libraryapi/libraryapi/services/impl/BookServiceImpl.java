@@ -1,52 +1,379 @@
 package br.com.libraryapi.libraryapi.services.impl;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import br.com.libraryapi.libraryapi.config.CacheConfig;
+import br.com.libraryapi.libraryapi.datasource.ReadYourWrites;
+import br.com.libraryapi.libraryapi.datasource.ShardLayout;
 import br.com.libraryapi.libraryapi.domain.Book;
 import br.com.libraryapi.libraryapi.repositories.BookRepository;
+import br.com.libraryapi.libraryapi.repositories.BookSpecifications;
 import br.com.libraryapi.libraryapi.resources.exception.BusinessException;
+import br.com.libraryapi.libraryapi.services.BookSaveResult;
 import br.com.libraryapi.libraryapi.services.BookService;
+import io.micrometer.core.instrument.MeterRegistry;
 
 @Service
 public class BookServiceImpl implements BookService {
 	
+	private static final String DUPLICATED_ISBN = "ISBN já existente!";
+	
+	//Limite de parâmetros do IN por consulta na busca de vários IDs
+	private static final int IN_CHUNK_SIZE = 500;
+	
 	@Autowired
 	private BookRepository repo;
 	
+	//Ausente quando o service é criado fora do Spring
+	@Autowired(required = false)
+	private CacheManager cacheManager;
+	
+	//Presente só com shards (ver ShardingConfig)
+	@Autowired(required = false)
+	private ShardLayout shardLayout;
+	
+	//Presente só com réplicas de leitura (ver ReadReplicaConfig)
+	@Autowired(required = false)
+	private ReadYourWrites readYourWrites;
+	
+	private IsbnIndex isbnIndex;
+	
+	private BookSearchIndex searchIndex;
+	
+	//Consultas simultâneas ao mesmo livro que não acharam nada no cache
+	//compartilham uma única ida à base; cada uma recebe a sua instância
+	private final SingleFlight<Long, Optional<Book>> loadsById = new SingleFlight<>(found -> found.map(Book::new));
+	
+	private final SingleFlight<String, Optional<Book>> loadsByIsbn = new SingleFlight<>(found -> found.map(Book::new));
+	
 	public BookServiceImpl(BookRepository repo) {
+		//Índice nunca carregado: toda verificação de ISBN vai à base
+		this(repo, new IsbnIndex(1, 0.5), new BookSearchIndex());
+	}
+	
+	@Autowired
+	public BookServiceImpl(BookRepository repo, IsbnIndex isbnIndex, BookSearchIndex searchIndex) {
 		this.repo = repo;
+		this.isbnIndex = isbnIndex;
+		this.searchIndex = searchIndex;
+	}
+	
+	//Ausente quando o service é criado fora do Spring
+	@Autowired(required = false)
+	public void bindMetrics(MeterRegistry registry) {
+		loadsById.bindTo(registry, "id");
+		loadsByIsbn.bindTo(registry, "isbn");
 	}
 	
+	//Consultas sem resultado não são cacheadas, então inserir um livro
+	//(save/saveAll) nunca deixa um "não encontrado" desatualizado no cache.
+	//Com shards, a verificação e o insert vão ao shard do ISBN: um ISBN só
+	//pode estar em um shard, e a unique constraint local basta
 	@Override
+	@Caching(put = {
+			@CachePut(cacheNames=CacheConfig.BOOKS, key="#result.id"),
+			@CachePut(cacheNames=CacheConfig.BOOKS_BY_ISBN, key="#result.isbn")
+	})
 	public Book save(Book book) {
-		if(repo.existsByIsbn(book.getIsbn())) {
-			throw new BusinessException("ISBN já existente!");
+		if(isbnExists(book.getIsbn())) {
+			throw new BusinessException(DUPLICATED_ISBN);
 		}
-		return this.repo.save(book);
+		Book savedBook;
+		try {
+			savedBook = this.repo.save(book);
+		} catch (DataIntegrityViolationException e) {
+			//Unique constraint: ISBN inserido em paralelo ou ainda fora do índice
+			throw new BusinessException(DUPLICATED_ISBN);
+		}
+		isbnIndex.add(book.getIsbn());
+		searchIndex.index(savedBook);
+		return savedBook;
 	}
-
+	
+	@Override
+	public List<BookSaveResult> saveAll(List<Book> books) {
+		Set<String> isbns = books.stream()
+				.map(Book::getIsbn)
+				.filter(isbnIndex::mightContain)
+				.collect(Collectors.toSet());
+		Set<String> existing = isbns.isEmpty() ? Collections.emptySet() : repo.findExistingIsbns(isbns);
+		
+		BookSaveResult[] results = new BookSaveResult[books.size()];
+		List<Book> accepted = new ArrayList<>(books.size());
+		Set<String> seen = new HashSet<>();
+		for(int i = 0; i < books.size(); i++) {
+			Book book = books.get(i);
+			if(existing.contains(book.getIsbn()) || !seen.add(book.getIsbn())) {
+				results[i] = BookSaveResult.failure(book, DUPLICATED_ISBN);
+			} else {
+				accepted.add(book);
+			}
+		}
+		
+		//Com shards, uma transação por shard: a falha em um não desfaz os outros
+		for(List<Book> group : byShard(accepted)) {
+			try {
+				this.repo.saveAll(group);
+			} catch (DataIntegrityViolationException e) {
+				//Outro processo inseriu algum dos ISBNs entre a verificação e o insert:
+				//salva um a um para apontar exatamente quais registros falharam
+				saveOneByOne(group);
+			}
+		}
+		
+		for(int i = 0; i < results.length; i++) {
+			if(results[i] == null) {
+				Book book = books.get(i);
+				if(book.getId() != null) {
+					isbnIndex.add(book.getIsbn());
+					searchIndex.index(book);
+				}
+				results[i] = book.getId() != null ? BookSaveResult.success(book) : BookSaveResult.failure(book, DUPLICATED_ISBN);
+			}
+		}
+		return Arrays.asList(results);
+	}
+	
+	private Collection<List<Book>> byShard(List<Book> books) {
+		if(books.isEmpty()) {
+			return Collections.emptyList();
+		}
+		if(shardLayout == null) {
+			return Collections.singletonList(books);
+		}
+		return books.stream()
+				.collect(Collectors.groupingBy(book -> shardLayout.shardOf(book.getIsbn()), LinkedHashMap::new, Collectors.toList()))
+				.values();
+	}
+	
+	private void saveOneByOne(List<Book> books) {
+		for(Book book : books) {
+			//O persist que falhou já tinha atribuído ID e versão
+			book.setId(null);
+			book.setVersion(null);
+			try {
+				this.repo.save(book);
+			} catch (DataIntegrityViolationException e) {
+				book.setId(null);
+				book.setVersion(null);
+			}
+		}
+	}
+	
+	@Override
+	public boolean isbnExists(String isbn) {
+		return isbnIndex.mightContain(isbn) && repo.existsByIsbn(isbn);
+	}
+	
+	/**
+	 * Se a leitura em andamento pode popular os caches. Com réplicas, só as que
+	 * vão ao primário: uma réplica atrasada recolocaria no cache um livro já
+	 * alterado ou removido, e ele ficaria lá até expirar. Público para as
+	 * condições das anotações de cache.
+	 */
+	public boolean populatesCache() {
+		return readYourWrites == null || readYourWrites.requiresPrimary();
+	}
+	
 	@Override
+	@Cacheable(cacheNames=CacheConfig.BOOKS, key="#id", unless="#result == null || !#root.target.populatesCache()")
 	public Optional<Book> getById(Long id) {
-		return this.repo.findById(id);
+		return loadsById.load(id, () -> this.repo.findById(id));
 	}
 	
 	@Override
+	public Map<Long, Book> getAllById(Collection<Long> ids) {
+		Cache cache = cacheManager == null ? null : cacheManager.getCache(CacheConfig.BOOKS);
+		boolean populate = populatesCache();
+		Map<Long, Book> found = new HashMap<>();
+		List<Long> misses = new ArrayList<>();
+		for(Long id : new LinkedHashSet<>(ids)) {
+			//Mesma entrada usada pelo getById (o Optional é guardado desembrulhado)
+			Book cached = cache == null ? null : cache.get(id, Book.class);
+			if(cached != null) {
+				found.put(id, cached);
+			} else {
+				misses.add(id);
+			}
+		}
+		
+		for(int offset = 0; offset < misses.size(); offset += IN_CHUNK_SIZE) {
+			List<Long> chunk = misses.subList(offset, Math.min(offset + IN_CHUNK_SIZE, misses.size()));
+			for(Book book : repo.findAllById(chunk)) {
+				found.put(book.getId(), book);
+				if(cache != null && populate) {
+					cache.put(book.getId(), book);
+				}
+			}
+		}
+		
+		Map<Long, Book> ordered = new LinkedHashMap<>();
+		for(Long id : ids) {
+			Book book = found.get(id);
+			if(book != null) {
+				ordered.put(id, book);
+			}
+		}
+		return ordered;
+	}
+	
+	@Override
+	@Cacheable(cacheNames=CacheConfig.BOOKS_BY_ISBN, key="#isbn", unless="#result == null || !#root.target.populatesCache()")
+	public Optional<Book> getByIsbn(String isbn) {
+		return loadsByIsbn.load(isbn, () -> this.repo.findByIsbn(isbn));
+	}
+	
+	@Override
+	public Slice<Book> find(Book filter, Long afterId, int size) {
+		Specification<Book> spec = BookSpecifications.matching(filter).and(BookSpecifications.idGreaterThan(afterId));
+		//Busca um registro a mais apenas para saber se existe próxima página
+		List<Book> books = repo.findOrderedById(spec, size + 1);
+		boolean hasNext = books.size() > size;
+		if(hasNext) {
+			books = books.subList(0, size);
+		}
+		return new SliceImpl<>(books, PageRequest.of(0, size), hasNext);
+	}
+	
+	@Override
+	public long count(Book filter) {
+		return repo.count(BookSpecifications.matching(filter));
+	}
+	
+	@Override
+	public Page<Book> search(String query, int page, int size) {
+		BookSearchIndex.SearchResult result = searchIndex.search(query, page, size);
+		PageRequest pageable = PageRequest.of(page, size);
+		if(result.getIds().isEmpty()) {
+			return new PageImpl<>(Collections.emptyList(), pageable, result.getTotal());
+		}
+		//O findAllById não garante ordem: reordena pela relevância do índice
+		Map<Long, Book> byId = repo.findAllById(result.getIds()).stream()
+				.collect(Collectors.toMap(Book::getId, Function.identity()));
+		List<Book> books = result.getIds().stream()
+				.map(byId::get)
+				.filter(book -> book != null)
+				.collect(Collectors.toList());
+		return new PageImpl<>(books, pageable, result.getTotal());
+	}
+	
+	@Override
+	@Transactional(readOnly = true)
+	public long rebuildSearchIndex() {
+		try (Stream<Book> books = repo.streamAll()) {
+			return searchIndex.rebuild(books::iterator);
+		}
+	}
+	
+	@Override
+	@Transactional(readOnly = true)
+	public long export(Consumer<Book> consumer) {
+		long count = 0;
+		try (Stream<Book> books = repo.streamAllOrderedById()) {
+			Iterator<Book> it = books.iterator();
+			while(it.hasNext()) {
+				consumer.accept(it.next());
+				count++;
+			}
+		}
+		return count;
+	}
+	
+	@Override
+	@Caching(evict = {
+			@CacheEvict(cacheNames=CacheConfig.BOOKS, key="#book.id", condition="#book != null"),
+			@CacheEvict(cacheNames=CacheConfig.BOOKS_BY_ISBN, key="#book.isbn", condition="#book != null && #book.isbn != null")
+	})
 	public void delete(Book book) {
 		if(book == null || book.getId() == null) {
 			throw new IllegalArgumentException("Book ID can't be null.");
 		}
 		this.repo.delete(book);
+		searchIndex.remove(book.getId());
 	}
 	
+	//Remove antes de salvar: se o save falhar, a próxima leitura vai à base
 	@Override
+	@Caching(evict = {
+			@CacheEvict(cacheNames=CacheConfig.BOOKS, key="#book.id", condition="#book != null && #book.id != null", beforeInvocation=true),
+			@CacheEvict(cacheNames=CacheConfig.BOOKS_BY_ISBN, key="#book.isbn", condition="#book != null && #book.isbn != null", beforeInvocation=true)
+	}, put = {
+			@CachePut(cacheNames=CacheConfig.BOOKS, key="#result.id"),
+			@CachePut(cacheNames=CacheConfig.BOOKS_BY_ISBN, key="#result.isbn")
+	})
 	public Book update(Book book) {
 		if(book == null || book.getId() == null) {
 			throw new IllegalArgumentException("Book ID can't be null.");
 		}
-		return this.repo.save(book);
+		Book updatedBook = this.repo.save(book);
+		searchIndex.index(updatedBook);
+		return updatedBook;
+	}
+	
+	//O ISBN não muda, então o put pelo ISBN do resultado substitui a entrada antiga
+	@Override
+	@Transactional
+	@Caching(put = {
+			@CachePut(cacheNames=CacheConfig.BOOKS, key="#id", condition="#result != null"),
+			@CachePut(cacheNames=CacheConfig.BOOKS_BY_ISBN, key="#result.isbn", condition="#result != null")
+	})
+	public Optional<Book> patch(Long id, Long expectedVersion, Book changes) {
+		//Entidade gerenciada: vem do cache de segundo nível quando possível e o
+		//flush gera o UPDATE só das colunas alteradas, sem o SELECT do merge.
+		//Um UPDATE em JPQL evitaria a leitura, mas não passaria pelo
+		//BookChangeOutbox e invalidaria a região inteira do cache de livros
+		Optional<Book> found = repo.findById(id);
+		if(!found.isPresent()) {
+			return found;
+		}
+		Book book = found.get();
+		if(expectedVersion != null && !expectedVersion.equals(book.getVersion())) {
+			throw new ObjectOptimisticLockingFailureException(Book.class, id);
+		}
+		if(changes.getTitle() != null) {
+			book.setTitle(changes.getTitle());
+		}
+		if(changes.getAuthor() != null) {
+			book.setAuthor(changes.getAuthor());
+		}
+		//Flush aqui para que a versão devolvida (e cacheada) já seja a nova
+		repo.flush();
+		searchIndex.index(book);
+		return found;
 	}
 
 
@@ -0,0 +1,218 @@
+package br.com.libraryapi.libraryapi.services.impl;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import br.com.libraryapi.libraryapi.domain.Book;
+import br.com.libraryapi.libraryapi.resources.exception.BusinessException;
+import br.com.libraryapi.libraryapi.services.BookSaveResult;
+import br.com.libraryapi.libraryapi.services.BookService;
+import br.com.libraryapi.libraryapi.services.BookWriteStatus;
+import br.com.libraryapi.libraryapi.services.impl.WriteBehindJournal.Entry;
+
+/**
+ * Gravação assíncrona (write-behind) de livros novos.
+ * 
+ * {@link #submit} reserva o ISBN, registra o livro no {@link WriteBehindJournal}
+ * e o coloca em uma fila limitada, devolvendo um ticket para consulta. Uma
+ * thread de gravação esvazia a fila em lotes de até {@code batchSize} livros,
+ * cada lote em uma transação ({@link BookService#saveAll}). Se a base falhar,
+ * o lote é tentado de novo com espera crescente; os livros continuam no
+ * diário até o commit, então uma queda da aplicação não perde nada.
+ */
+public class BookWriteBehind {
+	
+	private static final Logger log = LoggerFactory.getLogger(BookWriteBehind.class);
+	
+	private static final String DUPLICATED_ISBN = "ISBN já existente!";
+	
+	private static final long MAX_RETRY_DELAY_MILLIS = 5000;
+	
+	private final BookService service;
+	private final WriteBehindJournal journal;
+	private final int capacity;
+	private final int batchSize;
+	
+	private final BlockingQueue<BookWriteStatus> queue = new LinkedBlockingQueue<>();
+	//Controle de admissão separado da fila: os recuperados do diário entram sempre
+	private final AtomicInteger queued = new AtomicInteger();
+	//ISBNs aceitos e ainda não gravados, para recusar duplicados antes do commit
+	private final Set<String> reservedIsbns = ConcurrentHashMap.newKeySet();
+	private final Map<String, BookWriteStatus> pending = new ConcurrentHashMap<>();
+	private final Cache<String, BookWriteStatus> completed = Caffeine.newBuilder()
+			.maximumSize(100_000)
+			.expireAfterWrite(1, TimeUnit.HOURS)
+			.build();
+	
+	private volatile boolean running;
+	private Thread writer;
+	
+	public BookWriteBehind(BookService service, WriteBehindJournal journal, int capacity, int batchSize) {
+		this.service = service;
+		this.journal = journal;
+		this.capacity = capacity;
+		this.batchSize = batchSize;
+		for(Entry entry : journal.getRecovered()) {
+			BookWriteStatus status = BookWriteStatus.pending(entry.getTicket(),
+					new Book(null, entry.getTitle(), entry.getAuthor(), entry.getIsbn()));
+			reservedIsbns.add(entry.getIsbn());
+			pending.put(status.getTicket(), status);
+			queued.incrementAndGet();
+			queue.add(status);
+		}
+		if(!queue.isEmpty()) {
+			log.info("{} livros recuperados do diário de gravação", queue.size());
+		}
+	}
+	
+	/**
+	 * Aceita o livro para gravação e retorna o ticket.
+	 * 
+	 * @throws BusinessException se o ISBN já existe ou já foi aceito
+	 * @throws RejectedExecutionException se a fila está cheia
+	 */
+	public String submit(Book book) {
+		if(!reservedIsbns.add(book.getIsbn())) {
+			throw new BusinessException(DUPLICATED_ISBN);
+		}
+		boolean accepted = false;
+		try {
+			if(service.isbnExists(book.getIsbn())) {
+				throw new BusinessException(DUPLICATED_ISBN);
+			}
+			if(queued.incrementAndGet() > capacity) {
+				queued.decrementAndGet();
+				throw new RejectedExecutionException("Fila de gravação cheia");
+			}
+			try {
+				String ticket = UUID.randomUUID().toString();
+				journal.add(Collections.singletonList(new Entry(WriteBehindJournal.ADD, ticket, book.getTitle(), book.getAuthor(), book.getIsbn())));
+				BookWriteStatus status = BookWriteStatus.pending(ticket, new Book(null, book.getTitle(), book.getAuthor(), book.getIsbn()));
+				pending.put(ticket, status);
+				queue.add(status);
+				accepted = true;
+				return ticket;
+			} catch (IOException e) {
+				queued.decrementAndGet();
+				throw new UncheckedIOException(e);
+			}
+		} finally {
+			if(!accepted) {
+				reservedIsbns.remove(book.getIsbn());
+			}
+		}
+	}
+	
+	/**
+	 * Situação do ticket, ou {@code null} se não existe ou já expirou.
+	 */
+	public BookWriteStatus status(String ticket) {
+		BookWriteStatus status = pending.get(ticket);
+		return status != null ? status : completed.getIfPresent(ticket);
+	}
+	
+	public int getQueueSize() {
+		return queued.get();
+	}
+	
+	public void start() {
+		running = true;
+		writer = new Thread(this::drain, "book-write-behind");
+		writer.setDaemon(true);
+		writer.start();
+	}
+	
+	/**
+	 * Para a thread de gravação depois de gravar o que já está na fila.
+	 * O que não couber no prazo continua no diário para a próxima subida.
+	 */
+	public void stop() throws InterruptedException {
+		running = false;
+		if(writer != null) {
+			writer.join(TimeUnit.SECONDS.toMillis(30));
+			if(writer.isAlive()) {
+				writer.interrupt();
+				writer.join();
+			}
+		}
+	}
+	
+	private void drain() {
+		List<BookWriteStatus> batch = new ArrayList<>(batchSize);
+		while(running || !queue.isEmpty()) {
+			try {
+				BookWriteStatus first = queue.poll(100, TimeUnit.MILLISECONDS);
+				if(first == null) {
+					continue;
+				}
+				batch.add(first);
+				queue.drainTo(batch, batchSize - 1);
+				queued.addAndGet(-batch.size());
+				write(batch);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} catch (IOException | RuntimeException e) {
+				//Sem DONE no diário: o lote será regravado na próxima subida
+				log.error("Falha ao concluir lote de gravação", e);
+			} finally {
+				batch.clear();
+			}
+		}
+	}
+	
+	private void write(List<BookWriteStatus> batch) throws InterruptedException, IOException {
+		List<BookSaveResult> results = null;
+		long delay = 100;
+		while(results == null) {
+			//Livros novos a cada tentativa: uma tentativa que falhou já atribuiu IDs
+			List<Book> books = new ArrayList<>(batch.size());
+			for(BookWriteStatus status : batch) {
+				Book book = status.getBook();
+				books.add(new Book(null, book.getTitle(), book.getAuthor(), book.getIsbn()));
+			}
+			try {
+				results = service.saveAll(books);
+			} catch (RuntimeException e) {
+				if(!running) {
+					throw e;
+				}
+				log.warn("Falha ao gravar lote de {} livros; nova tentativa em {} ms", batch.size(), delay, e);
+				Thread.sleep(delay);
+				delay = Math.min(delay * 2, MAX_RETRY_DELAY_MILLIS);
+			}
+		}
+		
+		List<String> tickets = new ArrayList<>(batch.size());
+		for(int i = 0; i < batch.size(); i++) {
+			String ticket = batch.get(i).getTicket();
+			BookSaveResult result = results.get(i);
+			completed.put(ticket, result.isSuccess()
+					? BookWriteStatus.created(ticket, result.getBook())
+					: BookWriteStatus.failed(ticket, result.getBook(), result.getError()));
+			pending.remove(ticket);
+			reservedIsbns.remove(result.getBook().getIsbn());
+			tickets.add(ticket);
+		}
+		journal.done(tickets);
+	}
+
+}
@@ -0,0 +1,97 @@
+package br.com.libraryapi.libraryapi.services.impl;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Filtro de Bloom com os ISBNs cadastrados, usado para pular a consulta
+ * {@code existsByIsbn} quando o ISBN certamente não existe.
+ * 
+ * Respostas: {@code false} = o ISBN não está na base (nenhum falso negativo);
+ * {@code true} = talvez esteja, e a base deve ser consultada. Enquanto o índice
+ * não foi carregado ({@link #markReady()}) a resposta é sempre {@code true}.
+ * ISBNs removidos continuam marcados, o que só custa uma consulta a mais. A
+ * unique constraint em {@code Book.isbn} continua sendo a garantia de
+ * unicidade, inclusive para livros inseridos por outras instâncias.
+ */
+public class IsbnIndex {
+	
+	private final AtomicLongArray bits;
+	private final long bitCount;
+	private final int hashCount;
+	private volatile boolean ready;
+	
+	public IsbnIndex(long expectedInsertions, double falsePositiveRate) {
+		long n = Math.max(1, expectedInsertions);
+		long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+		int words = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (m + 63) >>> 6));
+		this.bits = new AtomicLongArray(words);
+		this.bitCount = (long) words << 6;
+		this.hashCount = Math.max(1, (int) Math.round((double) m / n * Math.log(2)));
+	}
+	
+	public boolean mightContain(String isbn) {
+		if(!ready || isbn == null) {
+			return true;
+		}
+		long hash = hash(isbn);
+		int h1 = (int) hash;
+		int h2 = (int) (hash >>> 32);
+		for(int i = 1; i <= hashCount; i++) {
+			long bit = position(h1 + i * h2);
+			if((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	public void add(String isbn) {
+		if(isbn == null) {
+			return;
+		}
+		long hash = hash(isbn);
+		int h1 = (int) hash;
+		int h2 = (int) (hash >>> 32);
+		for(int i = 1; i <= hashCount; i++) {
+			long bit = position(h1 + i * h2);
+			int word = (int) (bit >>> 6);
+			long mask = 1L << bit;
+			long current;
+			while(((current = bits.get(word)) & mask) == 0 && !bits.compareAndSet(word, current, current | mask)) {
+				//outra thread alterou a palavra: tenta de novo
+			}
+		}
+	}
+	
+	/**
+	 * Chamado depois que todos os ISBNs da base foram adicionados.
+	 */
+	public void markReady() {
+		this.ready = true;
+	}
+	
+	public boolean isReady() {
+		return ready;
+	}
+	
+	private long position(int combinedHash) {
+		return (combinedHash & Integer.MAX_VALUE) % bitCount;
+	}
+	
+	//FNV-1a 64 bits seguido do finalizador do MurmurHash3
+	private static long hash(String isbn) {
+		long h = 0xcbf29ce484222325L;
+		for(byte b : isbn.getBytes(StandardCharsets.UTF_8)) {
+			h ^= b;
+			h *= 0x100000001b3L;
+		}
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+}
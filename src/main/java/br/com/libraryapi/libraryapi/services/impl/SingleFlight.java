@@ -0,0 +1,106 @@
+package br.com.libraryapi.libraryapi.services.impl;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Carga compartilhada entre chamadas simultâneas para a mesma chave: a
+ * primeira executa a consulta e as que chegam enquanto ela está em andamento
+ * esperam pelo mesmo resultado, em vez de irem à base cada uma.
+ * 
+ * A coordenação é só o {@code putIfAbsent} do {@link ConcurrentHashMap} (sem
+ * lock global); a entrada sai do mapa quando a carga termina, então nada fica
+ * guardado além das cargas em andamento. Falhas são repassadas a todas as
+ * chamadas que estavam esperando.
+ * 
+ * Com um {@code copy}, cada chamada que esperou recebe a sua cópia do
+ * resultado, e não a instância devolvida à chamada que executou a carga:
+ * uma entidade alterada por um chamador não muda nas mãos dos outros.
+ */
+public class SingleFlight<K, V> {
+	
+	public static final String COUNTER = "library.book.single_flight";
+	
+	private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+	
+	private final LongAdder executed = new LongAdder();
+	
+	private final LongAdder coalesced = new LongAdder();
+	
+	private final UnaryOperator<V> copy;
+	
+	public SingleFlight() {
+		this(UnaryOperator.identity());
+	}
+	
+	public SingleFlight(UnaryOperator<V> copy) {
+		this.copy = copy;
+	}
+	
+	public V load(K key, Supplier<V> loader) {
+		CompletableFuture<V> created = new CompletableFuture<>();
+		CompletableFuture<V> running = inFlight.putIfAbsent(key, created);
+		if(running != null) {
+			coalesced.increment();
+			return copy.apply(await(running));
+		}
+		executed.increment();
+		try {
+			V value = loader.get();
+			created.complete(value);
+			return value;
+		} catch (RuntimeException | Error e) {
+			created.completeExceptionally(e);
+			throw e;
+		} finally {
+			inFlight.remove(key, created);
+		}
+	}
+	
+	public long getExecuted() {
+		return executed.sum();
+	}
+	
+	public long getCoalesced() {
+		return coalesced.sum();
+	}
+	
+	/**
+	 * Registra {@value #COUNTER} com {@code key} e {@code result}
+	 * ({@code executed} ou {@code coalesced}).
+	 */
+	public void bindTo(MeterRegistry registry, String key) {
+		FunctionCounter.builder(COUNTER, executed, LongAdder::sum)
+				.tag("key", key)
+				.tag("result", "executed")
+				.register(registry);
+		FunctionCounter.builder(COUNTER, coalesced, LongAdder::sum)
+				.tag("key", key)
+				.tag("result", "coalesced")
+				.register(registry);
+	}
+	
+	private static <V> V await(CompletableFuture<V> running) {
+		try {
+			return running.join();
+		} catch (CompletionException e) {
+			//Mesma exceção da chamada que executou a carga
+			if(e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			if(e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+}
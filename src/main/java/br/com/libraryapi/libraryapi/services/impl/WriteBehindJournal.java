@@ -0,0 +1,233 @@
+package br.com.libraryapi.libraryapi.services.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Diário local da gravação assíncrona: um arquivo NDJSON onde cada livro
+ * aceito é registrado ({@code ADD}) antes da resposta 202 e marcado como
+ * concluído ({@code DONE}) depois do commit. Na subida, os {@code ADD} sem
+ * {@code DONE} são devolvidos para serem gravados de novo.
+ * 
+ * Com {@code fsync} ligado cada registro só retorna depois de estar no disco.
+ * O fsync é feito em grupo: enquanto uma thread sincroniza, as que chegam
+ * depois escrevem e esperam, e o próximo fsync cobre todas elas. Quando não
+ * há mais livros pendentes o arquivo é truncado.
+ */
+public class WriteBehindJournal implements Closeable {
+	
+	private static final Logger log = LoggerFactory.getLogger(WriteBehindJournal.class);
+	
+	static final String ADD = "ADD";
+	static final String DONE = "DONE";
+	
+	private final ObjectMapper objectMapper;
+	private final boolean fsync;
+	private final FileChannel channel;
+	
+	private final Object appendLock = new Object();
+	private final Object syncLock = new Object();
+	//Posições lógicas (bytes escritos desde a abertura), não zeram ao truncar
+	private long appended;
+	private volatile long synced;
+	private long pending;
+	
+	private final List<Entry> recovered;
+	
+	public WriteBehindJournal(Path path, boolean fsync, ObjectMapper objectMapper) throws IOException {
+		this.objectMapper = objectMapper;
+		this.fsync = fsync;
+		if(path.getParent() != null) {
+			Files.createDirectories(path.getParent());
+		}
+		this.recovered = Files.exists(path) ? recover(path) : new ArrayList<>();
+		compact(path, recovered);
+		this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+		this.pending = recovered.size();
+	}
+	
+	/**
+	 * Livros aceitos e não concluídos antes da última parada, na ordem em que
+	 * foram aceitos.
+	 */
+	public List<Entry> getRecovered() {
+		return recovered;
+	}
+	
+	public void add(List<Entry> entries) throws IOException {
+		append(entries, entries.size());
+	}
+	
+	public void done(List<String> tickets) throws IOException {
+		List<Entry> entries = new ArrayList<>(tickets.size());
+		for(String ticket : tickets) {
+			entries.add(new Entry(DONE, ticket, null, null, null));
+		}
+		append(entries, -tickets.size());
+	}
+	
+	private void append(List<Entry> entries, int pendingDelta) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(entries.size() * 128);
+		for(Entry entry : entries) {
+			objectMapper.writeValue(out, entry);
+			out.write('\n');
+		}
+		ByteBuffer buffer = ByteBuffer.wrap(out.toByteArray());
+		long position;
+		synchronized(appendLock) {
+			while(buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			appended += out.size();
+			pending += pendingDelta;
+			position = appended;
+			if(pending == 0) {
+				//Tudo gravado na base: nada a recuperar
+				channel.truncate(0);
+			}
+		}
+		if(fsync) {
+			sync(position);
+		}
+	}
+	
+	private void sync(long position) throws IOException {
+		if(synced >= position) {
+			return;
+		}
+		synchronized(syncLock) {
+			if(synced >= position) {
+				return;
+			}
+			long target;
+			synchronized(appendLock) {
+				target = appended;
+			}
+			channel.force(false);
+			synced = target;
+		}
+	}
+	
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+	
+	private List<Entry> recover(Path path) throws IOException {
+		Map<String, Entry> open = new LinkedHashMap<>();
+		for(String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+			if(line.isEmpty()) {
+				continue;
+			}
+			Entry entry;
+			try {
+				entry = objectMapper.readValue(line, Entry.class);
+			} catch (IOException e) {
+				//Última linha cortada por uma queda no meio da escrita: o cliente não recebeu 202
+				log.warn("Linha inválida ignorada no diário de gravação: {}", line);
+				continue;
+			}
+			if(ADD.equals(entry.getOp())) {
+				open.put(entry.getTicket(), entry);
+			} else {
+				open.remove(entry.getTicket());
+			}
+		}
+		return new ArrayList<>(open.values());
+	}
+	
+	//Reescreve o diário só com os pendentes, trocando o arquivo de forma atômica
+	private void compact(Path path, List<Entry> entries) throws IOException {
+		Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+		try(FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			for(Entry entry : entries) {
+				ByteBuffer buffer = ByteBuffer.wrap((objectMapper.writeValueAsString(entry) + "\n").getBytes(StandardCharsets.UTF_8));
+				while(buffer.hasRemaining()) {
+					out.write(buffer);
+				}
+			}
+			out.force(true);
+		}
+		Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+	
+	public static class Entry {
+		
+		private String op;
+		private String ticket;
+		private String title;
+		private String author;
+		private String isbn;
+		
+		public Entry() {
+			
+		}
+		
+		public Entry(String op, String ticket, String title, String author, String isbn) {
+			this.op = op;
+			this.ticket = ticket;
+			this.title = title;
+			this.author = author;
+			this.isbn = isbn;
+		}
+
+		public String getOp() {
+			return op;
+		}
+
+		public void setOp(String op) {
+			this.op = op;
+		}
+
+		public String getTicket() {
+			return ticket;
+		}
+
+		public void setTicket(String ticket) {
+			this.ticket = ticket;
+		}
+
+		public String getTitle() {
+			return title;
+		}
+
+		public void setTitle(String title) {
+			this.title = title;
+		}
+
+		public String getAuthor() {
+			return author;
+		}
+
+		public void setAuthor(String author) {
+			this.author = author;
+		}
+
+		public String getIsbn() {
+			return isbn;
+		}
+
+		public void setIsbn(String isbn) {
+			this.isbn = isbn;
+		}
+		
+	}
+
+}
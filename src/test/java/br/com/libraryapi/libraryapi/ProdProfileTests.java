@@ -0,0 +1,91 @@
+package br.com.libraryapi.libraryapi;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.orm.jpa.support.OpenEntityManagerInViewInterceptor;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import br.com.libraryapi.libraryapi.domain.Book;
+import br.com.libraryapi.libraryapi.services.BookService;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:prodprofile;DB_CLOSE_DELAY=-1")
+@ActiveProfiles("prod")
+class ProdProfileTests {
+	
+	@Autowired
+	private DataSource dataSource;
+	
+	@Autowired
+	private EntityManagerFactory emf;
+	
+	@Autowired
+	private ApplicationContext context;
+	
+	@Autowired
+	private BookService service;
+	
+	@Test
+	@DisplayName("Deve configurar o pool fixo com autocommit desligado e cache de statements")
+	void hikariPool() throws Exception {
+		HikariDataSource hikari = (HikariDataSource) dataSource;
+		
+		assertThat(hikari.getPoolName()).isEqualTo("library");
+		assertThat(hikari.getMaximumPoolSize()).isEqualTo(10);
+		assertThat(hikari.getMinimumIdle()).isEqualTo(10);
+		assertThat(hikari.isAutoCommit()).isFalse();
+		try (Connection connection = hikari.getConnection()) {
+			assertThat(connection.getAutoCommit()).isFalse();
+			ResultSet rs = connection.createStatement().executeQuery("select value from information_schema.settings where name = 'QUERY_CACHE_SIZE'");
+			assertThat(rs.next()).isTrue();
+			assertThat(rs.getString(1)).isEqualTo("256");
+		}
+	}
+	
+	@Test
+	@DisplayName("Deve configurar batch, fetch size e cache de planos do Hibernate")
+	void hibernateProperties() {
+		Map<String, Object> properties = emf.getProperties();
+		
+		assertThat(properties).containsEntry("hibernate.jdbc.batch_size", "50")
+			.containsEntry("hibernate.order_inserts", "true")
+			.containsEntry("hibernate.order_updates", "true")
+			.containsEntry("hibernate.jdbc.fetch_size", "100")
+			.containsEntry("hibernate.connection.provider_disables_autocommit", "true")
+			.containsEntry("hibernate.query.in_clause_parameter_padding", "true");
+	}
+	
+	@Test
+	@DisplayName("Não deve manter a sessão aberta durante a requisição")
+	void openInViewDisabled() {
+		assertThat(context.getBeanNamesForType(OpenEntityManagerInViewInterceptor.class)).isEmpty();
+	}
+	
+	@Test
+	@DisplayName("Deve salvar e recuperar livros com o autocommit desligado")
+	void saveAndGetById() {
+		Book book = service.save(new Book(null, "Meu livro", "Autor", "prod-profile-1"));
+		
+		Optional<Book> foundBook = service.getById(book.getId());
+		
+		assertThat(foundBook).isPresent();
+		assertThat(service.isbnExists("prod-profile-1")).isTrue();
+		assertThat(service.getAllById(Arrays.asList(book.getId(), -1l))).containsOnlyKeys(book.getId());
+	}
+
+}
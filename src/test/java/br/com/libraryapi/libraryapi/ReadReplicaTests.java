@@ -0,0 +1,123 @@
+package br.com.libraryapi.libraryapi;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import br.com.libraryapi.libraryapi.domain.Book;
+import br.com.libraryapi.libraryapi.repositories.BookRepository;
+import br.com.libraryapi.libraryapi.services.BookService;
+
+/**
+ * Réplica de leitura com duas bases H2 em memória. A "replicação" é uma cópia
+ * da base primária feita pelo próprio teste, então tudo o que foi gravado
+ * depois da última cópia só aparece se a leitura for ao primário.
+ */
+@SpringBootTest(properties = {
+		"spring.datasource.url=" + ReadReplicaTests.PRIMARY_URL,
+		"library.datasource.replicas.enabled=true",
+		"library.datasource.replicas.urls=" + ReadReplicaTests.REPLICA_URL
+})
+class ReadReplicaTests {
+	
+	static final String PRIMARY_URL = "jdbc:h2:mem:readreplica-primary;DB_CLOSE_DELAY=-1";
+	static final String REPLICA_URL = "jdbc:h2:mem:readreplica-replica;DB_CLOSE_DELAY=-1";
+	
+	@Autowired
+	private BookRepository repo;
+	
+	@Autowired
+	private BookService service;
+	
+	@BeforeEach
+	public void setUp() throws SQLException {
+		replicate();
+	}
+	
+	@AfterEach
+	public void tearDown() {
+		RequestContextHolder.resetRequestAttributes();
+	}
+	
+	@Test
+	@DisplayName("Deve gravar no primário e ler da réplica")
+	void readFromReplica() throws SQLException {
+		//O teste roda dentro de uma requisição simulada: sem clientes distintos,
+		//a leitura seria do próprio cliente que escreveu e iria ao primário
+		client("escritor");
+		repo.save(new Book(null, "Réplica", "Autor", "replica-read"));
+		
+		client("leitor");
+		assertThat(repo.findByIsbn("replica-read")).isEmpty();
+		
+		replicate();
+		
+		assertThat(repo.findByIsbn("replica-read")).isPresent();
+	}
+	
+	@Test
+	@DisplayName("Deve ler do primário logo depois de uma escrita do mesmo cliente")
+	void readYourWrites() {
+		client("cliente-1");
+		repo.save(new Book(null, "Réplica", "Autor", "replica-own-write"));
+		
+		assertThat(repo.findByIsbn("replica-own-write")).isPresent();
+		
+		client("cliente-2");
+		assertThat(repo.findByIsbn("replica-own-write")).isEmpty();
+	}
+	
+	@Test
+	@DisplayName("Não deve cachear o livro removido lido de uma réplica atrasada")
+	void deleteThenReadFromLaggingReplica() throws SQLException {
+		client("escritor");
+		Book book = service.save(new Book(null, "Réplica", "Autor", "replica-delete"));
+		replicate();
+		service.delete(book);
+		
+		//A réplica ainda não recebeu a remoção: a leitura de outro cliente é antiga
+		client("leitor");
+		assertThat(service.getById(book.getId())).isPresent();
+		assertThat(service.getByIsbn("replica-delete")).isPresent();
+		
+		replicate();
+		
+		//Nem os caches do Spring nem o de segundo nível guardaram a leitura antiga
+		assertThat(service.getById(book.getId())).isEmpty();
+		assertThat(service.getByIsbn("replica-delete")).isEmpty();
+	}
+	
+	private void client(String id) {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.addHeader("X-Client-Id", id);
+		RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+	}
+	
+	//Substitui o conteúdo da réplica por uma cópia do primário
+	private void replicate() throws SQLException {
+		try (Connection primary = DriverManager.getConnection(PRIMARY_URL, "sa", "");
+				Connection replica = DriverManager.getConnection(REPLICA_URL, "sa", "");
+				Statement target = replica.createStatement()) {
+			target.execute("DROP ALL OBJECTS");
+			ResultSet script = primary.createStatement().executeQuery("SCRIPT");
+			while(script.next()) {
+				target.execute(script.getString(1));
+			}
+		}
+	}
+
+}
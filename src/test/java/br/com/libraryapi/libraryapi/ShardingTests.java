@@ -0,0 +1,134 @@
+package br.com.libraryapi.libraryapi;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import br.com.libraryapi.libraryapi.datasource.BookResharder;
+import br.com.libraryapi.libraryapi.datasource.ShardLayout;
+import br.com.libraryapi.libraryapi.domain.Book;
+import br.com.libraryapi.libraryapi.repositories.BookRepository;
+import br.com.libraryapi.libraryapi.resources.exception.BusinessException;
+import br.com.libraryapi.libraryapi.services.BookService;
+
+/**
+ * Três shards em bases H2 em memória, subindo como se o terceiro tivesse
+ * acabado de ser acrescentado ({@code previous-count=2}). As verificações
+ * leem cada base direto por JDBC.
+ */
+@SpringBootTest(properties = {
+		"spring.datasource.url=" + ShardingTests.HOME_SHARD_URL,
+		"spring.jpa.open-in-view=false",
+		"library.sharding.enabled=true",
+		"library.sharding.urls=" + ShardingTests.EXTRA_SHARD_URLS,
+		"library.sharding.previous-count=2"
+})
+class ShardingTests {
+	
+	static final String HOME_SHARD_URL = "jdbc:h2:mem:sharding-0;DB_CLOSE_DELAY=-1";
+	static final String EXTRA_SHARD_URLS = "jdbc:h2:mem:sharding-1;DB_CLOSE_DELAY=-1,jdbc:h2:mem:sharding-2;DB_CLOSE_DELAY=-1";
+	static final String[] SHARD_URLS = (HOME_SHARD_URL + "," + EXTRA_SHARD_URLS).split(",");
+	
+	@Autowired
+	private BookRepository repo;
+	
+	@Autowired
+	private BookService service;
+	
+	@Autowired
+	private ShardLayout layout;
+	
+	@Autowired
+	private BookResharder resharder;
+	
+	@Test
+	@DisplayName("Deve gravar o livro no shard do ISBN e encontrá-lo pelo ID")
+	void savesOnIsbnShard() {
+		for(int i = 0; i < 10; i++) {
+			Book book = service.save(new Book(null, "Shard", "Autor", "sharding-save-" + i));
+			
+			assertThat(shardsWith(book.getIsbn())).containsExactly(layout.shardOf(book.getIsbn()));
+			assertThat(repo.findById(book.getId())).get().extracting(Book::getIsbn).isEqualTo(book.getIsbn());
+		}
+	}
+	
+	@Test
+	@DisplayName("Deve recusar ISBN duplicado")
+	void rejectsDuplicatedIsbn() {
+		service.save(new Book(null, "Shard", "Autor", "sharding-duplicated"));
+		
+		assertThatThrownBy(() -> service.save(new Book(null, "Outro", "Outro autor", "sharding-duplicated")))
+				.isInstanceOf(BusinessException.class);
+	}
+	
+	@Test
+	@DisplayName("Deve encontrar livros ainda no shard antigo e movê-los no resharding")
+	void reshards() throws SQLException {
+		long id = 1_000_000;
+		for(int i = 0; i < 50; i++) {
+			String isbn = "sharding-old-" + i;
+			insert(layout.previousShardOf(isbn), ++id, isbn);
+		}
+		String movedIsbn = null;
+		for(int i = 0; i < 50 && movedIsbn == null; i++) {
+			String isbn = "sharding-old-" + i;
+			if(layout.shardOf(isbn) != layout.previousShardOf(isbn)) {
+				movedIsbn = isbn;
+			}
+		}
+		assertThat(movedIsbn).isNotNull();
+		assertThat(repo.findByIsbn(movedIsbn)).isPresent();
+		assertThat(repo.existsByIsbn(movedIsbn)).isTrue();
+		
+		assertThat(resharder.run()).isPositive();
+		
+		assertThat(layout.isResharding()).isFalse();
+		for(int i = 0; i < 50; i++) {
+			String isbn = "sharding-old-" + i;
+			assertThat(shardsWith(isbn)).containsExactly(layout.shardOf(isbn));
+		}
+		assertThat(repo.findByIsbn(movedIsbn)).isPresent();
+		assertThat(repo.existsByIsbn(movedIsbn)).isTrue();
+	}
+	
+	//Livro gravado pela disposição anterior, antes do shard novo
+	private void insert(int shard, long id, String isbn) throws SQLException {
+		try (Connection connection = DriverManager.getConnection(SHARD_URLS[shard], "sa", "");
+				PreparedStatement insert = connection.prepareStatement("insert into book (id, title, author, isbn, version) values (?, 'Antigo', 'Autor', ?, 0)")) {
+			insert.setLong(1, id);
+			insert.setString(2, isbn);
+			insert.executeUpdate();
+		}
+	}
+	
+	private int[] shardsWith(String isbn) {
+		return IntStream.range(0, SHARD_URLS.length)
+				.filter(shard -> count(shard, isbn) > 0)
+				.toArray();
+	}
+	
+	private int count(int shard, String isbn) {
+		try (Connection connection = DriverManager.getConnection(SHARD_URLS[shard], "sa", "");
+				PreparedStatement select = connection.prepareStatement("select count(*) from book where isbn = ?")) {
+			select.setString(1, isbn);
+			try (ResultSet rs = select.executeQuery()) {
+				rs.next();
+				return rs.getInt(1);
+			}
+		} catch (SQLException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+}
@@ -0,0 +1,91 @@
+package br.com.libraryapi.libraryapi.apidatasource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Arrays;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import br.com.libraryapi.libraryapi.datasource.ReadYourWrites;
+import br.com.libraryapi.libraryapi.datasource.ReplicaRoutingDataSource;
+
+public class ReplicaRoutingDataSourceTest {
+	
+	private final Connection primaryConnection = Mockito.mock(Connection.class);
+	private final Connection replicaConnection = Mockito.mock(Connection.class);
+	private final DataSource primary = Mockito.mock(DataSource.class);
+	private final DataSource replica = Mockito.mock(DataSource.class);
+	
+	private ReplicaRoutingDataSource routing;
+	
+	@BeforeEach
+	public void setUp() throws SQLException {
+		Mockito.when(primary.getConnection()).thenReturn(primaryConnection);
+		Mockito.when(replica.getConnection()).thenReturn(replicaConnection);
+		Mockito.when(replicaConnection.isValid(Mockito.anyInt())).thenReturn(true);
+		//Verificação periódica só quando o teste chama checkHealth
+		routing = new ReplicaRoutingDataSource(primary, Arrays.asList(replica), new ReadYourWrites("X-Client-Id", Duration.ofSeconds(5), 100), 3_600_000);
+	}
+	
+	@AfterEach
+	public void tearDown() throws Exception {
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+		routing.close();
+	}
+	
+	@Test
+	@DisplayName("Deve usar o primário fora de transações somente leitura")
+	public void writesGoToPrimary() throws SQLException {
+		assertThat(routing.getConnection()).isSameAs(primaryConnection);
+	}
+	
+	@Test
+	@DisplayName("Deve usar a réplica em transações somente leitura")
+	public void readsGoToReplica() throws SQLException {
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+		
+		assertThat(routing.getConnection()).isSameAs(replicaConnection);
+	}
+	
+	@Test
+	@DisplayName("Deve ler do primário quando a réplica falha e voltar a ela depois da verificação")
+	public void failoverToPrimary() throws SQLException {
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+		Mockito.when(replica.getConnection()).thenThrow(new SQLException("Connection is not available"));
+		
+		assertThat(routing.getConnection()).isSameAs(primaryConnection);
+		assertThat(routing.isHealthy(0)).isFalse();
+		assertThat(routing.getConnection()).isSameAs(primaryConnection);
+		Mockito.verify(replica, Mockito.times(1)).getConnection();
+		
+		Mockito.reset(replica);
+		Mockito.when(replica.getConnection()).thenReturn(replicaConnection);
+		routing.checkHealth();
+		
+		assertThat(routing.isHealthy(0)).isTrue();
+		assertThat(routing.getConnection()).isSameAs(replicaConnection);
+	}
+	
+	@Test
+	@DisplayName("Deve tirar do rodízio a réplica com conexão inválida")
+	public void invalidConnectionMarksReplicaDown() throws SQLException {
+		Mockito.when(replicaConnection.isValid(Mockito.anyInt())).thenReturn(false);
+		
+		routing.checkHealth();
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+		
+		assertThat(routing.isHealthy(0)).isFalse();
+		assertThat(routing.getConnection()).isSameAs(primaryConnection);
+	}
+
+}
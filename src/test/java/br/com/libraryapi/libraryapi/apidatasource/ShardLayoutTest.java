@@ -0,0 +1,62 @@
+package br.com.libraryapi.libraryapi.apidatasource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import br.com.libraryapi.libraryapi.datasource.ShardContext;
+import br.com.libraryapi.libraryapi.datasource.ShardLayout;
+
+public class ShardLayoutTest {
+	
+	@Test
+	@DisplayName("Deve distribuir os ISBNs entre todos os shards")
+	public void spreadsIsbns() {
+		ShardLayout layout = new ShardLayout(4, 4);
+		int[] counts = new int[4];
+		for(int i = 0; i < 10000; i++) {
+			counts[layout.shardOf("978-" + i)]++;
+		}
+		
+		for(int count : counts) {
+			assertThat(count).isBetween(2000, 3000);
+		}
+	}
+	
+	@Test
+	@DisplayName("Deve mover livros apenas para os shards novos ao aumentar a quantidade")
+	public void growsOnlyIntoNewShards() {
+		ShardLayout layout = new ShardLayout(3, 2);
+		int moved = 0;
+		for(int i = 0; i < 10000; i++) {
+			String isbn = "978-" + i;
+			if(layout.shardOf(isbn) != layout.previousShardOf(isbn)) {
+				assertThat(layout.shardOf(isbn)).isEqualTo(2);
+				moved++;
+			}
+		}
+		
+		assertThat(moved).isBetween(3000, 3700);
+		assertThat(layout.isResharding()).isTrue();
+		
+		layout.finishResharding();
+		
+		assertThat(layout.isResharding()).isFalse();
+		assertThat(layout.previousShardOf("978-1")).isEqualTo(layout.shardOf("978-1"));
+	}
+	
+	@Test
+	@DisplayName("Deve usar o shard principal para livros sem ISBN")
+	public void nullIsbnGoesHome() {
+		assertThat(new ShardLayout(3, 3).shardOf(null)).isEqualTo(ShardContext.HOME);
+	}
+	
+	@Test
+	@DisplayName("Deve recusar uma contagem anterior maior que a atual")
+	public void rejectsShrinking() {
+		assertThatThrownBy(() -> new ShardLayout(2, 3)).isInstanceOf(IllegalArgumentException.class);
+	}
+
+}
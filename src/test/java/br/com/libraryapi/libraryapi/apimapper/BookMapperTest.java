@@ -0,0 +1,55 @@
+package br.com.libraryapi.libraryapi.apimapper;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import br.com.libraryapi.libraryapi.domain.Book;
+import br.com.libraryapi.libraryapi.dto.BookDTO;
+import br.com.libraryapi.libraryapi.mappers.BookMapper;
+import br.com.libraryapi.libraryapi.mappers.DirectBookMapper;
+import br.com.libraryapi.libraryapi.mappers.ModelMapperBookMapper;
+
+public class BookMapperTest {
+	
+	private BookMapper mapper = new DirectBookMapper();
+	
+	private BookMapper fallback = new ModelMapperBookMapper();
+	
+	@Test
+	@DisplayName("Deve converter DTO em entidade com todos os campos")
+	public void toEntityTest() {
+		BookDTO dto = new BookDTO(1l,"Meu livro","Autor","123456");
+		
+		Book book = mapper.toEntity(dto);
+		
+		assertThat(book).isEqualToComparingFieldByField(fallback.toEntity(dto));
+		assertThat(book.getId()).isEqualTo(1l);
+		assertThat(book.getTitle()).isEqualTo(dto.getTitle());
+		assertThat(book.getAuthor()).isEqualTo(dto.getAuthor());
+		assertThat(book.getIsbn()).isEqualTo(dto.getIsbn());
+	}
+	
+	@Test
+	@DisplayName("Deve converter entidade em DTO com todos os campos")
+	public void toDTOTest() {
+		Book book = new Book(1l,"Meu livro","Autor","123456");
+		
+		BookDTO dto = mapper.toDTO(book);
+		
+		assertThat(dto).isEqualToComparingFieldByField(fallback.toDTO(book));
+		assertThat(dto.getId()).isEqualTo(1l);
+		assertThat(dto.getTitle()).isEqualTo(book.getTitle());
+		assertThat(dto.getAuthor()).isEqualTo(book.getAuthor());
+		assertThat(dto.getIsbn()).isEqualTo(book.getIsbn());
+	}
+	
+	@Test
+	@DisplayName("Deve retornar nulo ao converter objeto nulo")
+	public void nullMappingTest() {
+		assertThat(mapper.toEntity(null)).isNull();
+		assertThat(mapper.toDTO(null)).isNull();
+	}
+
+}
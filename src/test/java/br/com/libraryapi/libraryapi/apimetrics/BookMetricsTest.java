@@ -0,0 +1,98 @@
+package br.com.libraryapi.libraryapi.apimetrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.HandlerMapping;
+
+import br.com.libraryapi.libraryapi.domain.Book;
+import br.com.libraryapi.libraryapi.dto.BookDTO;
+import br.com.libraryapi.libraryapi.mappers.BookMapper;
+import br.com.libraryapi.libraryapi.mappers.DirectBookMapper;
+import br.com.libraryapi.libraryapi.metrics.BookMetrics;
+import br.com.libraryapi.libraryapi.metrics.BookMetrics.Stage;
+import br.com.libraryapi.libraryapi.metrics.TimedBookMapper;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class BookMetricsTest {
+	
+	private SimpleMeterRegistry registry;
+	
+	private BookMetrics metrics;
+	
+	@BeforeEach
+	public void setUp() {
+		registry = new SimpleMeterRegistry();
+		metrics = new BookMetrics(registry);
+	}
+	
+	@AfterEach
+	public void tearDown() {
+		RequestContextHolder.resetRequestAttributes();
+	}
+	
+	@Test
+	@DisplayName("Deve registrar a etapa com o endpoint da requisição em andamento")
+	public void recordStageWithEndpoint() {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/books/1");
+		request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/books/{id}");
+		RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+		
+		metrics.record(Stage.JPA_FIND, System.nanoTime(), true);
+		metrics.record(Stage.JPA_FIND, System.nanoTime(), true);
+		
+		Timer timer = registry.get(BookMetrics.STAGE_TIMER)
+				.tags("stage", "jpa_find", "method", "GET", "uri", "/api/books/{id}", "outcome", "SUCCESS")
+				.timer();
+		assertThat(timer.count()).isEqualTo(2);
+	}
+	
+	@Test
+	@DisplayName("Deve registrar a etapa sem endpoint fora de uma requisição")
+	public void recordStageWithoutRequest() {
+		metrics.record(Stage.ISBN_CHECK, System.nanoTime(), false);
+		
+		Timer timer = registry.get(BookMetrics.STAGE_TIMER)
+				.tags("stage", "isbn_check", "method", "NONE", "uri", "NONE", "outcome", "ERROR")
+				.timer();
+		assertThat(timer.count()).isEqualTo(1);
+	}
+	
+	@Test
+	@DisplayName("Deve contar erros por tipo")
+	public void countErrors() {
+		metrics.error("business");
+		metrics.error("business");
+		metrics.error("validation");
+		
+		assertThat(registry.get(BookMetrics.ERROR_COUNTER).tag("type", "business").counter().count()).isEqualTo(2);
+		assertThat(registry.get(BookMetrics.ERROR_COUNTER).tag("type", "validation").counter().count()).isEqualTo(1);
+	}
+	
+	@Test
+	@DisplayName("Deve medir o mapeamento inclusive quando ele falha")
+	public void timedMapper() {
+		BookMapper failing = new DirectBookMapper() {
+			@Override
+			public Book toEntity(BookDTO dto) {
+				throw new IllegalStateException();
+			}
+		};
+		BookMapper mapper = new TimedBookMapper(failing, metrics);
+		
+		mapper.toDTO(new Book(1l,"Meu livro","Autor","123"));
+		assertThatThrownBy(() -> mapper.toEntity(new BookDTO())).isInstanceOf(IllegalStateException.class);
+		
+		assertThat(registry.get(BookMetrics.STAGE_TIMER).tags("stage", "mapping", "outcome", "SUCCESS").timer().count()).isEqualTo(1);
+		assertThat(registry.get(BookMetrics.STAGE_TIMER).tags("stage", "mapping", "outcome", "ERROR").timer().count()).isEqualTo(1);
+	}
+
+}
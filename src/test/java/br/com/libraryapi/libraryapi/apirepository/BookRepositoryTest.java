@@ -1,9 +1,21 @@
 package br.com.libraryapi.libraryapi.apirepository;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceException;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -12,9 +24,14 @@ import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import br.com.libraryapi.libraryapi.domain.Book;
 import br.com.libraryapi.libraryapi.repositories.BookRepository;
+import br.com.libraryapi.libraryapi.repositories.BookSpecifications;
 
 @ExtendWith(SpringExtension.class) 
 @ActiveProfiles("test") 
@@ -27,6 +44,12 @@ public class BookRepositoryTest {
 	@Autowired
 	BookRepository repo;
 	
+	@Autowired
+	EntityManagerFactory entityManagerFactory;
+	
+	@Autowired
+	PlatformTransactionManager transactionManager;
+	
 	@Test
 	@DisplayName("Deve retornar verdadeiro quando existir um livro na base com o ISBN informado")
 	public void mustReturnTrueWhenExistsBookWithIsbnInformed() {
@@ -45,12 +68,138 @@ public class BookRepositoryTest {
 		assertThat(exists).isFalse();
 	}
 	
+	@Test
+	@DisplayName("Deve retornar apenas os ISBNs informados que já existem na base")
+	public void findExistingIsbns() {
+		entityManager.persist(new Book(null,"Aventuras","Fulano","123"));
+		entityManager.persist(new Book(null,"Outras aventuras","Fulano","456"));
+		
+		Set<String> existing = repo.findExistingIsbns(Arrays.asList("123","789"));
+		
+		assertThat(existing).containsExactly("123");
+	}
+	
+	@Test
+	@DisplayName("Não deve permitir dois livros com o mesmo ISBN")
+	public void uniqueIsbn() {
+		entityManager.persist(new Book(null,"Aventuras","Fulano","123"));
+		entityManager.persist(new Book(null,"Outras aventuras","Ciclano","123"));
+		
+		Throwable exception = catchThrowable(() -> entityManager.flush());
+		
+		assertThat(exception).isInstanceOf(PersistenceException.class);
+	}
+	
+	@Test
+	@DisplayName("Deve listar livros filtrados a partir do último ID informado")
+	public void findOrderedByIdAfterCursor() {
+		Book primeiro = entityManager.persist(new Book(null,"Aventuras","Fulano","1"));
+		Book segundo = entityManager.persist(new Book(null,"Aventuras 2","Fulano","2"));
+		Book terceiro = entityManager.persist(new Book(null,"Aventuras 3","Fulano","3"));
+		entityManager.persist(new Book(null,"Outro livro","Fulano","4"));
+		
+		List<Book> books = repo.findOrderedById(BookSpecifications.matching(new Book(null,"Aventuras",null,null))
+				.and(BookSpecifications.idGreaterThan(primeiro.getId())), 10);
+		
+		assertThat(books).extracting(Book::getId).containsExactly(segundo.getId(), terceiro.getId());
+	}
+	
+	@Test
+	@DisplayName("Deve percorrer todos os livros em ordem de ID sem gerenciá-los")
+	public void streamAllOrderedById() {
+		Book primeiro = entityManager.persist(new Book(null,"Aventuras","Fulano","1"));
+		Book segundo = entityManager.persist(new Book(null,"Outro livro","Ciclano","2"));
+		entityManager.flush();
+		entityManager.clear();
+		
+		List<Book> books;
+		try(Stream<Book> stream = repo.streamAllOrderedById()) {
+			books = stream.collect(Collectors.toList());
+		}
+		
+		assertThat(books).extracting(Book::getId).containsExactly(primeiro.getId(), segundo.getId());
+		assertThat(books).extracting(Book::getTitle).containsExactly("Aventuras", "Outro livro");
+		assertThat(books).noneMatch(entityManager.getEntityManager()::contains);
+	}
+	
+	@Test
+	@DisplayName("Deve incrementar a versão do livro ao atualizar")
+	public void incrementVersionOnUpdate() {
+		Book book = entityManager.persistFlushFind(new Book(null,"Aventuras","Fulano","123"));
+		Long version = book.getVersion();
+		
+		book.setTitle("Novas aventuras");
+		repo.saveAndFlush(book);
+		
+		assertThat(version).isNotNull();
+		assertThat(book.getVersion()).isEqualTo(version + 1);
+	}
+	
+	@Test
+	@DisplayName("Deve buscar o livro no cache de segundo nível depois de gravado")
+	//O Hibernate não põe no cache entidades inseridas na transação corrente:
+	//aqui cada chamada ao repositório faz commit da própria transação
+	@Transactional(propagation=Propagation.NOT_SUPPORTED)
+	public void findByIdFromSecondLevelCache() {
+		Long id = repo.save(new Book(null,"Aventuras","Fulano","l2-cache")).getId();
+		try {
+			Statistics statistics = statistics();
+			long hits = statistics.getDomainDataRegionStatistics(Book.CACHE_REGION).getHitCount();
+			
+			Optional<Book> foundBook = repo.findById(id);
+			
+			assertThat(foundBook.isPresent()).isTrue();
+			assertThat(statistics.getDomainDataRegionStatistics(Book.CACHE_REGION).getHitCount()).isEqualTo(hits + 1);
+		} finally {
+			repo.deleteById(id);
+		}
+	}
+	
+	@Test
+	@DisplayName("Deve responder a consulta repetida de ISBN pelo query cache")
+	public void existsByIsbnFromQueryCache() {
+		Statistics statistics = statistics();
+		
+		repo.existsByIsbn("999");
+		long hits = statistics.getQueryCacheHitCount();
+		boolean exists = repo.existsByIsbn("999");
+		
+		assertThat(exists).isFalse();
+		assertThat(statistics.getQueryCacheHitCount()).isEqualTo(hits + 1);
+	}
+	
+	@Test
+	@DisplayName("Deve alterar um livro do cache de segundo nível com um único UPDATE das colunas alteradas")
+	@Transactional(propagation=Propagation.NOT_SUPPORTED)
+	public void dynamicUpdateFromSecondLevelCache() {
+		Long id = repo.save(new Book(null,"Aventuras","Fulano","dynamic-update")).getId();
+		try {
+			Statistics statistics = statistics();
+			long statements = statistics.getPrepareStatementCount();
+			
+			new TransactionTemplate(transactionManager).execute(status -> {
+				repo.findById(id).get().setTitle("Novas aventuras");
+				return null;
+			});
+			
+			assertThat(statistics.getPrepareStatementCount()).isEqualTo(statements + 1);
+			assertThat(repo.findById(id).get().getTitle()).isEqualTo("Novas aventuras");
+			assertThat(entityManagerFactory.unwrap(SessionFactoryImplementor.class).getMetamodel()
+					.entityPersister(Book.class).getEntityMetamodel().isDynamicUpdate()).isTrue();
+		} finally {
+			repo.deleteById(id);
+		}
+	}
+	
+	private Statistics statistics() {
+		return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+	}
+	
 	@Test
 	@DisplayName("Deve retornar um livro por ID")
 	public void findById(){
-		Long id = 1l;
 		Book book = new Book(null,"Aventuras","Fulano","123");
-		entityManager.persist(book);
+		Long id = entityManager.persist(book).getId();
 		Optional<Book> foundBook = repo.findById(id);
 		
 		assertThat(foundBook.isPresent()).isTrue();
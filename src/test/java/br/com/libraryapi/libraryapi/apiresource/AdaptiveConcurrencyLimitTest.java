@@ -0,0 +1,60 @@
+package br.com.libraryapi.libraryapi.apiresource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import br.com.libraryapi.libraryapi.resources.filter.AdaptiveConcurrencyLimit;
+
+public class AdaptiveConcurrencyLimitTest {
+	
+	private static final long MILLIS = 1_000_000;
+	
+	//Janela de 0 ns: cada amostra depois da mínima encerra a janela
+	private final AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 2, 20, 2.0, 0.5, 0, 1);
+	
+	@Test
+	@DisplayName("Deve recusar além do limite")
+	public void rejectsAboveLimit() {
+		for(int i = 0; i < 10; i++) {
+			assertThat(limit.tryAcquire()).isTrue();
+		}
+		
+		assertThat(limit.tryAcquire()).isFalse();
+		
+		limit.cancel();
+		
+		assertThat(limit.tryAcquire()).isTrue();
+	}
+	
+	@Test
+	@DisplayName("Deve aumentar o limite em 1 quando a latência fica estável sob uso")
+	public void increasesWhenLatencyIsStable() {
+		for(int i = 0; i < 6; i++) {
+			limit.tryAcquire();
+		}
+		limit.release(10 * MILLIS);
+		
+		assertThat(limit.getLimit()).isEqualTo(11);
+	}
+	
+	@Test
+	@DisplayName("Deve reduzir o limite multiplicativamente quando a latência sobe")
+	public void decreasesWhenLatencyGrows() {
+		limit.tryAcquire();
+		limit.release(10 * MILLIS);
+		limit.tryAcquire();
+		limit.release(50 * MILLIS);
+		
+		assertThat(limit.getLimit()).isEqualTo(5);
+		
+		for(int i = 0; i < 10; i++) {
+			limit.tryAcquire();
+			limit.release(50 * MILLIS);
+		}
+		
+		assertThat(limit.getLimit()).isEqualTo(2);
+	}
+
+}
@@ -0,0 +1,85 @@
+package br.com.libraryapi.libraryapi.apiresource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.Servlet;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import br.com.libraryapi.libraryapi.resources.filter.BlockingOffloadFilter;
+
+public class BlockingOffloadFilterTest {
+	
+	private Servlet servlet;
+	private List<Runnable> queue;
+	private BlockingOffloadFilter filter;
+	private MockHttpServletRequest request;
+	private MockHttpServletResponse response;
+	
+	@BeforeEach
+	public void setUp() {
+		servlet = mock(Servlet.class);
+		//Executor que só enfileira: a requisição fica na fila até o teste executá-la
+		queue = new ArrayList<>();
+		filter = new BlockingOffloadFilter(servlet, queue::add, 200, Collections.emptyList());
+		request = new MockHttpServletRequest("GET", "/api/books/1");
+		request.setAsyncSupported(true);
+		response = new MockHttpServletResponse();
+	}
+	
+	@Test
+	@DisplayName("Deve processar no executor e despachar de volta ao container")
+	public void processesAndDispatches() throws Exception {
+		filter.doFilter(request, response, new MockFilterChain());
+		
+		assertThat(queue).hasSize(1);
+		queue.get(0).run();
+		
+		verify(servlet).service(request, response);
+		assertThat(asyncContext().getDispatchedPath()).isNotNull();
+	}
+	
+	@Test
+	@DisplayName("Deve responder 503 com Retry-After e descartar a requisição que expirou na fila")
+	public void queuedRequestTimesOut() throws Exception {
+		filter.doFilter(request, response, new MockFilterChain());
+		
+		MockAsyncContext async = asyncContext();
+		for(AsyncListener listener : async.getListeners()) {
+			listener.onTimeout(new AsyncEvent(async));
+		}
+		
+		assertThat(response.getStatus()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE.value());
+		assertThat(response.getHeader("Retry-After")).isEqualTo("1");
+		
+		//A vez dela no executor chega depois: não executa o servlet nem despacha o contexto encerrado
+		queue.get(0).run();
+		
+		verify(servlet, never()).service(any(ServletRequest.class), any(ServletResponse.class));
+		assertThat(async.getDispatchedPath()).isNull();
+	}
+	
+	private MockAsyncContext asyncContext() {
+		return (MockAsyncContext) request.getAsyncContext();
+	}
+	
+}
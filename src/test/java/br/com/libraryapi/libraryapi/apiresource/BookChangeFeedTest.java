@@ -0,0 +1,145 @@
+package br.com.libraryapi.libraryapi.apiresource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import br.com.libraryapi.libraryapi.domain.Book;
+import br.com.libraryapi.libraryapi.services.BookService;
+
+/**
+ * Feed de alterações de ponta a ponta: outbox gravado na transação do livro,
+ * relay e leitura por long-poll e SSE.
+ */
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
+public class BookChangeFeedTest {
+	
+	private static final String CHANGES_API = "/api/books/changes";
+	
+	private final HttpClient client = HttpClient.newHttpClient();
+	
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	
+	@LocalServerPort
+	int port;
+	
+	@Autowired
+	BookService service;
+	
+	@Test
+	@DisplayName("Deve publicar criação, alteração e exclusão de um livro em ordem")
+	public void publishMutationsInOrder() throws Exception {
+		long since = currentCursor();
+		Book book = service.save(new Book(null, "Feed", "Autor", "feed-mutations"));
+		book.setTitle("Feed alterado");
+		book = service.update(book);
+		service.delete(book);
+		
+		List<JsonNode> changes = new ArrayList<>();
+		long deadline = System.currentTimeMillis() + 10_000;
+		while(changes.size() < 3 && System.currentTimeMillis() < deadline) {
+			JsonNode page = get(CHANGES_API + "?since=" + since + "&wait=5");
+			for(JsonNode change : page.get("changes")) {
+				if("feed-mutations".equals(change.get("book").get("isbn").asText())) {
+					changes.add(change);
+				}
+			}
+			since = page.get("cursor").asLong();
+		}
+		
+		assertThat(changes).extracting(change -> change.get("type").asText()).containsExactly("CREATED", "UPDATED", "DELETED");
+		assertThat(changes.get(1).get("book").get("title").asText()).isEqualTo("Feed alterado");
+		assertThat(changes.get(0).get("position").asLong()).isLessThan(changes.get(1).get("position").asLong());
+		assertThat(changes.get(1).get("position").asLong()).isLessThan(changes.get(2).get("position").asLong());
+	}
+	
+	@Test
+	@DisplayName("Deve responder o long-poll assim que uma alteração for publicada")
+	public void longPollReturnsOnPublish() throws Exception {
+		long since = currentCursor();
+		long start = System.nanoTime();
+		CompletableFuture<HttpResponse<String>> pending = client.sendAsync(
+				request(CHANGES_API + "?since=" + since + "&wait=30", "application/json"), HttpResponse.BodyHandlers.ofString());
+		Thread.sleep(200);
+		service.save(new Book(null, "Feed", "Autor", "feed-long-poll"));
+		
+		JsonNode page = objectMapper.readTree(pending.get(10, TimeUnit.SECONDS).body());
+		assertThat(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start)).isLessThan(30);
+		assertThat(page.get("changes").size()).isPositive();
+		assertThat(page.get("cursor").asLong()).isGreaterThan(since);
+	}
+	
+	@Test
+	@DisplayName("Deve enviar as alterações como Server-Sent Events com a posição como ID")
+	public void streamChanges() throws Exception {
+		long since = currentCursor();
+		CompletableFuture<HttpResponse<Stream<String>>> stream = client.sendAsync(
+				request(CHANGES_API + "?since=" + since, "text/event-stream"), HttpResponse.BodyHandlers.ofLines());
+		service.save(new Book(null, "Feed", "Autor", "feed-sse"));
+		
+		List<String> event = new ArrayList<>();
+		CompletableFuture.runAsync(() -> {
+			try(Stream<String> lines = stream.join().body()) {
+				List<String> current = new ArrayList<>();
+				for(String line : (Iterable<String>) lines::iterator) {
+					if(!line.isEmpty()) {
+						current.add(line);
+					} else if(current.stream().anyMatch(field -> field.contains("feed-sse"))) {
+						event.addAll(current);
+						return;
+					} else {
+						current.clear();
+					}
+				}
+			}
+		}).get(10, TimeUnit.SECONDS);
+		
+		assertThat(event).anyMatch(field -> field.startsWith("id:"));
+		assertThat(event).contains("event:CREATED");
+	}
+	
+	//Posição do fim do feed no momento, para ignorar as alterações de outros testes
+	private long currentCursor() throws Exception {
+		long cursor = 0;
+		JsonNode page;
+		do {
+			page = get(CHANGES_API + "?since=" + cursor + "&limit=1000");
+			cursor = page.get("cursor").asLong();
+		} while(page.get("changes").size() > 0);
+		return cursor;
+	}
+	
+	private JsonNode get(String path) throws Exception {
+		HttpResponse<String> response = client.send(request(path, "application/json"), HttpResponse.BodyHandlers.ofString());
+		assertThat(response.statusCode()).isEqualTo(200);
+		return objectMapper.readTree(response.body());
+	}
+	
+	private HttpRequest request(String path, String accept) {
+		return HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).header("Accept", accept).GET().build();
+	}
+
+}
@@ -0,0 +1,115 @@
+package br.com.libraryapi.libraryapi.apiresource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+
+import br.com.libraryapi.libraryapi.domain.Book;
+import br.com.libraryapi.libraryapi.dto.BookDTO;
+import br.com.libraryapi.libraryapi.services.BookService;
+
+/**
+ * Compressão e representação CBOR de /api/books. Usa um servidor real: a
+ * compressão é feita pelo Tomcat e não passa pelo MockMvc.
+ */
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
+public class BookResourceEncodingTest {
+	
+	private static final String BOOK_API = "/api/books";
+	
+	private static final String APPLICATION_CBOR = "application/cbor";
+	
+	private final HttpClient client = HttpClient.newHttpClient();
+	
+	private final ObjectMapper cborMapper = new ObjectMapper(new CBORFactory());
+	
+	@LocalServerPort
+	int port;
+	
+	@Autowired
+	BookService service;
+	
+	@Test
+	@DisplayName("Deve comprimir com gzip listas grandes e não comprimir respostas pequenas")
+	public void gzipLargeResponses() throws Exception {
+		List<Book> books = new ArrayList<>();
+		for(int i = 0; i < 50; i++) {
+			books.add(new Book(null, "Um livro com título longo " + i, "Autor", "gzip-" + i));
+		}
+		service.saveAll(books);
+		
+		HttpResponse<byte[]> list = get(BOOK_API + "?size=50", "application/json", true);
+		HttpResponse<byte[]> single = get(BOOK_API + "/" + books.get(0).getId(), "application/json", true);
+		
+		assertThat(list.statusCode()).isEqualTo(200);
+		assertThat(list.headers().firstValue("Content-Encoding")).hasValue("gzip");
+		byte[] json = new GZIPInputStream(new ByteArrayInputStream(list.body())).readAllBytes();
+		assertThat(list.body().length).isLessThan(json.length / 2);
+		assertThat(new ObjectMapper().readTree(json).get("content").size()).isEqualTo(50);
+		
+		assertThat(single.statusCode()).isEqualTo(200);
+		assertThat(single.headers().firstValue("Content-Encoding")).isEmpty();
+	}
+	
+	@Test
+	@DisplayName("Deve criar e recuperar livros em CBOR conforme Accept e Content-Type")
+	public void cborRepresentation() throws Exception {
+		byte[] body = cborMapper.writeValueAsBytes(new BookDTO(null, "Meu livro", "Autor", "cbor-1"));
+		HttpRequest create = HttpRequest.newBuilder(uri(BOOK_API))
+				.header("Content-Type", APPLICATION_CBOR)
+				.header("Accept", APPLICATION_CBOR)
+				.POST(HttpRequest.BodyPublishers.ofByteArray(body))
+				.build();
+		
+		HttpResponse<byte[]> created = client.send(create, HttpResponse.BodyHandlers.ofByteArray());
+		
+		assertThat(created.statusCode()).isEqualTo(201);
+		assertThat(created.headers().firstValue("Content-Type")).hasValue(APPLICATION_CBOR);
+		BookDTO createdBook = cborMapper.readValue(created.body(), BookDTO.class);
+		assertThat(createdBook.getIsbn()).isEqualTo("cbor-1");
+		
+		HttpResponse<byte[]> found = get(BOOK_API + "/batch?ids=" + createdBook.getId() + ",-1", APPLICATION_CBOR, false);
+		
+		assertThat(found.statusCode()).isEqualTo(200);
+		JsonNode batch = cborMapper.readTree(found.body());
+		assertThat(batch.get("books").get(0).get("title").asText()).isEqualTo("Meu livro");
+		assertThat(batch.get("missing").get(0).asLong()).isEqualTo(-1);
+	}
+	
+	private HttpResponse<byte[]> get(String path, String accept, boolean gzip) throws IOException, InterruptedException {
+		HttpRequest.Builder request = HttpRequest.newBuilder(uri(path)).header("Accept", accept);
+		if(gzip) {
+			request.header("Accept-Encoding", "gzip");
+		}
+		return client.send(request.GET().build(), HttpResponse.BodyHandlers.ofByteArray());
+	}
+	
+	private URI uri(String path) {
+		return URI.create("http://localhost:" + port + path);
+	}
+	
+}
@@ -0,0 +1,65 @@
+package br.com.libraryapi.libraryapi.apiresource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import br.com.libraryapi.libraryapi.dto.BookDTO;
+
+/**
+ * Mesmo contrato de /api/books com {@code library.execution.mode=offload},
+ * usando um servidor real (o MockMvc não executa o filtro assíncrono).
+ */
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT, properties = "library.execution.mode=offload")
+public class BookResourceOffloadTest {
+	
+	private static final String BOOK_API = "/api/books";
+	
+	@Autowired
+	TestRestTemplate rest;
+	
+	@Autowired
+	ThreadPoolExecutor blockingOffloadExecutor;
+	
+	@Test
+	@DisplayName("Deve criar e recuperar um livro no modo offload")
+	public void createAndGetBook() {
+		ResponseEntity<BookDTO> created = rest.postForEntity(BOOK_API, new BookDTO(null,"Meu livro","Autor","offload-1"), BookDTO.class);
+		
+		assertThat(created.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+		assertThat(created.getBody().getId()).isNotNull();
+		
+		ResponseEntity<BookDTO> found = rest.getForEntity(BOOK_API + "/" + created.getBody().getId(), BookDTO.class);
+		
+		assertThat(found.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(found.getHeaders().getETag()).isNotNull();
+		assertThat(found.getBody().getIsbn()).isEqualTo("offload-1");
+		assertThat(blockingOffloadExecutor.getTaskCount()).isGreaterThanOrEqualTo(2);
+	}
+	
+	@Test
+	@DisplayName("Deve manter os códigos de erro no modo offload")
+	public void errorsInOffloadMode() {
+		ResponseEntity<String> notFound = rest.getForEntity(BOOK_API + "/999999", String.class);
+		ResponseEntity<String> invalid = rest.postForEntity(BOOK_API, new BookDTO(), String.class);
+		
+		assertThat(notFound.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+		assertThat(invalid.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+		assertThat(invalid.getBody()).contains("errors");
+	}
+
+}
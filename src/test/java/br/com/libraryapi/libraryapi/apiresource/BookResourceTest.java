@@ -1,21 +1,37 @@
 package br.com.libraryapi.libraryapi.apiresource;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.BDDMockito;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
@@ -26,13 +42,21 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 
 import br.com.libraryapi.libraryapi.domain.Book;
 import br.com.libraryapi.libraryapi.dto.BookDTO;
+import br.com.libraryapi.libraryapi.mappers.DirectBookMapper;
+import br.com.libraryapi.libraryapi.metrics.BookMetrics;
+import br.com.libraryapi.libraryapi.resources.BookResource;
+import br.com.libraryapi.libraryapi.resources.IdempotencyStore;
 import br.com.libraryapi.libraryapi.resources.exception.BusinessException;
+import br.com.libraryapi.libraryapi.services.BookSaveResult;
+import br.com.libraryapi.libraryapi.services.impl.BookChangeFeed;
+import br.com.libraryapi.libraryapi.services.impl.BookSearchIndex;
 import br.com.libraryapi.libraryapi.services.impl.BookServiceImpl;
 
 @ExtendWith(SpringExtension.class) //Criando contexto para rodar os testes
 @ActiveProfiles("test") //Profile ativo (application.properties)
 @WebMvcTest //Configura um objeto para receber as requisições
 @AutoConfigureMockMvc 
+@Import({DirectBookMapper.class, IdempotencyStore.class})
 public class BookResourceTest {
 	
 	private static final String BOOK_API = "/api/books";
@@ -43,6 +67,12 @@ public class BookResourceTest {
 	@MockBean
 	BookServiceImpl service;
 	
+	@MockBean
+	BookMetrics metrics;
+	
+	@MockBean
+	BookChangeFeed changeFeed;
+	
 	@Test
 	@DisplayName("Deve criar um livro com sucesso")
 	public void createBookTest() throws Exception {
@@ -70,6 +100,50 @@ public class BookResourceTest {
 		
 	}
 	
+	@Test
+	@DisplayName("Deve repetir a resposta original sem criar de novo quando a Idempotency-Key se repete")
+	public void createBookWithRepeatedIdempotencyKey() throws Exception {
+		Book savedBook = new Book(1l,"Meu livro","Autor","123456");
+		BDDMockito.given(service.save(Mockito.any(Book.class))).willReturn(savedBook);
+		String json = new ObjectMapper().writeValueAsString(createBookDTO());
+		
+		MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+				.post(BOOK_API)
+				.header(IdempotencyStore.IDEMPOTENCY_KEY_HEADER, "create-repeated")
+				.contentType(MediaType.APPLICATION_JSON)
+				.accept(MediaType.APPLICATION_JSON)
+				.content(json);
+		
+		mvc.perform(request)
+			.andExpect(status().isCreated())
+			.andExpect(header().doesNotExist(IdempotencyStore.REPLAYED_HEADER));
+		mvc.perform(request)
+			.andExpect(status().isCreated())
+			.andExpect(header().string(IdempotencyStore.REPLAYED_HEADER, "true"))
+			.andExpect(jsonPath("id").value(1));
+		Mockito.verify(service, Mockito.times(1)).save(Mockito.any(Book.class));
+	}
+	
+	@Test
+	@DisplayName("Deve lançar erro ao reusar a Idempotency-Key com outro livro")
+	public void createBookWithReusedIdempotencyKey() throws Exception {
+		BDDMockito.given(service.save(Mockito.any(Book.class))).willReturn(new Book(1l,"Meu livro","Autor","123456"));
+		
+		mvc.perform(MockMvcRequestBuilders
+				.post(BOOK_API)
+				.header(IdempotencyStore.IDEMPOTENCY_KEY_HEADER, "create-reused")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content(new ObjectMapper().writeValueAsString(createBookDTO())))
+			.andExpect(status().isCreated());
+		mvc.perform(MockMvcRequestBuilders
+				.post(BOOK_API)
+				.header(IdempotencyStore.IDEMPOTENCY_KEY_HEADER, "create-reused")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content(new ObjectMapper().writeValueAsString(new BookDTO(null,"Outro livro","Autor","654321"))))
+			.andExpect(status().isUnprocessableEntity());
+		Mockito.verify(service, Mockito.times(1)).save(Mockito.any(Book.class));
+	}
+	
 	@Test
 	@DisplayName("Deve lançar erro de validação quando não há dados suficientes para criação")
 	public void createInvalidBookTest() throws Exception {
@@ -80,6 +154,8 @@ public class BookResourceTest {
 				.accept(MediaType.APPLICATION_JSON)
 				.content(json);
 		mvc.perform(request).andExpect(status().isBadRequest()).andExpect(jsonPath("errors",Matchers.hasSize(3)));
+		
+		Mockito.verify(metrics).error("validation");
 	}
 	
 	@Test
@@ -102,6 +178,199 @@ public class BookResourceTest {
 			.isBadRequest())
 			.andExpect(jsonPath("errors",Matchers.hasSize(1)))
 			.andExpect(jsonPath("errors[0]").value(mensagem));
+		
+		Mockito.verify(metrics).error("business");
+	}
+	
+	@Test
+	@DisplayName("Deve importar um lote de livros informando o resultado de cada registro")
+	public void createBooksInBulkTest() throws Exception {
+		List<BookDTO> dtos = Arrays.asList(createBookDTO(), new BookDTO(null,"Outro livro","Autor","654321"), new BookDTO());
+		String json = new ObjectMapper().writeValueAsString(dtos);
+		
+		BDDMockito.given(service.saveAll(Mockito.anyList())).willReturn(Arrays.asList(
+				BookSaveResult.success(new Book(1l,"Meu livro","Autor","123456")),
+				BookSaveResult.failure(new Book(null,"Outro livro","Autor","654321"), "ISBN já existente!")));
+		
+		MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+				.post(BOOK_API.concat("/bulk"))
+				.contentType(MediaType.APPLICATION_JSON)
+				.accept(MediaType.APPLICATION_JSON)
+				.content(json);
+		
+		mvc.perform(request)
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("received").value(3))
+			.andExpect(jsonPath("created").value(1))
+			.andExpect(jsonPath("failed").value(2))
+			.andExpect(jsonPath("results[0].status").value("CREATED"))
+			.andExpect(jsonPath("results[0].book.id").value(1))
+			.andExpect(jsonPath("results[1].errors[0]").value("ISBN já existente!"))
+			.andExpect(jsonPath("results[2].errors", Matchers.hasSize(3)));
+	}
+	
+	@Test
+	@DisplayName("Deve importar livros enviados em NDJSON reportando linhas inválidas")
+	public void createBooksFromNdjsonTest() throws Exception {
+		String ndjson = new ObjectMapper().writeValueAsString(createBookDTO()) + "\n{invalido\n";
+		
+		BDDMockito.given(service.saveAll(Mockito.anyList())).willReturn(Arrays.asList(
+				BookSaveResult.success(new Book(1l,"Meu livro","Autor","123456"))));
+		
+		MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+				.post(BOOK_API.concat("/bulk"))
+				.contentType(BookResource.APPLICATION_NDJSON_VALUE)
+				.accept(MediaType.APPLICATION_JSON)
+				.content(ndjson);
+		
+		mvc.perform(request)
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("received").value(2))
+			.andExpect(jsonPath("created").value(1))
+			.andExpect(jsonPath("failed").value(1))
+			//Apenas as falhas, sem o livro
+			.andExpect(jsonPath("results", Matchers.hasSize(1)))
+			.andExpect(jsonPath("results[0].index").value(1))
+			.andExpect(jsonPath("results[0].book").doesNotExist())
+			.andExpect(jsonPath("results[0].errors[0]").value("JSON inválido"));
+	}
+	
+	@Test
+	@DisplayName("Deve listar livros filtrados com o cursor da próxima página")
+	public void findBooksTest() throws Exception {
+		List<Book> books = Arrays.asList(new Book(1l,"Meu livro","Autor","123456"), new Book(2l,"Meu livro 2","Autor","654321"));
+		BDDMockito.given(service.find(Mockito.any(Book.class), Mockito.eq(10l), Mockito.eq(2)))
+			.willReturn(new SliceImpl<>(books, PageRequest.of(0, 2), true));
+		
+		MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+				.get(BOOK_API.concat("?title=Meu&after=10&size=2"))
+				.accept(MediaType.APPLICATION_JSON);
+		
+		mvc.perform(request)
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("content", Matchers.hasSize(2)))
+			.andExpect(jsonPath("hasNext").value(true))
+			.andExpect(jsonPath("nextCursor").value(2))
+			.andExpect(jsonPath("totalElements").doesNotExist());
+		Mockito.verify(service, Mockito.never()).count(Mockito.any(Book.class));
+	}
+	
+	@Test
+	@DisplayName("Deve informar o total de livros do filtro apenas quando pedido")
+	public void findBooksWithCountTest() throws Exception {
+		List<Book> books = Arrays.asList(new Book(1l,"Meu livro","Autor","123456"));
+		BDDMockito.given(service.find(Mockito.any(Book.class), Mockito.isNull(), Mockito.eq(20)))
+			.willReturn(new SliceImpl<>(books, PageRequest.of(0, 20), false));
+		BDDMockito.given(service.count(Mockito.any(Book.class))).willReturn(1l);
+		
+		MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+				.get(BOOK_API.concat("?author=Autor&count=true"))
+				.accept(MediaType.APPLICATION_JSON);
+		
+		mvc.perform(request)
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("hasNext").value(false))
+			.andExpect(jsonPath("totalElements").value(1));
+	}
+	
+	@Test
+	@DisplayName("Deve exportar todos os livros em NDJSON, um por linha")
+	public void exportNdjsonTest() throws Exception {
+		BDDMockito.given(service.export(Mockito.any())).willAnswer(invocation -> {
+			Consumer<Book> consumer = invocation.getArgument(0);
+			consumer.accept(new Book(1l,"Meu livro","Autor","123"));
+			consumer.accept(new Book(2l,"Outro livro","Autor","456"));
+			return 2l;
+		});
+		
+		MockHttpServletRequestBuilder request = MockMvcRequestBuilders.get(BOOK_API.concat("/export"));
+		
+		mvc.perform(request)
+			.andExpect(status().isOk())
+			.andExpect(content().contentTypeCompatibleWith(BookResource.APPLICATION_NDJSON_VALUE))
+			.andExpect(header().string("Content-Disposition", Matchers.containsString("books.ndjson")))
+			.andExpect(content().string(
+					"{\"id\":1,\"title\":\"Meu livro\",\"author\":\"Autor\",\"isbn\":\"123\"}\n" +
+					"{\"id\":2,\"title\":\"Outro livro\",\"author\":\"Autor\",\"isbn\":\"456\"}\n"));
+	}
+	
+	@Test
+	@DisplayName("Deve exportar todos os livros em CSV escapando vírgulas e aspas")
+	public void exportCsvTest() throws Exception {
+		BDDMockito.given(service.export(Mockito.any())).willAnswer(invocation -> {
+			Consumer<Book> consumer = invocation.getArgument(0);
+			consumer.accept(new Book(1l,"Livro, \"o primeiro\"","Autor","123"));
+			return 1l;
+		});
+		
+		MockHttpServletRequestBuilder request = MockMvcRequestBuilders.get(BOOK_API.concat("/export?format=csv"));
+		
+		mvc.perform(request)
+			.andExpect(status().isOk())
+			.andExpect(content().contentTypeCompatibleWith(BookResource.TEXT_CSV_VALUE))
+			.andExpect(content().string("id,title,author,isbn\r\n1,\"Livro, \"\"o primeiro\"\"\",Autor,123\r\n"));
+	}
+	
+	@Test
+	@DisplayName("Deve lançar erro ao exportar em formato desconhecido")
+	public void exportInvalidFormatTest() throws Exception {
+		mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("/export?format=xml")))
+			.andExpect(status().isBadRequest());
+		
+		Mockito.verify(service, Mockito.never()).export(Mockito.any());
+	}
+	
+	@Test
+	@DisplayName("Deve buscar livros por texto de forma paginada")
+	public void searchBooksTest() throws Exception {
+		List<Book> books = Arrays.asList(new Book(1l,"Meu livro","Autor","123456"));
+		BDDMockito.given(service.search("meu liv", 0, 10)).willReturn(new PageImpl<>(books, PageRequest.of(0, 10), 1));
+		
+		MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+				.get(BOOK_API.concat("/search?q=meu liv&page=0&size=10"))
+				.accept(MediaType.APPLICATION_JSON);
+		
+		mvc.perform(request)
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("content", Matchers.hasSize(1)))
+			.andExpect(jsonPath("content[0].title").value("Meu livro"))
+			.andExpect(jsonPath("totalElements").value(1));
+	}
+	
+	@Test
+	@DisplayName("Deve recuperar vários livros por ID informando os não encontrados")
+	public void getBooksBatchTest() throws Exception {
+		Map<Long, Book> found = new LinkedHashMap<>();
+		found.put(1l, new Book(1l,"Meu livro","Autor","123456"));
+		found.put(3l, new Book(3l,"Outro livro","Autor","654321"));
+		BDDMockito.given(service.getAllById(Arrays.asList(1l, 2l, 3l))).willReturn(found);
+		
+		MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+				.get(BOOK_API.concat("/batch?ids=1,2,3"))
+				.accept(MediaType.APPLICATION_JSON);
+		
+		mvc.perform(request)
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("books", Matchers.hasSize(2)))
+			.andExpect(jsonPath("books[0].id").value(1))
+			.andExpect(jsonPath("books[1].id").value(3))
+			.andExpect(jsonPath("missing", Matchers.contains(2)));
+	}
+	
+	@Test
+	@DisplayName("Deve lançar erro ao pedir mais IDs que o limite em uma requisição")
+	public void getBooksBatchOverLimit() throws Exception {
+		List<Long> ids = LongStream.rangeClosed(1, 1001).boxed().collect(Collectors.toList());
+		
+		MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+				.post(BOOK_API.concat("/batch"))
+				.contentType(MediaType.APPLICATION_JSON)
+				.accept(MediaType.APPLICATION_JSON)
+				.content(new ObjectMapper().writeValueAsString(ids));
+		
+		mvc.perform(request)
+			.andExpect(status().isBadRequest());
+		Mockito.verify(service, Mockito.never()).getAllById(Mockito.any());
 	}
 	
 	@Test
@@ -123,6 +392,130 @@ public class BookResourceTest {
 			.andExpect(jsonPath("isbn").value(book.getIsbn()));
 	}
 	
+	@Test
+	@DisplayName("Deve retornar a ETag com a versão do livro")
+	public void mustReturnETagWithBookVersion() throws Exception {
+		Book book = new Book(1l,"Meu livro","Autor","123456");
+		book.setVersion(3l);
+		BDDMockito.given(service.getById(1l)).willReturn(Optional.of(book));
+		
+		MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+				.get(BOOK_API.concat("/1"))
+				.accept(MediaType.APPLICATION_JSON);
+		
+		mvc.perform(request)
+			.andExpect(status().isOk())
+			.andExpect(header().string("ETag", "\"3\""));
+	}
+	
+	@Test
+	@DisplayName("Deve retornar NOT MODIFIED quando o cliente já tem a versão atual")
+	public void mustReturnNotModifiedWhenETagMatches() throws Exception {
+		Book book = new Book(1l,"Meu livro","Autor","123456");
+		book.setVersion(3l);
+		BDDMockito.given(service.getById(1l)).willReturn(Optional.of(book));
+		
+		MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+				.get(BOOK_API.concat("/1"))
+				.header("If-None-Match", "\"3\"")
+				.accept(MediaType.APPLICATION_JSON);
+		
+		mvc.perform(request)
+			.andExpect(status().isNotModified())
+			.andExpect(header().string("ETag", "\"3\""))
+			.andExpect(content().string(""));
+	}
+	
+	@Test
+	@DisplayName("Deve retornar PRECONDITION FAILED ao atualizar livro com versão desatualizada")
+	public void mustNotUpdateBookWithStaleVersion() throws Exception {
+		Book book = new Book(1l,"Meu livro","Autor","123456");
+		book.setVersion(3l);
+		BDDMockito.given(service.getById(1l)).willReturn(Optional.of(book));
+		String json = new ObjectMapper().writeValueAsString(createBookDTO());
+		
+		MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+				.put(BOOK_API.concat("/1"))
+				.header("If-Match", "\"2\"")
+				.content(json)
+				.accept(MediaType.APPLICATION_JSON)
+				.contentType(MediaType.APPLICATION_JSON);
+		
+		mvc.perform(request)
+			.andExpect(status().isPreconditionFailed());
+		Mockito.verify(service, Mockito.never()).update(Mockito.any(Book.class));
+	}
+	
+	@Test
+	@DisplayName("Deve retornar PRECONDITION FAILED ao atualizar livro com If-Match de ETag fraca")
+	public void mustNotUpdateBookWithWeakETag() throws Exception {
+		Book book = new Book(1l,"Meu livro","Autor","123456");
+		book.setVersion(3l);
+		BDDMockito.given(service.getById(1l)).willReturn(Optional.of(book));
+		String json = new ObjectMapper().writeValueAsString(createBookDTO());
+		
+		//If-Match usa comparação forte: W/"3" não casa com "3"
+		MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+				.put(BOOK_API.concat("/1"))
+				.header("If-Match", "W/\"3\"")
+				.content(json)
+				.accept(MediaType.APPLICATION_JSON)
+				.contentType(MediaType.APPLICATION_JSON);
+		
+		mvc.perform(request)
+			.andExpect(status().isPreconditionFailed());
+		Mockito.verify(service, Mockito.never()).update(Mockito.any(Book.class));
+	}
+	
+	@Test
+	@DisplayName("Deve retornar NOT MODIFIED com If-None-Match de ETag fraca")
+	public void mustReturnNotModifiedWithWeakETag() throws Exception {
+		Book book = new Book(1l,"Meu livro","Autor","123456");
+		book.setVersion(3l);
+		BDDMockito.given(service.getById(1l)).willReturn(Optional.of(book));
+		
+		//If-None-Match usa comparação fraca
+		MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+				.get(BOOK_API.concat("/1"))
+				.header("If-None-Match", "W/\"3\"")
+				.accept(MediaType.APPLICATION_JSON);
+		
+		mvc.perform(request)
+			.andExpect(status().isNotModified());
+	}
+	
+	@Test
+	@DisplayName("Deve retornar PRECONDITION FAILED ao deletar livro com versão desatualizada")
+	public void mustNotDeleteBookWithStaleVersion() throws Exception {
+		Book book = new Book(1l,"Meu livro","Autor","123456");
+		book.setVersion(3l);
+		BDDMockito.given(service.getById(1l)).willReturn(Optional.of(book));
+		
+		MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+				.delete(BOOK_API.concat("/1"))
+				.header("If-Match", "\"2\"");
+		
+		mvc.perform(request)
+			.andExpect(status().isPreconditionFailed());
+		Mockito.verify(service, Mockito.never()).delete(Mockito.any(Book.class));
+	}
+	
+	@Test
+	@DisplayName("Deve recuperar um livro pelo ISBN")
+	public void mustRecoverBookByIsbn() throws Exception {
+		Book book = new Book(1l,"Meu livro","Autor","123456");
+		BDDMockito.given(service.getByIsbn("123456")).willReturn(Optional.of(book));
+		
+		MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+				.get(BOOK_API.concat("/isbn/123456"))
+				.accept(MediaType.APPLICATION_JSON);
+		
+		mvc.perform(request)
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("id").value(1))
+			.andExpect(jsonPath("isbn").value("123456"));
+	}
+	
 	@Test
 	@DisplayName("Deve retornar NOT FOUND quando o livro procurado não existir")
 	public void bookNotFoundTest() throws Exception {
@@ -170,11 +563,11 @@ public class BookResourceTest {
 		Long id = 1l;
 		String json = new ObjectMapper().writeValueAsString(createBookDTO());
 		
-		Book updatingBook = new Book(id,"Meu livro","Autor","123456");
+		Book updatingBook = new Book(id,"Título antigo","Autor antigo","123456");
 		Book updatedBook = new Book(id, "Algum título", "Algum autor", "123456");
 		
 		BDDMockito.given(service.getById(id)).willReturn(Optional.of(updatingBook));
-		BDDMockito.given(service.update(updatingBook)).willReturn(updatedBook);
+		BDDMockito.given(service.update(Mockito.any(Book.class))).willReturn(updatedBook);
 
 		MockHttpServletRequestBuilder request = MockMvcRequestBuilders
 				.put(BOOK_API.concat("/"+1))
@@ -188,6 +581,14 @@ public class BookResourceTest {
 		.andExpect(jsonPath("title").value("Algum título"))
 		.andExpect(jsonPath("author").value("Algum autor"))
 		.andExpect(jsonPath("isbn").value(updatedBook.getIsbn()));
+		//Os dados vêm do corpo da requisição, numa cópia do livro cacheado
+		ArgumentCaptor<Book> saved = ArgumentCaptor.forClass(Book.class);
+		Mockito.verify(service).update(saved.capture());
+		assertThat(saved.getValue()).isNotSameAs(updatingBook);
+		assertThat(saved.getValue().getTitle()).isEqualTo("Meu livro");
+		assertThat(saved.getValue().getAuthor()).isEqualTo("Autor");
+		assertThat(updatingBook.getTitle()).isEqualTo("Título antigo");
+		assertThat(updatingBook.getAuthor()).isEqualTo("Autor antigo");
 	}
 	
 	@Test
@@ -206,6 +607,91 @@ public class BookResourceTest {
 		.andExpect(status().isNotFound());
 	}
 
+	@Test
+	@DisplayName("Deve alterar parcialmente um livro passando a versão do If-Match ao service, sem o getById")
+	public void mustPatchBookWithIfMatch() throws Exception {
+		Book patchedBook = new Book(1l,"Novo título","Autor","123456");
+		patchedBook.setVersion(4l);
+		BDDMockito.given(service.patch(Mockito.eq(1l), Mockito.eq(3l), Mockito.any(Book.class))).willReturn(Optional.of(patchedBook));
+		
+		MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+				.patch(BOOK_API.concat("/1"))
+				.content("{\"title\":\"Novo título\"}")
+				.header("If-Match", "\"3\"")
+				.accept(MediaType.APPLICATION_JSON)
+				.contentType(BookResource.APPLICATION_MERGE_PATCH_JSON_VALUE);
+		
+		mvc.perform(request)
+			.andExpect(status().isOk())
+			.andExpect(header().string("ETag", "\"4\""))
+			.andExpect(jsonPath("title").value("Novo título"));
+		Mockito.verify(service).patch(Mockito.eq(1l), Mockito.eq(3l),
+				Mockito.argThat(changes -> "Novo título".equals(changes.getTitle()) && changes.getAuthor() == null));
+		Mockito.verify(service, Mockito.never()).getById(Mockito.anyLong());
+	}
+	
+	@Test
+	@DisplayName("Deve alterar parcialmente um livro sem If-Match e dar NOT FOUND se não existir")
+	public void mustPatchBookWithoutIfMatch() throws Exception {
+		BDDMockito.given(service.patch(Mockito.eq(1l), Mockito.isNull(), Mockito.any(Book.class))).willReturn(Optional.empty());
+		
+		MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+				.patch(BOOK_API.concat("/1"))
+				.content("{\"author\":\"Outro autor\"}")
+				.accept(MediaType.APPLICATION_JSON)
+				.contentType(MediaType.APPLICATION_JSON);
+		
+		mvc.perform(request)
+			.andExpect(status().isNotFound());
+		Mockito.verify(service, Mockito.never()).getById(Mockito.anyLong());
+	}
+	
+	@Test
+	@DisplayName("Deve retornar PRECONDITION FAILED ao alterar parcialmente livro com versão desatualizada")
+	public void mustNotPatchOutdatedBook() throws Exception {
+		BDDMockito.given(service.patch(Mockito.eq(1l), Mockito.eq(3l), Mockito.any(Book.class)))
+			.willThrow(new ObjectOptimisticLockingFailureException(Book.class, 1l));
+		
+		MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+				.patch(BOOK_API.concat("/1"))
+				.content("{\"title\":\"Novo título\"}")
+				.header("If-Match", "\"3\"")
+				.accept(MediaType.APPLICATION_JSON)
+				.contentType(MediaType.APPLICATION_JSON);
+		
+		mvc.perform(request)
+			.andExpect(status().isPreconditionFailed());
+	}
+	
+	@Test
+	@DisplayName("Deve lançar erro ao tentar alterar o ISBN")
+	public void mustNotPatchIsbn() throws Exception {
+		MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+				.patch(BOOK_API.concat("/1"))
+				.content("{\"isbn\":\"999\"}")
+				.accept(MediaType.APPLICATION_JSON)
+				.contentType(MediaType.APPLICATION_JSON);
+		
+		mvc.perform(request)
+			.andExpect(status().isBadRequest())
+			.andExpect(jsonPath("errors[0]").value("ISBN não pode ser alterado"));
+		Mockito.verify(service, Mockito.never()).patch(Mockito.any(), Mockito.any(), Mockito.any());
+	}
+	
+	@Test
+	@DisplayName("Deve retornar CONFLICT ao reconstruir o índice de busca durante outra reconstrução")
+	public void mustNotRebuildSearchIndexConcurrently() throws Exception {
+		BDDMockito.given(service.rebuildSearchIndex()).willThrow(new BookSearchIndex.RebuildInProgressException());
+		
+		MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+				.post(BOOK_API.concat("/search/index"))
+				.accept(MediaType.APPLICATION_JSON);
+		
+		mvc.perform(request)
+			.andExpect(status().isConflict())
+			.andExpect(jsonPath("errors[0]").value("Reconstrução do índice de busca já em andamento"));
+	}
+	
 	private BookDTO createBookDTO() {
 		return new BookDTO(1l,"Meu livro","Autor","123456");
 	}
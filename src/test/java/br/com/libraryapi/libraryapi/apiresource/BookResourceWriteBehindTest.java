@@ -0,0 +1,116 @@
+package br.com.libraryapi.libraryapi.apiresource;
+
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.concurrent.RejectedExecutionException;
+
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import br.com.libraryapi.libraryapi.domain.Book;
+import br.com.libraryapi.libraryapi.dto.BookDTO;
+import br.com.libraryapi.libraryapi.mappers.DirectBookMapper;
+import br.com.libraryapi.libraryapi.metrics.BookMetrics;
+import br.com.libraryapi.libraryapi.resources.BookResource;
+import br.com.libraryapi.libraryapi.resources.IdempotencyStore;
+import br.com.libraryapi.libraryapi.services.BookWriteStatus;
+import br.com.libraryapi.libraryapi.services.impl.BookChangeFeed;
+import br.com.libraryapi.libraryapi.services.impl.BookServiceImpl;
+import br.com.libraryapi.libraryapi.services.impl.BookWriteBehind;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@WebMvcTest(controllers = BookResource.class)
+@AutoConfigureMockMvc
+@Import({DirectBookMapper.class, IdempotencyStore.class})
+public class BookResourceWriteBehindTest {
+	
+	static String BOOK_API = "/api/books";
+	
+	@Autowired
+	MockMvc mvc;
+	
+	@MockBean
+	BookServiceImpl service;
+	
+	@MockBean
+	BookMetrics metrics;
+	
+	@MockBean
+	BookChangeFeed changeFeed;
+	
+	@MockBean
+	BookWriteBehind writeBehind;
+	
+	@Test
+	@DisplayName("Deve aceitar o livro para gravação assíncrona")
+	public void createAcceptedTest() throws Exception {
+		BDDMockito.given(writeBehind.submit(Mockito.any(Book.class))).willReturn("abc");
+		BDDMockito.given(writeBehind.status("abc")).willReturn(BookWriteStatus.pending("abc", new Book(null,"Meu livro","Autor","123")));
+		
+		mvc.perform(post(new BookDTO(null,"Meu livro","Autor","123")))
+			.andExpect(status().isAccepted())
+			.andExpect(header().string("Location", Matchers.endsWith("/api/books/pending/abc")))
+			.andExpect(jsonPath("ticket").value("abc"))
+			.andExpect(jsonPath("status").value("PENDING"))
+			.andExpect(jsonPath("book.isbn").value("123"));
+		
+		Mockito.verify(service, Mockito.never()).save(Mockito.any(Book.class));
+	}
+	
+	@Test
+	@DisplayName("Deve responder 429 com Retry-After quando a fila está cheia")
+	public void createTooManyRequestsTest() throws Exception {
+		BDDMockito.given(writeBehind.submit(Mockito.any(Book.class))).willThrow(new RejectedExecutionException());
+		
+		mvc.perform(post(new BookDTO(null,"Meu livro","Autor","123")))
+			.andExpect(status().isTooManyRequests())
+			.andExpect(header().string("Retry-After", "1"))
+			.andExpect(jsonPath("errors", Matchers.hasSize(1)));
+	}
+	
+	@Test
+	@DisplayName("Deve informar o livro gravado pelo ticket")
+	public void pendingCreatedTest() throws Exception {
+		BDDMockito.given(writeBehind.status("abc")).willReturn(BookWriteStatus.created("abc", new Book(7l,"Meu livro","Autor","123")));
+		
+		mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("/pending/abc")).accept(MediaType.APPLICATION_JSON))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("status").value("CREATED"))
+			.andExpect(jsonPath("book.id").value(7));
+	}
+	
+	@Test
+	@DisplayName("Deve retornar 404 para ticket desconhecido")
+	public void pendingNotFoundTest() throws Exception {
+		mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("/pending/xyz")).accept(MediaType.APPLICATION_JSON))
+			.andExpect(status().isNotFound());
+	}
+	
+	private MockHttpServletRequestBuilder post(BookDTO dto) throws Exception {
+		return MockMvcRequestBuilders.post(BOOK_API)
+				.contentType(MediaType.APPLICATION_JSON)
+				.accept(MediaType.APPLICATION_JSON)
+				.content(new ObjectMapper().writeValueAsString(dto));
+	}
+
+}
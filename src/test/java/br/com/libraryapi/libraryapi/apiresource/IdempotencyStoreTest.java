@@ -0,0 +1,72 @@
+package br.com.libraryapi.libraryapi.apiresource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import br.com.libraryapi.libraryapi.resources.IdempotencyStore;
+import br.com.libraryapi.libraryapi.resources.exception.BusinessException;
+
+public class IdempotencyStoreTest {
+	
+	private final IdempotencyStore store = new IdempotencyStore(100, 60, 5000);
+	
+	@Test
+	@DisplayName("Deve executar uma vez só requisições repetidas que chegam em paralelo")
+	public void coalesceConcurrentRequests() throws Exception {
+		AtomicInteger executions = new AtomicInteger();
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		CompletableFuture<ResponseEntity<?>> first = CompletableFuture.supplyAsync(() -> store.execute("key", "book", () -> {
+			executions.incrementAndGet();
+			started.countDown();
+			await(release);
+			return ResponseEntity.status(HttpStatus.CREATED).body("criado");
+		}));
+		started.await(5, TimeUnit.SECONDS);
+		
+		CompletableFuture<ResponseEntity<?>> second = CompletableFuture.supplyAsync(() -> store.execute("key", "book", () -> {
+			executions.incrementAndGet();
+			return ResponseEntity.ok("executado de novo");
+		}));
+		release.countDown();
+		
+		assertThat(first.get(5, TimeUnit.SECONDS).getHeaders().containsKey(IdempotencyStore.REPLAYED_HEADER)).isFalse();
+		ResponseEntity<?> replayed = second.get(5, TimeUnit.SECONDS);
+		assertThat(replayed.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+		assertThat(replayed.getBody()).isEqualTo("criado");
+		assertThat(replayed.getHeaders().getFirst(IdempotencyStore.REPLAYED_HEADER)).isEqualTo("true");
+		assertThat(executions.get()).isEqualTo(1);
+	}
+	
+	@Test
+	@DisplayName("Não deve guardar falhas: a nova tentativa executa de novo")
+	public void failuresAreNotStored() {
+		Throwable exception = Assertions.catchThrowable(() -> store.execute("failing", "book", () -> {
+			throw new BusinessException("ISBN já existente!");
+		}));
+		ResponseEntity<?> retried = store.execute("failing", "book", () -> ResponseEntity.status(HttpStatus.CREATED).build());
+		
+		assertThat(exception).isInstanceOf(BusinessException.class);
+		assertThat(retried.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+		assertThat(retried.getHeaders().containsKey(IdempotencyStore.REPLAYED_HEADER)).isFalse();
+	}
+	
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
@@ -0,0 +1,111 @@
+package br.com.libraryapi.libraryapi.apiresource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+import javax.servlet.FilterChain;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import br.com.libraryapi.libraryapi.resources.filter.AdaptiveConcurrencyLimit;
+import br.com.libraryapi.libraryapi.resources.filter.ClientRateLimits;
+import br.com.libraryapi.libraryapi.resources.filter.RateLimitFilter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class RateLimitFilterTest {
+	
+	private SimpleMeterRegistry registry;
+	private AdaptiveConcurrencyLimit concurrency;
+	private RateLimitFilter filter;
+	
+	@BeforeEach
+	public void setUp() {
+		registry = new SimpleMeterRegistry();
+		//1 requisição por segundo, rajada de 3 (5 por endereço); concorrência fixa em 4 (limites iguais)
+		concurrency = new AdaptiveConcurrencyLimit(4, 4, 4, 2.0, 0.9, 1_000_000_000L, 20);
+		filter = new RateLimitFilter(new ClientRateLimits(1, 3, Duration.ofMinutes(1), 1000),
+				new ClientRateLimits(1, 5, Duration.ofMinutes(1), 1000), concurrency, 0.5,
+				"X-Api-Key", Arrays.asList("/api/books/export"), new ObjectMapper(), registry);
+	}
+	
+	@Test
+	@DisplayName("Deve recusar com 429 e Retry-After o cliente que passou da taxa")
+	public void rejectsAboveRate() throws Exception {
+		for(int i = 0; i < 3; i++) {
+			assertThat(perform("/api/books", "cliente-1", new MockFilterChain()).getStatus()).isEqualTo(HttpStatus.OK.value());
+		}
+		
+		MockHttpServletResponse rejected = perform("/api/books", "cliente-1", new MockFilterChain());
+		
+		assertThat(rejected.getStatus()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS.value());
+		assertThat(rejected.getHeader("Retry-After")).isEqualTo("1");
+		assertThat(rejected.getContentAsString()).contains("errors");
+		assertThat(registry.counter(RateLimitFilter.REJECTED_COUNTER, "reason", "rate").count()).isEqualTo(1);
+		
+		assertThat(perform("/api/books", "cliente-2", new MockFilterChain()).getStatus()).isEqualTo(HttpStatus.OK.value());
+	}
+	
+	@Test
+	@DisplayName("Deve limitar pelo endereço de origem quem troca de chave a cada requisição")
+	public void rejectsRotatingKeysFromSameAddress() throws Exception {
+		for(int i = 0; i < 5; i++) {
+			assertThat(perform("/api/books", "chave-" + i, new MockFilterChain()).getStatus()).isEqualTo(HttpStatus.OK.value());
+		}
+		
+		MockHttpServletResponse rejected = perform("/api/books", "chave-5", new MockFilterChain());
+		
+		assertThat(rejected.getStatus()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS.value());
+		assertThat(registry.counter(RateLimitFilter.REJECTED_COUNTER, "reason", "rate").count()).isEqualTo(1);
+	}
+	
+	@Test
+	@DisplayName("Deve limitar as requisições simultâneas de um cliente a uma fração do limite")
+	public void rejectsAboveClientShare() throws Exception {
+		//Cada requisição dentro da cadeia dispara outra do mesmo cliente, como chamadas paralelas
+		MockHttpServletResponse[] nested = new MockHttpServletResponse[2];
+		FilterChain third = (request, response) -> nested[1] = perform("/api/books", "cliente-1", new MockFilterChain());
+		FilterChain second = (request, response) -> nested[0] = perform("/api/books", "cliente-1", third);
+		
+		MockHttpServletResponse first = perform("/api/books", "cliente-1", second);
+		
+		assertThat(first.getStatus()).isEqualTo(HttpStatus.OK.value());
+		assertThat(nested[0].getStatus()).isEqualTo(HttpStatus.OK.value());
+		assertThat(nested[1].getStatus()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS.value());
+		assertThat(registry.counter(RateLimitFilter.REJECTED_COUNTER, "reason", "concurrency").count()).isEqualTo(1);
+		assertThat(concurrency.getInflight()).isZero();
+	}
+	
+	@Test
+	@DisplayName("Não deve ocupar vaga de concorrência nos caminhos excluídos")
+	public void excludedPathsSkipConcurrency() throws Exception {
+		int[] inflight = new int[1];
+		FilterChain chain = (request, response) -> inflight[0] = concurrency.getInflight();
+		
+		perform("/api/books/export", "cliente-1", chain);
+		
+		assertThat(inflight[0]).isZero();
+	}
+	
+	private MockHttpServletResponse perform(String uri, String client, FilterChain chain) {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+		request.addHeader("X-Api-Key", client);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		try {
+			filter.doFilter(request, response, chain);
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+		return response;
+	}
+
+}
@@ -0,0 +1,101 @@
+package br.com.libraryapi.libraryapi.apiservice;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import br.com.libraryapi.libraryapi.domain.Book;
+import br.com.libraryapi.libraryapi.services.impl.BookSearchIndex;
+import br.com.libraryapi.libraryapi.services.impl.BookSearchIndex.SearchResult;
+
+public class BookSearchIndexTest {
+	
+	private BookSearchIndex index;
+	
+	@BeforeEach
+	public void setUp() {
+		index = new BookSearchIndex();
+		index.index(new Book(1l,"Memórias Póstumas de Brás Cubas","Machado de Assis","1"));
+		index.index(new Book(2l,"Dom Casmurro","Machado de Assis","2"));
+		index.index(new Book(3l,"O Cortiço","Aluísio Azevedo","3"));
+		index.index(new Book(4l,"Machado: uma biografia","Fulano","4"));
+	}
+	
+	@Test
+	@DisplayName("Deve buscar por parte do título ignorando acentos e maiúsculas")
+	public void searchByPartialTitle() {
+		SearchResult result = index.search("CORTI", 0, 10);
+		
+		assertThat(result.getIds()).containsExactly(3l);
+		assertThat(result.getTotal()).isEqualTo(1);
+	}
+	
+	@Test
+	@DisplayName("Deve exigir todos os termos e ordenar por relevância")
+	public void searchRankedByRelevance() {
+		SearchResult machado = index.search("machado", 0, 10);
+		SearchResult machadoCasmurro = index.search("machado casm", 0, 10);
+		
+		//Termo no título pesa mais que no autor
+		assertThat(machado.getIds()).containsExactly(4l, 1l, 2l);
+		assertThat(machadoCasmurro.getIds()).containsExactly(2l);
+	}
+	
+	@Test
+	@DisplayName("Deve paginar os resultados")
+	public void searchPaginated() {
+		SearchResult result = index.search("machado", 1, 2);
+		
+		assertThat(result.getIds()).containsExactly(2l);
+		assertThat(result.getTotal()).isEqualTo(3);
+	}
+	
+	@Test
+	@DisplayName("Deve refletir atualizações e remoções")
+	public void incrementalUpdates() {
+		index.index(new Book(3l,"O Ateneu","Raul Pompeia","3"));
+		index.remove(2l);
+		
+		assertThat(index.search("cortico", 0, 10).getIds()).isEmpty();
+		assertThat(index.search("ateneu", 0, 10).getIds()).containsExactly(3l);
+		assertThat(index.search("casmurro", 0, 10).getIds()).isEmpty();
+	}
+	
+	@Test
+	@DisplayName("Deve reconstruir o índice a partir da lista completa de livros")
+	public void rebuild() {
+		long count = index.rebuild(Arrays.asList(new Book(10l,"Iracema","José de Alencar","10")));
+		
+		assertThat(count).isEqualTo(1);
+		assertThat(index.size()).isEqualTo(1);
+		assertThat(index.search("iracema", 0, 10).getIds()).containsExactly(10l);
+		assertThat(index.search("machado", 0, 10).getIds()).isEmpty();
+	}
+	
+	@Test
+	@DisplayName("Deve recusar uma reconstrução enquanto outra está em andamento")
+	public void rejectConcurrentRebuild() {
+		AtomicReference<Throwable> concurrent = new AtomicReference<>();
+		Iterable<Book> books = () -> {
+			//Segunda reconstrução pedida enquanto a primeira percorre os livros
+			concurrent.set(Assertions.catchThrowable(() -> index.rebuild(Collections.emptyList())));
+			return Arrays.asList(new Book(10l,"Iracema","José de Alencar","10")).iterator();
+		};
+		
+		long count = index.rebuild(books);
+		
+		assertThat(concurrent.get()).isInstanceOf(BookSearchIndex.RebuildInProgressException.class);
+		assertThat(count).isEqualTo(1);
+		assertThat(index.search("iracema", 0, 10).getIds()).containsExactly(10l);
+		//Terminada a primeira, uma nova reconstrução é aceita
+		assertThat(index.rebuild(Collections.emptyList())).isZero();
+	}
+
+}
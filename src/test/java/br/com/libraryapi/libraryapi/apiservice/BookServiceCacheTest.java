@@ -0,0 +1,149 @@
+package br.com.libraryapi.libraryapi.apiservice;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.cache.CacheAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import br.com.libraryapi.libraryapi.config.CacheConfig;
+import br.com.libraryapi.libraryapi.domain.Book;
+import br.com.libraryapi.libraryapi.repositories.BookRepository;
+import br.com.libraryapi.libraryapi.services.BookService;
+import br.com.libraryapi.libraryapi.services.impl.BookSearchIndex;
+import br.com.libraryapi.libraryapi.services.impl.BookServiceImpl;
+import br.com.libraryapi.libraryapi.services.impl.IsbnIndex;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@SpringBootTest(classes = {CacheConfig.class, BookServiceImpl.class})
+@ImportAutoConfiguration(CacheAutoConfiguration.class)
+public class BookServiceCacheTest {
+	
+	@Autowired
+	private BookService service;
+	
+	@Autowired
+	private CacheManager cacheManager;
+	
+	@MockBean
+	private BookRepository repo;
+	
+	@MockBean
+	private IsbnIndex isbnIndex;
+	
+	@MockBean
+	private BookSearchIndex searchIndex;
+	
+	@BeforeEach
+	public void setUp() {
+		cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+	}
+	
+	@Test
+	@DisplayName("Deve consultar a base apenas uma vez para o mesmo ID")
+	public void cachedGetById() {
+		Book book = new Book(1l,"Aventuras","Fulano","123");
+		Mockito.when(repo.findById(1l)).thenReturn(Optional.of(book));
+		
+		service.getById(1l);
+		Optional<Book> foundBook = service.getById(1l);
+		
+		assertThat(foundBook).containsSame(book);
+		Mockito.verify(repo, Mockito.times(1)).findById(1l);
+	}
+	
+	@Test
+	@DisplayName("Deve buscar na base apenas os IDs que não estão no cache")
+	public void getAllByIdUsesCache() {
+		Book cached = new Book(1l,"Aventuras","Fulano","123");
+		Book other = new Book(2l,"Outras aventuras","Fulano","456");
+		Mockito.when(repo.findById(1l)).thenReturn(Optional.of(cached));
+		Mockito.when(repo.findAllById(Arrays.asList(2l, 3l))).thenReturn(Arrays.asList(other));
+		service.getById(1l);
+		
+		Map<Long, Book> found = service.getAllById(Arrays.asList(1l, 2l, 3l));
+		
+		assertThat(found).containsOnlyKeys(1l, 2l);
+		assertThat(found.get(1l)).isSameAs(cached);
+		Mockito.verify(repo).findAllById(Arrays.asList(2l, 3l));
+		//O livro lido em lote passa a ser servido pelo cache
+		assertThat(service.getById(2l)).containsSame(other);
+		Mockito.verify(repo, Mockito.never()).findById(2l);
+	}
+	
+	@Test
+	@DisplayName("Não deve cachear livro não encontrado")
+	public void notFoundIsNotCached() {
+		Mockito.when(repo.findByIsbn("123")).thenReturn(Optional.empty());
+		
+		service.getByIsbn("123");
+		service.getByIsbn("123");
+		
+		Mockito.verify(repo, Mockito.times(2)).findByIsbn("123");
+	}
+	
+	@Test
+	@DisplayName("Deve remover o livro do cache ao deletar")
+	public void deleteEvictsCache() {
+		Book book = new Book(1l,"Aventuras","Fulano","123");
+		Mockito.when(repo.findById(1l)).thenReturn(Optional.of(book));
+		Mockito.when(repo.findByIsbn("123")).thenReturn(Optional.of(book));
+		service.getById(1l);
+		service.getByIsbn("123");
+		
+		service.delete(book);
+		service.getById(1l);
+		service.getByIsbn("123");
+		
+		Mockito.verify(repo, Mockito.times(2)).findById(1l);
+		Mockito.verify(repo, Mockito.times(2)).findByIsbn("123");
+	}
+	
+	@Test
+	@DisplayName("Deve atualizar o cache com o livro salvo ao atualizar")
+	public void updateRefreshesCache() {
+		Book book = new Book(1l,"Aventuras","Fulano","123");
+		Book updated = new Book(1l,"Novas aventuras","Fulano","123");
+		Mockito.when(repo.findById(1l)).thenReturn(Optional.of(book));
+		Mockito.when(repo.save(book)).thenReturn(updated);
+		service.getById(1l);
+		
+		service.update(book);
+		Optional<Book> foundBook = service.getById(1l);
+		
+		assertThat(foundBook).containsSame(updated);
+		Mockito.verify(repo, Mockito.times(1)).findById(1l);
+	}
+	
+	@Test
+	@DisplayName("Deve atualizar o cache com o livro alterado parcialmente")
+	public void patchRefreshesCache() {
+		Book cached = new Book(1l,"Aventuras","Fulano","123");
+		Book managed = new Book(1l,"Aventuras","Fulano","123");
+		Mockito.when(repo.findById(1l)).thenReturn(Optional.of(cached)).thenReturn(Optional.of(managed));
+		service.getById(1l);
+		
+		service.patch(1l, null, new Book(null,"Novas aventuras",null,null));
+		
+		assertThat(service.getById(1l)).containsSame(managed);
+		assertThat(service.getByIsbn("123")).containsSame(managed);
+		assertThat(managed.getTitle()).isEqualTo("Novas aventuras");
+		Mockito.verify(repo, Mockito.never()).findByIsbn("123");
+	}
+
+}
@@ -2,7 +2,14 @@ package br.com.libraryapi.libraryapi.apiservice;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
@@ -10,15 +17,22 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mockito;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 import br.com.libraryapi.libraryapi.domain.Book;
 import br.com.libraryapi.libraryapi.repositories.BookRepository;
 import br.com.libraryapi.libraryapi.resources.exception.BusinessException;
+import br.com.libraryapi.libraryapi.services.BookSaveResult;
 import br.com.libraryapi.libraryapi.services.BookService;
+import br.com.libraryapi.libraryapi.services.impl.BookSearchIndex;
 import br.com.libraryapi.libraryapi.services.impl.BookServiceImpl;
+import br.com.libraryapi.libraryapi.services.impl.IsbnIndex;
 
 @ExtendWith(SpringExtension.class) //Criando contexto para rodar os testes
 @ActiveProfiles("test") 
@@ -58,6 +72,88 @@ public class BookServiceTest {
 		Mockito.verify(repo, Mockito.never()).save(book);
 	}
 	
+	@Test
+	@DisplayName("Não deve consultar a base quando o índice garante que o ISBN não existe")
+	public void saveBookSkippingIsbnQuery() {
+		IsbnIndex index = new IsbnIndex(100, 0.01);
+		index.markReady();
+		BookService indexedService = new BookServiceImpl(repo, index, new BookSearchIndex());
+		Book book = createNewBook();
+		Mockito.when(repo.save(book)).thenReturn(book);
+		
+		indexedService.save(book);
+		
+		Mockito.verify(repo, Mockito.never()).existsByIsbn(Mockito.anyString());
+		assertThat(index.mightContain(book.getIsbn())).isTrue();
+	}
+	
+	@Test
+	@DisplayName("Deve dar erro de ISBN duplicado quando a unique constraint for violada")
+	public void saveBookViolatingUniqueConstraint() {
+		Book book = createNewBook();
+		Mockito.when(repo.existsByIsbn(Mockito.anyString())).thenReturn(false);
+		Mockito.when(repo.save(book)).thenThrow(new DataIntegrityViolationException("uk_book_isbn"));
+		
+		Throwable t = Assertions.catchThrowable(() -> service.save(book));
+		
+		assertThat(t).isInstanceOf(BusinessException.class).hasMessage("ISBN já existente!");
+	}
+	
+	@Test
+	@DisplayName("Deve salvar um lote de livros rejeitando ISBNs duplicados na base e no próprio lote")
+	public void saveAllBooksTest() {
+		Book novo = new Book(null,"Aventuras","Fulano","111");
+		Book existente = new Book(null,"Outro","Ciclano","222");
+		Book repetido = new Book(null,"Repetido","Beltrano","111");
+		Mockito.when(repo.findExistingIsbns(Mockito.anyCollection())).thenReturn(Collections.singleton("222"));
+		Mockito.when(repo.saveAll(Mockito.anyList())).thenAnswer(invocation -> {
+			List<Book> books = invocation.getArgument(0);
+			books.forEach(b -> b.setId(1l));
+			return books;
+		});
+		
+		List<BookSaveResult> results = service.saveAll(Arrays.asList(novo, existente, repetido));
+		
+		assertThat(results).hasSize(3);
+		assertThat(results.get(0).isSuccess()).isTrue();
+		assertThat(results.get(0).getBook().getId()).isEqualTo(1l);
+		assertThat(results.get(1).isSuccess()).isFalse();
+		assertThat(results.get(1).getError()).isEqualTo("ISBN já existente!");
+		assertThat(results.get(2).isSuccess()).isFalse();
+		Mockito.verify(repo, Mockito.times(1)).saveAll(Collections.singletonList(novo));
+		Mockito.verify(repo, Mockito.never()).existsByIsbn(Mockito.anyString());
+	}
+	
+	@Test
+	@DisplayName("Deve listar uma página de livros indicando se existe próxima sem contar o total")
+	@SuppressWarnings("unchecked")
+	public void findBooksPage() {
+		Mockito.when(repo.findOrderedById(Mockito.any(), Mockito.eq(3)))
+			.thenReturn(Arrays.asList(new Book(1l,"A","Fulano","1"), new Book(2l,"B","Fulano","2"), new Book(3l,"C","Fulano","3")));
+		
+		Slice<Book> slice = service.find(new Book(), null, 2);
+		
+		assertThat(slice.getContent()).extracting(Book::getId).containsExactly(1l, 2l);
+		assertThat(slice.hasNext()).isTrue();
+		Mockito.verify(repo, Mockito.never()).count(Mockito.any(org.springframework.data.jpa.domain.Specification.class));
+	}
+	
+	@Test
+	@DisplayName("Deve buscar livros salvos pelo índice textual mantendo a ordem de relevância")
+	public void searchBooks() {
+		Book aventuras = new Book(1l,"Aventuras","Fulano","1");
+		Book novasAventuras = new Book(2l,"Aventuras e mais aventuras","Fulano","2");
+		Mockito.when(repo.save(Mockito.any(Book.class))).thenAnswer(invocation -> invocation.getArgument(0));
+		service.save(aventuras);
+		service.save(novasAventuras);
+		Mockito.when(repo.findAllById(Mockito.anyIterable())).thenReturn(Arrays.asList(aventuras, novasAventuras));
+		
+		Page<Book> page = service.search("aventura", 0, 10);
+		
+		assertThat(page.getContent()).containsExactly(novasAventuras, aventuras);
+		assertThat(page.getTotalElements()).isEqualTo(2);
+	}
+	
 	@Test
 	@DisplayName("Deve recuperar livro pelo ID")
 	public void mustReturnBookById() {
@@ -75,6 +171,69 @@ public class BookServiceTest {
 		assertThat(foundBook.get().getIsbn()).isEqualTo(book.getIsbn());
 	}
 	
+	@Test
+	@DisplayName("Deve buscar vários livros por ID em consultas de até 500 IDs mantendo a ordem pedida")
+	public void getAllByIdInChunks() {
+		List<Long> ids = LongStream.rangeClosed(1, 1200).boxed().collect(Collectors.toList());
+		Collections.reverse(ids);
+		Mockito.when(repo.findAllById(Mockito.anyIterable())).thenAnswer(invocation -> {
+			List<Book> books = new ArrayList<>();
+			for(Long id : invocation.<Iterable<Long>>getArgument(0)) {
+				if(id % 2 == 0) {
+					books.add(new Book(id, "Livro " + id, "Autor", "isbn" + id));
+				}
+			}
+			return books;
+		});
+		
+		Map<Long, Book> found = service.getAllById(ids);
+		
+		Mockito.verify(repo, Mockito.times(3)).findAllById(Mockito.anyIterable());
+		assertThat(found).hasSize(600);
+		assertThat(found.keySet()).startsWith(1200l, 1198l);
+	}
+	
+	@Test
+	@DisplayName("Deve alterar parcialmente apenas os campos informados")
+	public void patchBook() {
+		Book book = new Book(1l,"Aventuras","Fulano","123");
+		book.setVersion(3l);
+		Mockito.when(repo.findById(1l)).thenReturn(Optional.of(book));
+		
+		Optional<Book> patchedBook = service.patch(1l, 3l, new Book(null,"Novas aventuras",null,null));
+		
+		assertThat(patchedBook).containsSame(book);
+		assertThat(book.getTitle()).isEqualTo("Novas aventuras");
+		assertThat(book.getAuthor()).isEqualTo("Fulano");
+		Mockito.verify(repo).flush();
+		Mockito.verify(repo, Mockito.never()).save(Mockito.any(Book.class));
+	}
+	
+	@Test
+	@DisplayName("Deve dar erro de concorrência ao alterar parcialmente com versão desatualizada")
+	public void patchOutdatedBook() {
+		Book book = new Book(1l,"Aventuras","Fulano","123");
+		book.setVersion(4l);
+		Mockito.when(repo.findById(1l)).thenReturn(Optional.of(book));
+		
+		Throwable exception = Assertions.catchThrowable(() -> service.patch(1l, 3l, new Book(null,"Novas aventuras",null,null)));
+		
+		assertThat(exception).isInstanceOf(ObjectOptimisticLockingFailureException.class);
+		assertThat(book.getTitle()).isEqualTo("Aventuras");
+		Mockito.verify(repo, Mockito.never()).flush();
+	}
+	
+	@Test
+	@DisplayName("Deve retornar vazio ao alterar parcialmente livro inexistente")
+	public void patchInexistentBook() {
+		Mockito.when(repo.findById(1l)).thenReturn(Optional.empty());
+		
+		Optional<Book> patchedBook = service.patch(1l, null, new Book(null,"Novas aventuras",null,null));
+		
+		assertThat(patchedBook).isEmpty();
+		Mockito.verify(repo, Mockito.never()).flush();
+	}
+	
 	@Test
 	@DisplayName("Deve retornar vazio quando ID do livro não existir")
 	public void bookNotFoundById() {
@@ -0,0 +1,160 @@
+package br.com.libraryapi.libraryapi.apiservice;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import br.com.libraryapi.libraryapi.domain.Book;
+import br.com.libraryapi.libraryapi.resources.exception.BusinessException;
+import br.com.libraryapi.libraryapi.services.BookSaveResult;
+import br.com.libraryapi.libraryapi.services.BookService;
+import br.com.libraryapi.libraryapi.services.BookWriteStatus;
+import br.com.libraryapi.libraryapi.services.impl.BookWriteBehind;
+import br.com.libraryapi.libraryapi.services.impl.WriteBehindJournal;
+
+public class BookWriteBehindTest {
+	
+	@TempDir
+	Path dir;
+	
+	private Path journalPath;
+	
+	private BookService service;
+	
+	private WriteBehindJournal journal;
+	
+	@BeforeEach
+	public void setUp() throws Exception {
+		journalPath = dir.resolve("write-behind.journal");
+		service = Mockito.mock(BookService.class);
+		Mockito.when(service.saveAll(Mockito.anyList())).thenAnswer(invocation -> {
+			List<Book> books = invocation.getArgument(0);
+			long id = 1;
+			for(Book book : books) {
+				book.setId(id++);
+			}
+			return books.stream().map(BookSaveResult::success).collect(Collectors.toList());
+		});
+		journal = new WriteBehindJournal(journalPath, true, new ObjectMapper());
+	}
+	
+	@AfterEach
+	public void tearDown() throws Exception {
+		journal.close();
+	}
+	
+	@Test
+	@DisplayName("Deve aceitar o livro e gravá-lo em segundo plano")
+	public void submitAndWrite() throws Exception {
+		BookWriteBehind writeBehind = new BookWriteBehind(service, journal, 10, 10);
+		
+		String ticket = writeBehind.submit(new Book(null,"Meu livro","Autor","123"));
+		assertThat(writeBehind.status(ticket).getState()).isEqualTo(BookWriteStatus.State.PENDING);
+		writeBehind.start();
+		writeBehind.stop();
+		
+		BookWriteStatus status = writeBehind.status(ticket);
+		assertThat(status.getState()).isEqualTo(BookWriteStatus.State.CREATED);
+		assertThat(status.getBook().getId()).isEqualTo(1l);
+		//Nada pendente: o diário é truncado
+		assertThat(Files.size(journalPath)).isZero();
+	}
+	
+	@Test
+	@DisplayName("Deve recusar ISBN já aceito e ainda não gravado")
+	public void rejectReservedIsbn() {
+		BookWriteBehind writeBehind = new BookWriteBehind(service, journal, 10, 10);
+		writeBehind.submit(new Book(null,"Meu livro","Autor","123"));
+		
+		Throwable t = catchThrowable(() -> writeBehind.submit(new Book(null,"Outro","Autor","123")));
+		
+		assertThat(t).isInstanceOf(BusinessException.class).hasMessage("ISBN já existente!");
+	}
+	
+	@Test
+	@DisplayName("Deve recusar ISBN que já existe na base")
+	public void rejectExistingIsbn() {
+		Mockito.when(service.isbnExists("123")).thenReturn(true);
+		BookWriteBehind writeBehind = new BookWriteBehind(service, journal, 10, 10);
+		
+		assertThatThrownBy(() -> writeBehind.submit(new Book(null,"Meu livro","Autor","123"))).isInstanceOf(BusinessException.class);
+		//A reserva é liberada
+		Mockito.when(service.isbnExists("123")).thenReturn(false);
+		assertThat(writeBehind.submit(new Book(null,"Meu livro","Autor","123"))).isNotNull();
+	}
+	
+	@Test
+	@DisplayName("Deve recusar novos livros com a fila cheia")
+	public void rejectWhenFull() {
+		BookWriteBehind writeBehind = new BookWriteBehind(service, journal, 1, 10);
+		writeBehind.submit(new Book(null,"Meu livro","Autor","123"));
+		
+		assertThatThrownBy(() -> writeBehind.submit(new Book(null,"Outro","Autor","456"))).isInstanceOf(RejectedExecutionException.class);
+		assertThat(writeBehind.getQueueSize()).isEqualTo(1);
+	}
+	
+	@Test
+	@DisplayName("Deve regravar após uma queda os livros aceitos e não gravados")
+	public void recoverAfterCrash() throws Exception {
+		BookWriteBehind beforeCrash = new BookWriteBehind(service, journal, 10, 10);
+		String ticket = beforeCrash.submit(new Book(null,"Meu livro","Autor","123"));
+		beforeCrash.submit(new Book(null,"Outro","Autor","456"));
+		//Queda no meio da escrita de uma linha
+		journal.close();
+		Files.write(journalPath, "{\"op\":\"ADD\",\"tic".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+		
+		journal = new WriteBehindJournal(journalPath, true, new ObjectMapper());
+		BookWriteBehind afterCrash = new BookWriteBehind(service, journal, 10, 10);
+		assertThat(afterCrash.status(ticket).getState()).isEqualTo(BookWriteStatus.State.PENDING);
+		afterCrash.start();
+		afterCrash.stop();
+		
+		@SuppressWarnings("unchecked")
+		ArgumentCaptor<List<Book>> books = ArgumentCaptor.forClass(List.class);
+		Mockito.verify(service).saveAll(books.capture());
+		assertThat(books.getValue()).extracting(Book::getIsbn).containsExactly("123", "456");
+		assertThat(afterCrash.status(ticket).getState()).isEqualTo(BookWriteStatus.State.CREATED);
+	}
+	
+	@Test
+	@DisplayName("Deve tentar de novo o lote quando a base falha")
+	public void retryWhenDatabaseFails() throws Exception {
+		Mockito.when(service.saveAll(Mockito.anyList()))
+			.thenThrow(new IllegalStateException("base fora do ar"))
+			.thenAnswer(invocation -> {
+				List<Book> books = invocation.getArgument(0);
+				books.forEach(book -> book.setId(10l));
+				return books.stream().map(BookSaveResult::success).collect(Collectors.toList());
+			});
+		BookWriteBehind writeBehind = new BookWriteBehind(service, journal, 10, 10);
+		String ticket = writeBehind.submit(new Book(null,"Meu livro","Autor","123"));
+		
+		writeBehind.start();
+		for(int i = 0; i < 50 && writeBehind.status(ticket).getState() == BookWriteStatus.State.PENDING; i++) {
+			Thread.sleep(20);
+		}
+		writeBehind.stop();
+		
+		assertThat(writeBehind.status(ticket).getState()).isEqualTo(BookWriteStatus.State.CREATED);
+		Mockito.verify(service, Mockito.times(2)).saveAll(Mockito.anyList());
+	}
+
+}
@@ -0,0 +1,41 @@
+package br.com.libraryapi.libraryapi.apiservice;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import br.com.libraryapi.libraryapi.services.impl.IsbnIndex;
+
+public class IsbnIndexTest {
+	
+	@Test
+	@DisplayName("Deve considerar qualquer ISBN como possível enquanto o índice não foi carregado")
+	public void notReadyIndexMightContainEverything() {
+		IsbnIndex index = new IsbnIndex(1000, 0.01);
+		
+		assertThat(index.mightContain("123")).isTrue();
+	}
+	
+	@Test
+	@DisplayName("Não deve ter falsos negativos e deve respeitar a taxa de falsos positivos")
+	public void noFalseNegatives() {
+		IsbnIndex index = new IsbnIndex(10000, 0.01);
+		for(int i = 0; i < 10000; i++) {
+			index.add("isbn-" + i);
+		}
+		index.markReady();
+		
+		for(int i = 0; i < 10000; i++) {
+			assertThat(index.mightContain("isbn-" + i)).isTrue();
+		}
+		int falsePositives = 0;
+		for(int i = 0; i < 10000; i++) {
+			if(index.mightContain("outro-" + i)) {
+				falsePositives++;
+			}
+		}
+		assertThat(falsePositives).isLessThan(300);
+	}
+
+}
@@ -0,0 +1,102 @@
+package br.com.libraryapi.libraryapi.apiservice;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import br.com.libraryapi.libraryapi.domain.Book;
+import br.com.libraryapi.libraryapi.services.impl.SingleFlight;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class SingleFlightTest {
+	
+	private final SingleFlight<Long, Optional<Book>> loads = new SingleFlight<>(found -> found.map(Book::new));
+	
+	@Test
+	@DisplayName("Deve consultar a base uma vez só para chamadas simultâneas ao mesmo livro")
+	public void coalesceConcurrentLoads() throws Exception {
+		Book book = new Book(1l,"Aventuras","Fulano","123");
+		AtomicInteger queries = new AtomicInteger();
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		CompletableFuture<Optional<Book>> first = CompletableFuture.supplyAsync(() -> loads.load(1l, () -> {
+			queries.incrementAndGet();
+			started.countDown();
+			await(release);
+			return Optional.of(book);
+		}));
+		started.await(5, TimeUnit.SECONDS);
+		
+		CompletableFuture<Optional<Book>> second = CompletableFuture.supplyAsync(() -> loads.load(1l, () -> {
+			queries.incrementAndGet();
+			return Optional.empty();
+		}));
+		//Espera a segunda chamada entrar na carga em andamento antes de liberá-la
+		while(loads.getCoalesced() == 0) {
+			Thread.sleep(1);
+		}
+		release.countDown();
+		
+		assertThat(first.get(5, TimeUnit.SECONDS)).containsSame(book);
+		//A chamada que esperou recebe uma cópia, não a mesma instância
+		Book shared = second.get(5, TimeUnit.SECONDS).get();
+		assertThat(shared).isNotSameAs(book);
+		assertThat(shared.getIsbn()).isEqualTo(book.getIsbn());
+		assertThat(queries.get()).isEqualTo(1);
+		assertThat(loads.getExecuted()).isEqualTo(1);
+	}
+	
+	@Test
+	@DisplayName("Deve consultar de novo depois que a carga anterior terminou")
+	public void loadAgainAfterCompletion() {
+		AtomicInteger queries = new AtomicInteger();
+		
+		loads.load(1l, () -> Optional.of(new Book(1l,"Aventuras","Fulano","123" + queries.incrementAndGet())));
+		Optional<Book> book = loads.load(1l, () -> Optional.of(new Book(1l,"Aventuras","Fulano","123" + queries.incrementAndGet())));
+		
+		assertThat(queries.get()).isEqualTo(2);
+		assertThat(book.get().getIsbn()).isEqualTo("1232");
+		assertThat(loads.getCoalesced()).isZero();
+	}
+	
+	@Test
+	@DisplayName("Não deve guardar falhas: a próxima chamada consulta de novo")
+	public void failuresAreNotKept() {
+		Throwable exception = Assertions.catchThrowable(() -> loads.load(1l, () -> {
+			throw new IllegalStateException("Base indisponível");
+		}));
+		Optional<Book> book = loads.load(1l, () -> Optional.empty());
+		
+		assertThat(exception).isInstanceOf(IllegalStateException.class);
+		assertThat(book).isEmpty();
+	}
+	
+	@Test
+	@DisplayName("Deve publicar as chamadas executadas e compartilhadas como métricas")
+	public void bindMetrics() {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		loads.bindTo(registry, "id");
+		
+		loads.load(1l, () -> Optional.empty());
+		
+		assertThat(registry.get(SingleFlight.COUNTER).tag("key", "id").tag("result", "executed").functionCounter().count()).isEqualTo(1);
+		assertThat(registry.get(SingleFlight.COUNTER).tag("key", "id").tag("result", "coalesced").functionCounter().count()).isZero();
+	}
+	
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
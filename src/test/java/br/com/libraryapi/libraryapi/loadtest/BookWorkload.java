@@ -0,0 +1,124 @@
+package br.com.libraryapi.libraryapi.loadtest;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Mistura de criações, consultas, alterações e exclusões de livros para o
+ * {@link LoadGenerator}, na proporção de {@code mix} (ex.:
+ * {@code create=10,get=70,update=15,delete=5}).
+ * 
+ * Consultas, alterações e exclusões usam IDs existentes: os cadastrados antes
+ * da carga e os criados durante ela. Um livro excluído sai da lista antes do
+ * envio, mas consultas já em andamento podem receber 404, que conta como
+ * resposta e não como erro.
+ */
+public class BookWorkload implements Supplier<LoadRequest> {
+	
+	public static final String CREATE = "create";
+	public static final String GET = "get";
+	public static final String UPDATE = "update";
+	public static final String DELETE = "delete";
+	
+	private static final String UPDATE_JSON = "{\"title\":\"Livro de carga alterado\",\"author\":\"Outro autor\"}";
+	
+	private final LoadTestServer server;
+	private final String[] operations;
+	private final int[] cumulativeWeights;
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final AtomicLong isbn = new AtomicLong();
+	//Alterada pelo gerador e pelas respostas das criações
+	private final List<Long> ids;
+	
+	public BookWorkload(LoadTestServer server, Map<String, Integer> mix, List<Long> ids) {
+		this.server = server;
+		this.operations = mix.keySet().toArray(new String[0]);
+		this.cumulativeWeights = new int[operations.length];
+		int total = 0;
+		for(int i = 0; i < operations.length; i++) {
+			total += mix.get(operations[i]);
+			cumulativeWeights[i] = total;
+		}
+		if(total <= 0) {
+			throw new IllegalArgumentException("Mistura sem operações: " + mix);
+		}
+		this.ids = new ArrayList<>(ids);
+	}
+	
+	/**
+	 * Lê a mistura no formato {@code operacao=peso,...}.
+	 */
+	public static Map<String, Integer> parseMix(String mix) {
+		Map<String, Integer> weights = new LinkedHashMap<>();
+		for(String part : mix.split(",")) {
+			String[] entry = part.trim().split("=");
+			String operation = entry[0].trim();
+			if(!operation.equals(CREATE) && !operation.equals(GET) && !operation.equals(UPDATE) && !operation.equals(DELETE)) {
+				throw new IllegalArgumentException("Operação desconhecida: " + operation);
+			}
+			weights.put(operation, Integer.parseInt(entry[1].trim()));
+		}
+		return weights;
+	}
+	
+	@Override
+	public LoadRequest get() {
+		int draw = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+		int i = 0;
+		while(draw >= cumulativeWeights[i]) {
+			i++;
+		}
+		Long id = operations[i].equals(CREATE) ? null : pickId(operations[i].equals(DELETE));
+		if(id == null) {
+			//Sem livros cadastrados, ou criação sorteada
+			return create();
+		}
+		switch(operations[i]) {
+		case UPDATE:
+			return new LoadRequest(UPDATE, server.put(id, UPDATE_JSON));
+		case DELETE:
+			return new LoadRequest(DELETE, server.delete(id));
+		default:
+			return new LoadRequest(GET, server.get(id));
+		}
+	}
+	
+	private LoadRequest create() {
+		return new LoadRequest(CREATE, server.post(LoadTestServer.bookJson("load-" + isbn.incrementAndGet())), response -> {
+			if(response.statusCode() == 201) {
+				try {
+					addId(objectMapper.readTree(response.body()).get("id").asLong());
+				} catch (IOException e) {
+					//Resposta sem ID: o livro só não entra no sorteio
+				}
+			}
+		});
+	}
+	
+	private synchronized Long pickId(boolean remove) {
+		if(ids.isEmpty()) {
+			return null;
+		}
+		int index = ThreadLocalRandom.current().nextInt(ids.size());
+		Long id = ids.get(index);
+		if(remove) {
+			//Troca com o último para remover sem deslocar a lista
+			ids.set(index, ids.get(ids.size() - 1));
+			ids.remove(ids.size() - 1);
+		}
+		return id;
+	}
+	
+	private synchronized void addId(long id) {
+		ids.add(id);
+	}
+
+}
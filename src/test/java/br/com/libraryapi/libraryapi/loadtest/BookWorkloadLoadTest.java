@@ -0,0 +1,73 @@
+package br.com.libraryapi.libraryapi.loadtest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Carga mista de criação, consulta, alteração e exclusão de livros contra a
+ * aplicação completa com H2 embarcado, em taxa constante. Exibe vazão e
+ * p50/p99/p999 por operação, grava o resultado em
+ * {@code target/loadtest-result.json} e falha quando alguma operação piora
+ * além da tolerância em relação a {@code benchmarks/loadtest-baseline.json}.
+ * Desabilitado no build normal (ver benchmarks/README.md):
+ * 
+ * <pre>
+ * mvn -Ploadtest test [-Dloadtest.rate=200] [-Dloadtest.seconds=30] [-Dloadtest.mix=create=10,get=70,update=15,delete=5]
+ * </pre>
+ * 
+ * Sem baseline o teste falha. O baseline só é comparado com a mesma taxa,
+ * mistura e duração com que foi gerado; com outra configuração, a comparação
+ * é pulada.
+ */
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+public class BookWorkloadLoadTest {
+	
+	private static final int RATE = Integer.getInteger("loadtest.rate", 200);
+	private static final int SECONDS = Integer.getInteger("loadtest.seconds", 30);
+	private static final int WARMUP_SECONDS = Integer.getInteger("loadtest.warmup-seconds", 10);
+	private static final int CONNECTIONS = Integer.getInteger("loadtest.connections", 64);
+	private static final int BOOKS = Integer.getInteger("loadtest.books", 1000);
+	private static final String MIX = System.getProperty("loadtest.mix", "create=10,get=70,update=15,delete=5");
+	private static final File BASELINE = new File(System.getProperty("loadtest.baseline", "benchmarks/loadtest-baseline.json"));
+	private static final File RESULT = new File("target/loadtest-result.json");
+	private static final double TOLERANCE = Double.parseDouble(System.getProperty("loadtest.tolerance", "0.20"));
+	private static final double SLACK_MILLIS = Double.parseDouble(System.getProperty("loadtest.slack-millis", "1"));
+	
+	@Test
+	@DisplayName("Não deve piorar vazão e latência da carga mista em relação ao baseline")
+	public void mixedWorkload() throws Exception {
+		String configuration = String.format("rate=%d seconds=%d mix=%s", RATE, SECONDS, MIX);
+		LoadReport report;
+		try(LoadTestServer server = new LoadTestServer()) {
+			BookWorkload workload = new BookWorkload(server, BookWorkload.parseMix(MIX), server.seed(BOOKS));
+			//Aquecimento (JIT, pool de conexões, caches): resultado descartado
+			new LoadGenerator(CONNECTIONS, Duration.ofSeconds(WARMUP_SECONDS), RATE).runOperations(workload);
+			report = new LoadGenerator(CONNECTIONS, Duration.ofSeconds(SECONDS), RATE).runOperations(workload);
+		}
+		System.out.println(configuration);
+		System.out.println(report);
+		LoadBaseline.write(report, configuration, RESULT);
+		
+		LoadResult total = report.getTotal();
+		assertThat(total.getRequests()).isPositive();
+		assertThat(total.getErrors()).as("respostas 5xx ou falhas de conexão").isLessThanOrEqualTo(total.getRequests() / 100);
+		
+		assertThat(BASELINE).as("Sem baseline em %s: copie %s para criá-lo", BASELINE, RESULT).exists();
+		JsonNode baseline = LoadBaseline.read(BASELINE);
+		Assumptions.assumeTrue(configuration.equals(baseline.get("configuration").asText()),
+				"Baseline gerado com outra configuração: " + baseline.get("configuration").asText());
+		List<String> regressions = LoadBaseline.compare(baseline, RESULT, TOLERANCE, SLACK_MILLIS);
+		assertThat(regressions).as("métricas acima da tolerância de %.0f%%", TOLERANCE * 100).isEmpty();
+	}
+
+}
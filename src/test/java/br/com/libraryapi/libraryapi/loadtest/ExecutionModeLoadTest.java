@@ -0,0 +1,54 @@
+package br.com.libraryapi.libraryapi.loadtest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+/**
+ * Compara vazão e p99 dos modos de execução servlet e offload com muitas
+ * conexões simultâneas (90% GET, 10% POST). Desabilitado no build normal:
+ * 
+ * <pre>
+ * mvn test -Dtest=ExecutionModeLoadTest -Dloadtest=true [-Dloadtest.connections=10000] [-Dloadtest.seconds=30]
+ * </pre>
+ * 
+ * Cada conexão usa um descritor de arquivo no cliente e outro no servidor:
+ * com 10 mil conexões confira o {@code ulimit -n}.
+ */
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+public class ExecutionModeLoadTest {
+	
+	private static final int CONNECTIONS = Integer.getInteger("loadtest.connections", 10000);
+	private static final int SECONDS = Integer.getInteger("loadtest.seconds", 30);
+	
+	@Test
+	@DisplayName("Deve comparar os modos servlet e offload com muitas conexões simultâneas")
+	public void compareExecutionModes() throws Exception {
+		LoadResult servlet = run("servlet");
+		LoadResult offload = run("offload");
+		
+		System.out.println("servlet: " + servlet);
+		System.out.println("offload: " + offload);
+		assertThat(servlet.getRequests()).isPositive();
+		assertThat(offload.getRequests()).isPositive();
+	}
+	
+	private LoadResult run(String mode) throws Exception {
+		try(LoadTestServer server = new LoadTestServer("library.execution.mode=" + mode)) {
+			List<Long> ids = server.seed(1000);
+			AtomicLong isbn = new AtomicLong();
+			LoadGenerator generator = new LoadGenerator(CONNECTIONS, Duration.ofSeconds(SECONDS));
+			return generator.run(() -> ThreadLocalRandom.current().nextInt(10) == 0
+					? server.post(LoadTestServer.bookJson(mode + "-" + isbn.incrementAndGet()))
+					: server.get(ids.get(ThreadLocalRandom.current().nextInt(ids.size()))));
+		}
+	}
+
+}
@@ -0,0 +1,90 @@
+package br.com.libraryapi.libraryapi.loadtest;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Grava um {@link LoadReport} em JSON e o compara com o baseline versionado,
+ * como o {@code BenchmarkBaseline} faz com os benchmarks JMH.
+ * 
+ * Por operação são comparados vazão (maior é melhor) e p50/p99 (menor é
+ * melhor); o p999 é gravado e exibido, mas com poucos milhares de amostras
+ * varia demais entre execuções para reprovar o build. A folga absoluta evita
+ * que variações de décimos de milissegundo em latências muito baixas contem
+ * como regressão.
+ */
+public class LoadBaseline {
+	
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+	
+	public static void write(LoadReport report, String configuration, File file) throws IOException {
+		ObjectNode root = MAPPER.createObjectNode();
+		root.put("configuration", configuration);
+		ObjectNode operations = root.putObject("operations");
+		report.getOperations().forEach((operation, result) -> write(operations.putObject(operation), result));
+		write(operations.putObject("total"), report.getTotal());
+		file.getAbsoluteFile().getParentFile().mkdirs();
+		MAPPER.writerWithDefaultPrettyPrinter().writeValue(file, root);
+	}
+	
+	public static JsonNode read(File file) throws IOException {
+		return MAPPER.readTree(file);
+	}
+	
+	/**
+	 * Retorna as métricas que pioraram além de {@code tolerance} (fração) e
+	 * {@code slackMillis}, exibindo a comparação de todas.
+	 */
+	public static List<String> compare(JsonNode baseline, File current, double tolerance, double slackMillis) throws IOException {
+		List<String> regressions = new ArrayList<>();
+		Iterator<Map.Entry<String, JsonNode>> operations = read(current).get("operations").fields();
+		while(operations.hasNext()) {
+			Map.Entry<String, JsonNode> operation = operations.next();
+			JsonNode before = baseline.get("operations").get(operation.getKey());
+			if(before == null) {
+				System.out.printf("NOVO       %-8s%n", operation.getKey());
+				continue;
+			}
+			JsonNode after = operation.getValue();
+			check(regressions, operation.getKey(), "throughput", before, after, tolerance, 0, true);
+			check(regressions, operation.getKey(), "p50", before, after, tolerance, slackMillis, false);
+			check(regressions, operation.getKey(), "p99", before, after, tolerance, slackMillis, false);
+			System.out.printf("%-10s %-8s %-10s %12.3f -> %12.3f%n", "INFO", operation.getKey(), "p999",
+					before.get("p999").asDouble(), after.get("p999").asDouble());
+		}
+		return regressions;
+	}
+	
+	private static void check(List<String> regressions, String operation, String metric, JsonNode before, JsonNode after,
+			double tolerance, double slack, boolean higherIsBetter) {
+		double reference = before.get(metric).asDouble();
+		double value = after.get(metric).asDouble();
+		double change = (value - reference) / reference;
+		boolean regression = higherIsBetter
+				? value < reference * (1 - tolerance)
+				: value > reference * (1 + tolerance) + slack;
+		if(regression) {
+			regressions.add(operation + " " + metric);
+		}
+		System.out.printf("%-10s %-8s %-10s %12.3f -> %12.3f (%+.1f%%)%n",
+				regression ? "REGRESSAO" : "OK", operation, metric, reference, value, change * 100);
+	}
+	
+	private static void write(ObjectNode node, LoadResult result) {
+		node.put("requests", result.getRequests());
+		node.put("errors", result.getErrors());
+		node.put("throughput", result.getThroughput());
+		node.put("p50", result.percentileMillis(50));
+		node.put("p99", result.percentileMillis(99));
+		node.put("p999", result.percentileMillis(99.9));
+	}
+
+}
@@ -0,0 +1,139 @@
+package br.com.libraryapi.libraryapi.loadtest;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Gerador de carga HTTP/1.1 que registra a latência de cada resposta por
+ * operação durante {@code duration}.
+ * 
+ * Sem taxa ({@code ratePerSecond = 0}) trabalha em malha fechada: mantém
+ * {@code concurrency} requisições em andamento, cada uma enviada assim que a
+ * anterior responde. Com taxa, as requisições partem em intervalos fixos
+ * (malha aberta, como os cenários de chegada constante do Gatling), com no
+ * máximo {@code concurrency} em andamento; a latência é contada a partir do
+ * horário previsto de envio, para que a espera por uma conexão livre quando o
+ * servidor atrasa também apareça nos percentis.
+ */
+public class LoadGenerator {
+	
+	private final HttpClient client;
+	private final int concurrency;
+	private final Duration duration;
+	private final double ratePerSecond;
+	
+	public LoadGenerator(int concurrency, Duration duration) {
+		this(concurrency, duration, 0);
+	}
+	
+	public LoadGenerator(int concurrency, Duration duration, double ratePerSecond) {
+		this.client = HttpClient.newBuilder()
+				.version(HttpClient.Version.HTTP_1_1)
+				.connectTimeout(Duration.ofSeconds(30))
+				.build();
+		this.concurrency = concurrency;
+		this.duration = duration;
+		this.ratePerSecond = ratePerSecond;
+	}
+	
+	public LoadResult run(Supplier<HttpRequest> requests) throws InterruptedException {
+		return runOperations(() -> new LoadRequest("all", requests.get())).getTotal();
+	}
+	
+	public LoadReport runOperations(Supplier<LoadRequest> requests) throws InterruptedException {
+		Recorder recorder = new Recorder();
+		long start = System.nanoTime();
+		if(ratePerSecond > 0) {
+			open(requests, start, recorder);
+		} else {
+			closed(requests, start, recorder);
+		}
+		return recorder.report(concurrency, System.nanoTime() - start);
+	}
+	
+	private void closed(Supplier<LoadRequest> requests, long start, Recorder recorder) {
+		long deadline = start + duration.toNanos();
+		CompletableFuture<?>[] users = new CompletableFuture<?>[concurrency];
+		for(int i = 0; i < concurrency; i++) {
+			users[i] = loop(requests, deadline, recorder);
+		}
+		CompletableFuture.allOf(users).orTimeout(duration.toMillis() + 60_000, TimeUnit.MILLISECONDS).exceptionally(e -> null).join();
+	}
+	
+	private CompletableFuture<Void> loop(Supplier<LoadRequest> requests, long deadline, Recorder recorder) {
+		long sent = System.nanoTime();
+		if(sent >= deadline) {
+			return CompletableFuture.completedFuture(null);
+		}
+		return send(requests.get(), sent, recorder).thenCompose(ignored -> loop(requests, deadline, recorder));
+	}
+	
+	private void open(Supplier<LoadRequest> requests, long start, Recorder recorder) throws InterruptedException {
+		Semaphore inFlight = new Semaphore(concurrency);
+		long interval = (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond);
+		long deadline = start + duration.toNanos();
+		for(long scheduled = start; scheduled < deadline; scheduled += interval) {
+			long wait;
+			while((wait = scheduled - System.nanoTime()) > 0) {
+				LockSupport.parkNanos(wait);
+			}
+			inFlight.acquire();
+			send(requests.get(), scheduled, recorder).whenComplete((ignored, error) -> inFlight.release());
+		}
+		inFlight.tryAcquire(concurrency, 60, TimeUnit.SECONDS);
+	}
+	
+	private CompletableFuture<Void> send(LoadRequest request, long startNanos, Recorder recorder) {
+		return client.sendAsync(request.getRequest(), HttpResponse.BodyHandlers.ofString())
+				.handle((response, error) -> {
+					if(error != null || response.statusCode() >= 500) {
+						recorder.error(request.getOperation());
+					} else {
+						recorder.record(request.getOperation(), System.nanoTime() - startNanos);
+						request.completed(response);
+					}
+					return null;
+				});
+	}
+	
+	private static class Recorder {
+		
+		private final Map<String, ConcurrentLinkedQueue<Long>> latencies = new ConcurrentHashMap<>();
+		private final Map<String, AtomicLong> errors = new ConcurrentHashMap<>();
+		
+		void record(String operation, long nanos) {
+			latencies.computeIfAbsent(operation, key -> new ConcurrentLinkedQueue<>()).add(nanos);
+		}
+		
+		void error(String operation) {
+			errors.computeIfAbsent(operation, key -> new AtomicLong()).incrementAndGet();
+		}
+		
+		LoadReport report(int concurrency, long elapsedNanos) {
+			LoadReport report = new LoadReport(concurrency, elapsedNanos);
+			latencies.keySet().forEach(operation -> report.add(operation, latencies.get(operation), errorCount(operation)));
+			errors.keySet().stream()
+					.filter(operation -> !latencies.containsKey(operation))
+					.forEach(operation -> report.add(operation, new ConcurrentLinkedQueue<>(), errorCount(operation)));
+			return report;
+		}
+		
+		private long errorCount(String operation) {
+			AtomicLong count = errors.get(operation);
+			return count == null ? 0 : count.get();
+		}
+	
+	}
+
+}
@@ -0,0 +1,47 @@
+package br.com.libraryapi.libraryapi.loadtest;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Resultado de uma execução do {@link LoadGenerator} por operação e no total.
+ */
+public class LoadReport {
+	
+	private final int concurrency;
+	private final long elapsedNanos;
+	private final Map<String, LoadResult> operations = new TreeMap<>();
+	private final List<Long> allLatencies = new ArrayList<>();
+	private long allErrors;
+	
+	public LoadReport(int concurrency, long elapsedNanos) {
+		this.concurrency = concurrency;
+		this.elapsedNanos = elapsedNanos;
+	}
+	
+	void add(String operation, Collection<Long> latencies, long errors) {
+		operations.put(operation, new LoadResult(concurrency, latencies, errors, elapsedNanos));
+		allLatencies.addAll(latencies);
+		allErrors += errors;
+	}
+	
+	public Map<String, LoadResult> getOperations() {
+		return Collections.unmodifiableMap(operations);
+	}
+	
+	public LoadResult getTotal() {
+		return new LoadResult(concurrency, allLatencies, allErrors, elapsedNanos);
+	}
+	
+	@Override
+	public String toString() {
+		StringBuilder text = new StringBuilder();
+		operations.forEach((operation, result) -> text.append(String.format("%-8s %s%n", operation, result)));
+		return text.append(String.format("%-8s %s", "total", getTotal())).toString();
+	}
+
+}
@@ -0,0 +1,40 @@
+package br.com.libraryapi.libraryapi.loadtest;
+
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.function.Consumer;
+
+/**
+ * Requisição do {@link LoadGenerator} com o nome da operação, usado para
+ * separar os percentis por tipo de requisição, e uma ação opcional sobre a
+ * resposta (ex.: guardar o ID de um livro criado).
+ */
+public class LoadRequest {
+	
+	private final String operation;
+	private final HttpRequest request;
+	private final Consumer<HttpResponse<String>> onResponse;
+	
+	public LoadRequest(String operation, HttpRequest request) {
+		this(operation, request, response -> {});
+	}
+	
+	public LoadRequest(String operation, HttpRequest request, Consumer<HttpResponse<String>> onResponse) {
+		this.operation = operation;
+		this.request = request;
+		this.onResponse = onResponse;
+	}
+	
+	public String getOperation() {
+		return operation;
+	}
+	
+	public HttpRequest getRequest() {
+		return request;
+	}
+	
+	public void completed(HttpResponse<String> response) {
+		onResponse.accept(response);
+	}
+
+}
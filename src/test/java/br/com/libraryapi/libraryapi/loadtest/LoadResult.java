@@ -0,0 +1,53 @@
+package br.com.libraryapi.libraryapi.loadtest;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Vazão e percentis de latência de uma execução do {@link LoadGenerator}.
+ */
+public class LoadResult {
+	
+	private final int concurrency;
+	private final long[] latencies;
+	private final long errors;
+	private final long elapsedNanos;
+	
+	public LoadResult(int concurrency, Collection<Long> latencies, long errors, long elapsedNanos) {
+		this.concurrency = concurrency;
+		this.latencies = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+		this.errors = errors;
+		this.elapsedNanos = elapsedNanos;
+	}
+	
+	public long getRequests() {
+		return latencies.length;
+	}
+	
+	public long getErrors() {
+		return errors;
+	}
+	
+	public double getThroughput() {
+		return latencies.length / (elapsedNanos / 1e9);
+	}
+	
+	/**
+	 * Percentil da latência em milissegundos ({@code percentile} entre 0 e 100).
+	 */
+	public double percentileMillis(double percentile) {
+		if(latencies.length == 0) {
+			return Double.NaN;
+		}
+		int index = (int) Math.ceil(percentile / 100 * latencies.length) - 1;
+		return latencies[Math.max(0, Math.min(index, latencies.length - 1))] / (double) TimeUnit.MILLISECONDS.toNanos(1);
+	}
+	
+	@Override
+	public String toString() {
+		return String.format("conexões=%d requisições=%d erros=%d vazão=%.1f req/s p50=%.2fms p99=%.2fms p999=%.2fms",
+				concurrency, getRequests(), errors, getThroughput(),
+				percentileMillis(50), percentileMillis(99), percentileMillis(99.9));
+	}
+
+}
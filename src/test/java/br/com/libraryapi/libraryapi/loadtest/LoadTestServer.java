@@ -0,0 +1,94 @@
+package br.com.libraryapi.libraryapi.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import br.com.libraryapi.libraryapi.LibraryApiApplication;
+
+/**
+ * Sobe a aplicação em uma porta aleatória com H2 embarcado para os testes de
+ * carga.
+ */
+public class LoadTestServer implements AutoCloseable {
+	
+	private final ConfigurableApplicationContext context;
+	private final String baseUrl;
+	
+	public LoadTestServer(String... properties) {
+		System.setProperty("spring.devtools.restart.enabled", "false");
+		List<String> args = new ArrayList<>();
+		args.add("--server.port=0");
+		args.add("--spring.main.banner-mode=off");
+		args.add("--logging.level.root=WARN");
+		args.add("--server.tomcat.max-connections=20000");
+		args.add("--server.tomcat.accept-count=10000");
+		args.add("--spring.datasource.url=jdbc:h2:mem:loadtest-" + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+		for(String property : properties) {
+			args.add("--" + property);
+		}
+		this.context = new SpringApplicationBuilder(LibraryApiApplication.class).run(args.toArray(new String[0]));
+		this.baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/api/books";
+	}
+	
+	public String getBaseUrl() {
+		return baseUrl;
+	}
+	
+	/**
+	 * Cadastra {@code count} livros e retorna os IDs gerados.
+	 */
+	public List<Long> seed(int count) throws IOException, InterruptedException {
+		HttpClient client = HttpClient.newHttpClient();
+		ObjectMapper objectMapper = new ObjectMapper();
+		List<Long> ids = new ArrayList<>(count);
+		for(int i = 0; i < count; i++) {
+			HttpResponse<String> response = client.send(post(bookJson("seed-" + i)), HttpResponse.BodyHandlers.ofString());
+			ids.add(objectMapper.readTree(response.body()).get("id").asLong());
+		}
+		return ids;
+	}
+	
+	public HttpRequest get(long id) {
+		return HttpRequest.newBuilder(URI.create(baseUrl + "/" + id)).header("Accept", "application/json").GET().build();
+	}
+	
+	public HttpRequest post(String json) {
+		return HttpRequest.newBuilder(URI.create(baseUrl))
+				.header("Content-Type", "application/json")
+				.header("Accept", "application/json")
+				.POST(HttpRequest.BodyPublishers.ofString(json))
+				.build();
+	}
+	
+	public HttpRequest put(long id, String json) {
+		return HttpRequest.newBuilder(URI.create(baseUrl + "/" + id))
+				.header("Content-Type", "application/json")
+				.header("Accept", "application/json")
+				.PUT(HttpRequest.BodyPublishers.ofString(json))
+				.build();
+	}
+	
+	public HttpRequest delete(long id) {
+		return HttpRequest.newBuilder(URI.create(baseUrl + "/" + id)).DELETE().build();
+	}
+	
+	public static String bookJson(String isbn) {
+		return "{\"title\":\"Livro de carga\",\"author\":\"Autor\",\"isbn\":\"" + isbn + "\"}";
+	}
+	
+	@Override
+	public void close() {
+		context.close();
+	}
+
+}
@@ -0,0 +1,162 @@
+package br.com.libraryapi.libraryapi.loadtest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import br.com.libraryapi.libraryapi.LibraryApiApplication;
+
+/**
+ * Tempo até a primeira requisição atendida: do início do processo da JVM até
+ * a primeira resposta de {@code GET /api/books/{id}}, que já passa pelo
+ * controller, pelo service e pelo JPA. Compara a subida padrão com o profile
+ * {@code fast-startup} e, se {@code mvn -Pappcds package} já gerou o arquivo
+ * em {@code target/cds}, com o profile e o AppCDS juntos. Cada subida é um
+ * processo novo. Exibe mediana, mínimo e máximo e grava
+ * {@code target/startup-result.json}. Desabilitado no build normal (ver
+ * benchmarks/README.md):
+ * 
+ * <pre>
+ * mvn -Pstartup test [-Dstartup.runs=5]
+ * </pre>
+ */
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+public class StartupTimeTest {
+	
+	private static final int RUNS = Integer.getInteger("startup.runs", 5);
+	private static final Duration TIMEOUT = Duration.ofSeconds(Integer.getInteger("startup.timeout-seconds", 120));
+	private static final File CDS_DIR = new File("target/cds");
+	private static final File RESULT = new File("target/startup-result.json");
+	
+	private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+	
+	@Test
+	@DisplayName("Deve medir o tempo até a primeira requisição com e sem o modo de subida rápida")
+	public void timeToFirstRequest() throws Exception {
+		Map<String, List<Long>> results = new LinkedHashMap<>();
+		String classpath = System.getProperty("java.class.path");
+		results.put("default", measure("default", Collections.emptyList(), classpath));
+		results.put("fast-startup", measure("fast-startup", Arrays.asList("--spring.profiles.active=fast-startup"), classpath));
+		File archive = new File(CDS_DIR, "app.jsa");
+		if(archive.isFile()) {
+			//O arquivo só é aceito com o mesmo classpath da geração
+			results.put("fast-startup+appcds", measure("fast-startup+appcds", Arrays.asList("-XX:SharedArchiveFile=" + archive, "-Xshare:on", "--spring.profiles.active=fast-startup"),
+					cdsClasspath()));
+		}
+		
+		Map<String, Map<String, Long>> summary = new LinkedHashMap<>();
+		long baseline = median(results.get("default"));
+		for(Map.Entry<String, List<Long>> mode : results.entrySet()) {
+			List<Long> millis = mode.getValue();
+			Map<String, Long> stats = new LinkedHashMap<>();
+			stats.put("medianMillis", median(millis));
+			stats.put("minMillis", Collections.min(millis));
+			stats.put("maxMillis", Collections.max(millis));
+			summary.put(mode.getKey(), stats);
+			System.out.println(String.format("%-20s mediana %5d ms  mín %5d ms  máx %5d ms  (%+.1f%%)", mode.getKey(),
+					median(millis), Collections.min(millis), Collections.max(millis), 100.0 * (median(millis) - baseline) / baseline));
+		}
+		new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(RESULT, summary);
+		
+		assertThat(results.values()).allSatisfy(millis -> assertThat(millis).hasSize(RUNS));
+	}
+	
+	//Opções -X... vão para a JVM e --... para a aplicação
+	private List<Long> measure(String mode, List<String> options, String classpath) throws Exception {
+		List<Long> millis = new ArrayList<>();
+		for(int run = 0; run < RUNS; run++) {
+			int port = freePort();
+			List<String> command = new ArrayList<>();
+			command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+			options.stream().filter(option -> option.startsWith("-X")).forEach(command::add);
+			command.add("-cp");
+			command.add(classpath);
+			command.add(LibraryApiApplication.class.getName());
+			command.add("--server.port=" + port);
+			command.add("--spring.datasource.url=jdbc:h2:mem:startup;DB_CLOSE_DELAY=-1");
+			command.add("--spring.devtools.restart.enabled=false");
+			command.add("--logging.level.root=WARN");
+			options.stream().filter(option -> option.startsWith("--")).forEach(command::add);
+			
+			long start = System.nanoTime();
+			Process process = new ProcessBuilder(command)
+					.redirectErrorStream(true)
+					.redirectOutput(new File("target/startup-" + mode + "-" + run + ".log"))
+					.start();
+			try {
+				waitFirstResponse(process, port);
+				millis.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+			} finally {
+				process.destroy();
+				if(!process.waitFor(30, TimeUnit.SECONDS)) {
+					process.destroyForcibly();
+				}
+			}
+		}
+		return millis;
+	}
+	
+	private void waitFirstResponse(Process process, int port) throws IOException, InterruptedException {
+		HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/books/1"))
+				.header("Accept", "application/json")
+				.GET()
+				.build();
+		long deadline = System.nanoTime() + TIMEOUT.toNanos();
+		while(System.nanoTime() < deadline) {
+			if(!process.isAlive()) {
+				throw new IllegalStateException("A aplicação terminou durante a subida (código " + process.exitValue() + ")");
+			}
+			try {
+				//404 também conta: a requisição passou pela aplicação inteira
+				client.send(request, HttpResponse.BodyHandlers.discarding());
+				return;
+			} catch (ConnectException e) {
+				Thread.sleep(10);
+			}
+		}
+		throw new IllegalStateException("A aplicação não respondeu em " + TIMEOUT);
+	}
+	
+	private static String cdsClasspath() throws IOException {
+		File[] jars = CDS_DIR.listFiles((dir, name) -> name.endsWith("-cds.jar"));
+		assertThat(jars).as("jar gerado por mvn -Pappcds package").hasSize(1);
+		String dependencies = new String(Files.readAllBytes(new File(CDS_DIR, "classpath.txt").toPath()), StandardCharsets.UTF_8).trim();
+		return jars[0].getAbsolutePath() + File.pathSeparator + dependencies;
+	}
+	
+	private static int freePort() throws IOException {
+		try(ServerSocket socket = new ServerSocket(0)) {
+			return socket.getLocalPort();
+		}
+	}
+	
+	private static long median(List<Long> values) {
+		List<Long> sorted = new ArrayList<>(values);
+		Collections.sort(sorted);
+		return sorted.get(sorted.size() / 2);
+	}
+
+}